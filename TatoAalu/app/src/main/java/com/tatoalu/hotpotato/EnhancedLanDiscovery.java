@@ -9,26 +9,43 @@ import android.os.Looper;
 import android.util.Log;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Enhanced LAN Discovery System similar to Mini Militia
  * Features:
- * - UDP broadcast for fast discovery
+ * - Multicast room beacons: a burst when a room opens or changes, then a slow
+ *   steady rate; browsers listen passively instead of polling
+ * - Compact binary beacons ({@link RoomBeacon}), with rooms keyed by a stable
+ *   random room ID rather than their code
+ * - Unicast RTT probes from the browser to every host ({@link LinkQuality})
+ * - Speculative connections to the likeliest rooms, so joining skips the
+ *   TCP connect ({@link PreconnectPool})
  * - NSD (Network Service Discovery) integration
+ * - Sockets of every kind come from a {@link Transport}; only NSD and the
+ *   Wi-Fi multicast lock, which are Android services, stay outside it
+ * - One TCP connection per player, carrying three logical channels of
+ *   {@link WireCodec} messages: lobby (join, snapshot, roster, start), game
+ *   and heartbeat. Any message proves the peer alive, so heartbeats only
+ *   flow on connections that have gone quiet
+ * - Hosting and joining are the shared {@link RoomHost} and
+ *   {@link RoomClient}, the same code a dedicated {@code HostServer} runs
+ * - Several rooms on one host (a hub), all on one listening port: the join
+ *   request names the room, one combined beacon lists them all, and every
+ *   room's heartbeats and {@link RoomReferee} run on one shared room loop
  * - Automatic room detection and joining
  * - Real-time player list updates
  * - Connection health monitoring
@@ -40,24 +57,10 @@ public class EnhancedLanDiscovery {
     // Service configuration
     private static final String SERVICE_TYPE = "_tatoaalu._tcp.";
     private static final String SERVICE_NAME = "TatoAalu_HotPotato";
-    private static final int DEFAULT_PORT = 54567;
-    private static final int UDP_BROADCAST_PORT = 54568;
 
     // Discovery configuration
-    private static final int DISCOVERY_INTERVAL_MS = 2000; // 2 seconds
     private static final int CONNECTION_TIMEOUT_MS = 10000; // 10 seconds
-    private static final int HEARTBEAT_INTERVAL_MS = 5000; // 5 seconds
-    private static final int MAX_PLAYERS = 8;
-
-    // Broadcast messages
-    private static final String MSG_DISCOVER_ROOMS = "TATO_DISCOVER";
-    private static final String MSG_ROOM_RESPONSE = "TATO_ROOM";
-    private static final String MSG_JOIN_REQUEST = "TATO_JOIN";
-    private static final String MSG_JOIN_RESPONSE = "TATO_JOIN_OK";
-    private static final String MSG_PLAYER_UPDATE = "TATO_PLAYERS";
-    private static final String MSG_HEARTBEAT = "TATO_HEARTBEAT";
-    private static final String MSG_GAME_START = "TATO_START";
-    private static final String MSG_GAME_DATA = "TATO_DATA";
+    private static final int MAX_PLAYERS = Config.MAX_PLAYERS;
 
     private Context context;
     private NsdManager nsdManager;
@@ -66,83 +69,131 @@ public class EnhancedLanDiscovery {
     private Handler mainHandler;
 
     // Discovery state
-    private boolean isDiscovering = false;
-    private boolean isHosting = false;
+    private volatile boolean isDiscovering = false;
     private String localPlayerName;
-    private String roomCode;
-    private int hostPort = DEFAULT_PORT;
 
     // Network components
-    private DatagramSocket broadcastSocket;
-    private ServerSocket hostServerSocket;
-    private NsdManager.RegistrationListener registrationListener;
+    private final Transport transport = new TcpTransport();
+    private Transport.Beacons beacons;
+    // Wi-Fi drivers filter multicast unless someone holds this lock
+    private WifiManager.MulticastLock multicastLock;
+
+    // Storm suppression for our own probe; a host's answers are throttled by its RoomHost
+    private final DiscoveryThrottle discoveryThrottle = new DiscoveryThrottle();
+    private volatile long lastGroupTrafficMs;  // anyone's beacon or probe heard on the group
     private NsdManager.DiscoveryListener discoveryListener;
+    private NsdResolveQueue nsdResolveQueue;
 
     // Room and player management
-    private Map<String, DiscoveredRoom> discoveredRooms = new ConcurrentHashMap<>();
-    private Map<String, ConnectedPlayer> connectedPlayers = new ConcurrentHashMap<>();
-    private List<Socket> clientConnections = Collections.synchronizedList(new ArrayList<>());
-
+    private Map<Long, DiscoveredRoom> discoveredRooms = new ConcurrentHashMap<>();
+    private final Map<Long, LinkQuality> linkQuality = new ConcurrentHashMap<>();
+    private final PreconnectPool preconnectPool = new PreconnectPool(transport);
+    private volatile boolean joining; // no speculation once the player picked a room
+    // Host: every room served on our port, the one we play in and hub rooms alike; null when not hosting
+    private volatile RoomHost host;
+    private volatile long localRoomId = RoomHost.NO_ROOM; // the hosted room we play in, if any
+    private final Map<Long, NsdManager.RegistrationListener> nsdRegistrations = new ConcurrentHashMap<>();
+    private long suppressedByEarlierHosts; // discovery answers skipped before the current host
+    // Client: our seat in someone else's room; its clock samples run on clientScheduler
+    private volatile RoomClient client;
+    private volatile DiscoveredRoom joinedRoom;
+    private final ScheduledExecutorService clientScheduler = Executors.newSingleThreadScheduledExecutor();
     // Callbacks
     private LanDiscoveryListener listener;
 
     public interface LanDiscoveryListener {
-        void onRoomsDiscovered(List<DiscoveredRoom> rooms);
+        // Room list deltas, keyed by room ID; an update replaces the earlier object
+        void onRoomAdded(DiscoveredRoom room);
+        void onRoomUpdated(DiscoveredRoom room);
+        void onRoomRemoved(long roomId);
         void onRoomJoined(String roomCode, String hostName);
         void onRoomHosted(String roomCode, int port);
-        void onPlayerJoined(String playerId, String playerName);
-        void onPlayerLeft(String playerId, String playerName);
+        void onPlayerJoined(int playerId, String playerName);
+        void onPlayerLeft(int playerId, String playerName);
+        void onRoomSnapshot(RoomState.Snapshot snapshot);
         void onGameStarted();
-        void onGameDataReceived(String data);
+        // senderId: the sender's seat while hosting, PlayerRegistry.NO_PLAYER for data from the host
+        void onGameDataReceived(int senderId, String data);
         void onConnectionError(String error);
         void onDiscoveryStateChanged(boolean isDiscovering);
     }
 
     // Data classes
     public static class DiscoveredRoom {
+        public long roomId;
         public String roomCode;
         public String hostName;
         public String hostAddress;
         public int hostPort;
         public int playerCount;
         public int maxPlayers;
-        public long lastSeen;
+        public int gameMode;
+        public int capabilities;
+        public volatile long lastSeen;
         public boolean isJoinable;
+        // Measured from this device; a change arrives as a new object like any other update
+        public int rttMs = LinkQuality.UNKNOWN;
+        public int lossPercent;
+
+        public DiscoveredRoom(long roomId, String roomCode, String hostName, String hostAddress, int hostPort,
+                              int playerCount) {
+            this(roomId, roomCode, hostName, hostAddress, hostPort, playerCount, MAX_PLAYERS,
+                    RoomBeacon.MODE_CLASSIC, 0);
+        }
 
-        public DiscoveredRoom(String roomCode, String hostName, String hostAddress, int hostPort, int playerCount) {
+        public DiscoveredRoom(long roomId, String roomCode, String hostName, String hostAddress, int hostPort,
+                              int playerCount, int maxPlayers, int gameMode, int capabilities) {
+            this.roomId = roomId;
             this.roomCode = roomCode;
             this.hostName = hostName;
             this.hostAddress = hostAddress;
             this.hostPort = hostPort;
             this.playerCount = playerCount;
-            this.maxPlayers = MAX_PLAYERS;
+            this.maxPlayers = maxPlayers;
+            this.gameMode = gameMode;
+            this.capabilities = capabilities;
             this.lastSeen = System.currentTimeMillis();
             this.isJoinable = playerCount < maxPlayers;
         }
+
+        DiscoveredRoom withLink(int rttMs, int lossPercent) {
+            DiscoveredRoom copy = new DiscoveredRoom(roomId, roomCode, hostName, hostAddress, hostPort,
+                    playerCount, maxPlayers, gameMode, capabilities);
+            copy.lastSeen = lastSeen;
+            copy.rttMs = rttMs;
+            copy.lossPercent = lossPercent;
+            return copy;
+        }
+
+        /** Lower is better; see {@link LinkQuality#score}. */
+        public long qualityScore() {
+            return LinkQuality.score(rttMs, lossPercent);
+        }
     }
 
+    /** A player seated in the room we host, as last heard from. */
     public static class ConnectedPlayer {
-        public String playerId;
-        public String playerName;
-        public String ipAddress;
-        public long lastHeartbeat;
-        public Socket connection;
+        public final int playerId;
+        public final String playerName;
+        public final String ipAddress;
+        public final long lastHeartbeat; // last message of any kind from this player
 
-        public ConnectedPlayer(String playerId, String playerName, String ipAddress, Socket connection) {
+        ConnectedPlayer(int playerId, String playerName, String ipAddress, long lastHeartbeat) {
             this.playerId = playerId;
             this.playerName = playerName;
             this.ipAddress = ipAddress;
-            this.connection = connection;
-            this.lastHeartbeat = System.currentTimeMillis();
+            this.lastHeartbeat = lastHeartbeat;
         }
     }
-
     public EnhancedLanDiscovery(Context context) {
         this.context = context;
         this.nsdManager = (NsdManager) context.getSystemService(Context.NSD_SERVICE);
         this.wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
         this.executorService = Executors.newCachedThreadPool();
         this.mainHandler = new Handler(Looper.getMainLooper());
+        if (nsdManager != null) {
+            this.nsdResolveQueue = new NsdResolveQueue(nsdManager, mainHandler, this::onNsdResolved);
+        }
     }
 
     // Public API methods
@@ -159,12 +210,22 @@ public class EnhancedLanDiscovery {
 
         Log.d(TAG, "Starting LAN discovery");
         isDiscovering = true;
+        joining = false;
 
         executorService.submit(() -> {
             try {
-                initializeBroadcastSocket();
+                openBeaconSocket();
                 startNsdDiscovery();
-                startPeriodicDiscovery();
+                executorService.submit(this::probeRoomLinks);
+                // One probe so hosts in their slow phase burst again; after that we only listen.
+                // Listen first: if rooms or another browser's probe turn up, our probe adds nothing.
+                Thread.sleep(DiscoveryThrottle.jitterMs(Config.DISCOVERY_PROBE_JITTER_MS));
+                if (isDiscovering && discoveryThrottle.shouldSend(lastGroupTrafficMs, System.currentTimeMillis())) {
+                    byte[] probe = new byte[RoomBeacon.HEADER_BYTES];
+                    sendBeacon(probe, RoomBeacon.writeProbe(probe));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (Exception e) {
                 Log.e(TAG, "Failed to start discovery", e);
                 notifyError("Failed to start discovery: " + e.getMessage());
@@ -181,89 +242,301 @@ public class EnhancedLanDiscovery {
         isDiscovering = false;
 
         stopNsdDiscovery();
-        closeBroadcastSocket();
+        closeBeaconSocketIfIdle();
         discoveredRooms.clear();
+        linkQuality.clear();
+        preconnectPool.closeAll();
 
         notifyDiscoveryStateChanged(false);
     }
 
-    public void hostRoom(String roomCode) {
-        if (isHosting) return;
+    public synchronized void hostRoom(String roomCode) {
+        if (localRoomId != RoomHost.NO_ROOM) return;
 
-        this.roomCode = roomCode;
-        this.isHosting = true;
+        RoomHost serving = roomHost();
+        long roomId = serving.openPlayedRoom(roomCode, localPlayerName);
+        if (roomId == RoomHost.NO_ROOM) {
+            notifyError("Failed to host room: this device already serves " + Config.MAX_HOSTED_ROOMS + " rooms");
+            return;
+        }
+        localRoomId = roomId;
 
-        executorService.submit(() -> {
-            try {
-                startHostServer();
-                registerNsdService();
-                startHeartbeatService();
+        openRoom(serving, roomId, roomCode, () -> {
+            int port = serving.port();
+            mainHandler.post(() -> {
+                if (listener != null) {
+                    listener.onRoomHosted(roomCode, port);
+                }
+            });
+        });
+    }
+
+    /**
+     * Hub: serves another room on this device's port, one we do not play in.
+     * Its rounds run by themselves under a {@link RoomReferee}. Returns
+     * false if this device already serves {@link Config#MAX_HOSTED_ROOMS},
+     * or is a player in someone else's room.
+     */
+    public synchronized boolean openHubRoom(String roomCode) {
+        // A client's only connection is to its host; it cannot serve rooms as well
+        if (client != null) return false;
+
+        RoomHost serving = roomHost();
+        long roomId = serving.openRoom(roomCode);
+        if (roomId == RoomHost.NO_ROOM) return false;
+
+        openRoom(serving, roomId, roomCode, () -> Log.d(TAG, "Hub room " + roomCode + " open on port " + serving.port()));
+        return true;
+    }
+
+    /** Hub: closes a room opened with {@link #openHubRoom}, dropping its players. */
+    public synchronized void closeHubRoom(String roomCode) {
+        RoomHost serving = host;
+        if (serving == null) return;
+
+        for (Map.Entry<Long, String> room : serving.rooms().entrySet()) {
+            if (serving.isRefereed(room.getKey()) && room.getValue().equals(roomCode)) {
+                unregisterNsdService(room.getKey());
+                serving.closeRoom(room.getKey());
+            }
+        }
+        if (serving.rooms().isEmpty()) {
+            stopHosting();
+        }
+    }
+
+    /** Codes of the hub rooms this device serves without playing in them. */
+    public List<String> getHubRoomCodes() {
+        List<String> codes = new ArrayList<>();
+        RoomHost serving = host;
+        if (serving == null) return codes;
+        for (Map.Entry<Long, String> room : serving.rooms().entrySet()) {
+            if (serving.isRefereed(room.getKey())) codes.add(room.getValue());
+        }
+        return codes;
+    }
+
+    // The host serving our rooms, created on the first one; started by openRoom
+    private synchronized RoomHost roomHost() {
+        if (host == null) {
+            host = new RoomHost(transport, localPlayerName, new RoomHost.Listener() {
+                @Override
+                public void onPlayerJoined(int playerId, String name) {
+                    notifyPlayerJoined(playerId, name);
+                }
 
-                mainHandler.post(() -> {
-                    if (listener != null) {
-                        listener.onRoomHosted(roomCode, hostPort);
+                @Override
+                public void onPlayerLeft(int playerId, String name) {
+                    notifyPlayerLeft(playerId, name);
+                }
+
+                @Override
+                public void onGameData(int senderId, String data) {
+                    notifyGameDataReceived(senderId, data);
+                }
+
+                @Override
+                public void onLog(boolean warning, String message, Throwable error) {
+                    if (warning) {
+                        Log.w(TAG, message, error);
+                    } else {
+                        Log.d(TAG, message);
                     }
-                });
+                }
+            });
+        }
+        return host;
+    }
 
+    // Starts the shared server and beacon on the first room, then registers the room with NSD
+    private void openRoom(RoomHost serving, long roomId, String roomCode, Runnable onOpen) {
+        executorService.submit(() -> {
+            try {
+                startHostingIfIdle(serving);
+                registerNsdService(roomId, roomCode, serving.port());
+                onOpen.run();
             } catch (Exception e) {
                 Log.e(TAG, "Failed to host room", e);
                 notifyError("Failed to host room: " + e.getMessage());
-                isHosting = false;
+                closeHostedRoom(serving, roomId);
             }
         });
     }
 
+    private synchronized void startHostingIfIdle(RoomHost serving) throws IOException {
+        if (serving != host || serving.isRunning()) return;
+
+        openBeaconSocket();
+        serving.start(0, beacons); // any available port
+    }
+
+    private synchronized void closeHostedRoom(RoomHost serving, long roomId) {
+        serving.closeRoom(roomId);
+        if (localRoomId == roomId) {
+            localRoomId = RoomHost.NO_ROOM;
+        }
+        if (serving == host && serving.rooms().isEmpty()) {
+            stopHosting();
+        }
+    }
+
     public void joinRoom(DiscoveredRoom room) {
+        if (LanProtocol.REFUSED_BAD_NAME.equals(LanProtocol.nameRefusal(localPlayerName))) {
+            notifyError("Names cannot contain '|'");
+            return;
+        }
+        joining = true;
         executorService.submit(() -> {
-            try {
-                Socket socket = new Socket();
-                socket.connect(new java.net.InetSocketAddress(room.hostAddress, room.hostPort), CONNECTION_TIMEOUT_MS);
-
-                // Send join request
-                String joinMessage = MSG_JOIN_REQUEST + "|" + localPlayerName + "|" + getLocalIpAddress();
-                socket.getOutputStream().write(joinMessage.getBytes());
-
-                // Wait for response
-                byte[] buffer = new byte[1024];
-                int bytesRead = socket.getInputStream().read(buffer);
-                String response = new String(buffer, 0, bytesRead);
-
-                if (response.startsWith(MSG_JOIN_RESPONSE)) {
-                    mainHandler.post(() -> {
-                        if (listener != null) {
-                            listener.onRoomJoined(room.roomCode, room.hostName);
-                        }
-                    });
-                } else {
-                    socket.close();
-                    throw new IOException("Join request rejected");
+            RoomClient joined = new RoomClient(transport, clientScheduler, new ClientEvents(room));
+            // A warm connection makes this a single write; the rest are no longer needed
+            Transport.Connection warm = preconnectPool.take(room.roomId, room.hostAddress, room.hostPort);
+            preconnectPool.closeAll();
+            if (warm != null) {
+                try {
+                    joinOver(joined, warm, room);
+                    return;
+                } catch (RoomClient.JoinDeniedException e) {
+                    // The host answered; asking again on a new connection would get the same answer
+                    Log.d(TAG, "Join to " + room.roomCode + " denied: " + e.reason);
+                    notifyError(refusalMessage(e.reason));
+                    closeQuietly(warm);
+                    joining = false;
+                    return;
+                } catch (IOException e) {
+                    // The host may have dropped it meanwhile; fall back to a fresh connection
+                    Log.d(TAG, "Warm connection to " + room.roomCode + " failed, reconnecting", e);
+                    closeQuietly(warm);
                 }
+            }
 
+            Transport.Connection connection = null;
+            try {
+                connection = transport.connect(room.hostAddress, room.hostPort, CONNECTION_TIMEOUT_MS);
+                joinOver(joined, connection, room);
+            } catch (RoomClient.JoinDeniedException e) {
+                Log.d(TAG, "Join to " + room.roomCode + " denied: " + e.reason);
+                notifyError(refusalMessage(e.reason));
+                closeQuietly(connection);
+                joining = false;
             } catch (Exception e) {
                 Log.e(TAG, "Failed to join room", e);
                 notifyError("Failed to join room: " + e.getMessage());
+                if (connection != null) {
+                    closeQuietly(connection);
+                }
+                joining = false;
             }
         });
     }
 
+    /**
+     * Asks for a seat on an open connection and, once seated, keeps reading
+     * host messages on it, resuming after drops, until the host is gone.
+     * Throws only before the host has seated us: {@link RoomClient.JoinDeniedException}
+     * when the host answered with a refusal, a plain IOException when the
+     * connection failed.
+     */
+    private void joinOver(RoomClient joined, Transport.Connection connection, DiscoveredRoom room) throws IOException {
+        // Before the join, so the seat's events find us in the room
+        joinedRoom = room;
+        client = joined;
+        try {
+            // The room ID picks our room among the several a hub may serve on this port
+            joined.join(connection, room.hostAddress, room.hostPort, room.roomId, localPlayerName, getLocalIpAddress());
+        } catch (IOException e) {
+            client = null;
+            joinedRoom = null;
+            throw e;
+        }
+        joined.run();
+    }
+
+    private String refusalMessage(String reason) {
+        switch (reason) {
+            case LanProtocol.REFUSED_ROOM_FULL:
+                return "This room is full";
+            case LanProtocol.REFUSED_NO_ROOM:
+                return "This room has closed";
+            case LanProtocol.REFUSED_NAME_TOO_LONG:
+                return "Names can be at most " + Config.MAX_PLAYER_NAME_LENGTH + " characters";
+            case LanProtocol.REFUSED_BAD_NAME:
+                return "Names cannot contain '|'";
+            case LanProtocol.REFUSED_NO_SESSION:
+                return "The host gave up our seat";
+            default:
+                return "Name " + localPlayerName + " is already taken in this room";
+        }
+    }
+
+    /**
+     * A time on the host's {@link ClockSync#monotonicMs()} clock, such as a
+     * round deadline, on ours. The host's clock is ours when hosting.
+     */
+    public long hostToLocalTime(long hostMs) {
+        RoomClient joined = client;
+        return joined != null ? joined.hostToLocalTime(hostMs) : hostMs;
+    }
+
     public void broadcastGameData(String data) {
-        if (!isHosting) return;
+        RoomHost serving = host;
+        if (serving == null) return;
+
+        serving.broadcast(localRoomId, data);
+    }
 
-        String message = MSG_GAME_DATA + "|" + data;
-        executorService.submit(() -> broadcastToClients(message));
+    /**
+     * Packs several game updates into a single frame so clients receive
+     * them with one write instead of one write per update.
+     */
+    public void broadcastGameData(List<String> data) {
+        RoomHost serving = host;
+        if (serving == null || data.isEmpty()) return;
+
+        serving.broadcast(localRoomId, data.toArray(new String[0]));
     }
 
     public void startGame() {
-        if (!isHosting) return;
+        RoomHost serving = host;
+        if (serving == null || !serving.hasRoom(localRoomId)) return;
 
-        executorService.submit(() -> {
-            broadcastToClients(MSG_GAME_START);
+        serving.startGame(localRoomId);
+        mainHandler.post(() -> {
+            if (listener != null) {
+                listener.onGameStarted();
+            }
+        });
+    }
 
-            mainHandler.post(() -> {
-                if (listener != null) {
-                    listener.onGameStarted();
-                }
-            });
+    /** Host: records who holds the potato, for snapshots sent to late joiners. */
+    public void setRoomHolder(int holder, int eventSeq) {
+        RoomHost serving = host;
+        if (serving != null) serving.setHolder(localRoomId, holder, eventSeq);
+    }
+
+    /** Host: the game played in our room, whose event log catches resumed players up. */
+    public void setRoomGame(GameStateMachine game) {
+        RoomHost serving = host;
+        if (serving != null) serving.setGame(localRoomId, game);
+    }
+
+    /** Host: a round began at startedAtMs on our clock; snapshots carry its seed and burn time. */
+    public void setRound(RoundSeed round, long startedAtMs) {
+        RoomHost serving = host;
+        if (serving != null) serving.setRound(localRoomId, round, startedAtMs);
+    }
+
+    /** Client: asks the host for a full snapshot, e.g. after losing game events. */
+    public void requestRoomSnapshot() {
+        RoomClient joined = client;
+        if (joined == null) return;
+
+        executorService.submit(() -> {
+            try {
+                joined.requestSnapshot();
+            } catch (IOException e) {
+                // The reading thread notices the dead connection and reports it
+                Log.w(TAG, "Failed to request room snapshot", e);
+            }
         });
     }
 
@@ -272,7 +545,47 @@ public class EnhancedLanDiscovery {
     }
 
     public List<ConnectedPlayer> getConnectedPlayers() {
-        return new ArrayList<>(connectedPlayers.values());
+        List<ConnectedPlayer> connected = new ArrayList<>();
+        RoomHost serving = host;
+        if (serving == null) return connected;
+        for (RoomHost.Seat seat : serving.seats(localRoomId)) {
+            connected.add(new ConnectedPlayer(seat.playerId(), seat.name(), seat.address(), seat.lastHeardMs()));
+        }
+        return connected;
+    }
+
+    /** Player ID to name for everyone in the room, host included, by ID. */
+    public Map<Integer, String> getRoster() {
+        RoomHost serving = host;
+        if (serving != null && localRoomId != RoomHost.NO_ROOM) return serving.roster(localRoomId);
+        RoomClient joined = client;
+        return joined != null ? joined.room().roster() : new LinkedHashMap<>();
+    }
+
+    /** Our own ID in the room: 0 when hosting, assigned by the host on join. */
+    public int getLocalPlayerId() {
+        if (localRoomId != RoomHost.NO_ROOM) return 0;
+        RoomClient joined = client;
+        return joined != null ? joined.playerId() : PlayerRegistry.NO_PLAYER;
+    }
+
+    /**
+     * Discovery answers and probes skipped by storm suppression since this
+     * instance was created; a high count means a crowded network.
+     */
+    public synchronized long getSuppressedDiscoveryResponses() {
+        RoomHost serving = host;
+        return suppressedByEarlierHosts + (serving != null ? serving.suppressedDiscoveryResponses() : 0);
+    }
+
+    /**
+     * Outbound queue depth per connected player in every room this host
+     * serves, keyed "ROOMCODE/name". A player whose queue keeps growing is
+     * the one lagging their room.
+     */
+    public Map<String, OutboundQueue.Stats> getOutboundStats() {
+        RoomHost serving = host;
+        return serving != null ? serving.outboundStats() : new LinkedHashMap<>();
     }
 
     /**
@@ -280,30 +593,20 @@ public class EnhancedLanDiscovery {
      * This method allows clients to communicate back to the host
      */
     public void sendMessageToHost(String message) {
-        if (isHosting) {
+        if (host != null) {
             Log.w(TAG, "Host cannot send message to itself");
             return;
         }
 
         Log.d(TAG, "📤 NETWORK SEND: " + message + " -> HOST");
+        RoomClient joined = client;
         executorService.submit(() -> {
             try {
-                // Find the host connection (first client connection for simplicity)
-                synchronized (clientConnections) {
-                    if (!clientConnections.isEmpty()) {
-                        Socket hostSocket = clientConnections.get(0);
-                        if (hostSocket != null && !hostSocket.isClosed()) {
-                            String fullMessage = MSG_GAME_DATA + "|" + message;
-                            hostSocket.getOutputStream().write(fullMessage.getBytes());
-                            hostSocket.getOutputStream().flush();
-                            Log.d(TAG, "✅ Message sent to host successfully");
-                        } else {
-                            throw new IOException("Host socket is closed");
-                        }
-                    } else {
-                        throw new IOException("No connection to host");
-                    }
+                if (joined == null) {
+                    throw new IOException("No connection to host");
                 }
+                joined.send(message);
+                Log.d(TAG, "✅ Message sent to host successfully");
             } catch (Exception e) {
                 Log.e(TAG, "❌ Failed to send message to host: " + e.getMessage());
                 notifyError("Failed to send to host: " + e.getMessage());
@@ -312,363 +615,357 @@ public class EnhancedLanDiscovery {
     }
 
     public void disconnect() {
-        stopDiscovery();
-
-        if (isHosting) {
-            stopHosting();
-        }
-
-        // Close all client connections
-        synchronized (clientConnections) {
-            for (Socket socket : clientConnections) {
-                try {
-                    socket.close();
-                } catch (IOException e) {
-                    Log.w(TAG, "Error closing client connection", e);
-                }
-            }
-            clientConnections.clear();
+        // First, so the client's reading thread does not try to resume its connection
+        RoomClient leaving = client;
+        client = null;
+        joinedRoom = null;
+        if (leaving != null) {
+            leaving.close();
         }
+        stopDiscovery();
+        stopHosting();
 
-        connectedPlayers.clear();
-
+        clientScheduler.shutdownNow();
         if (executorService != null && !executorService.isShutdown()) {
             executorService.shutdown();
         }
     }
 
-    // Private implementation methods
-    private void initializeBroadcastSocket() throws IOException {
-        if (broadcastSocket == null || broadcastSocket.isClosed()) {
-            broadcastSocket = new DatagramSocket(UDP_BROADCAST_PORT);
-            broadcastSocket.setBroadcast(true);
-            broadcastSocket.setSoTimeout(1000);
+    /** Client: the room's events, passed on to the listener while we are still in that room. */
+    private final class ClientEvents implements RoomClient.Listener {
+        private final DiscoveredRoom room;
+
+        ClientEvents(DiscoveredRoom room) {
+            this.room = room;
         }
-    }
 
-    private void closeBroadcastSocket() {
-        if (broadcastSocket != null && !broadcastSocket.isClosed()) {
-            broadcastSocket.close();
-            broadcastSocket = null;
+        @Override
+        public void onSeated(int playerId, boolean resumed) {
+            if (resumed) {
+                Log.d(TAG, "Resumed as player " + playerId + " in " + room.roomCode);
+                return;
+            }
+            mainHandler.post(() -> {
+                if (listener != null) {
+                    listener.onRoomJoined(room.roomCode, room.hostName);
+                }
+            });
         }
-    }
 
-    private void startPeriodicDiscovery() {
-        executorService.submit(() -> {
-            while (isDiscovering) {
-                try {
-                    sendBroadcastDiscovery();
-                    cleanupOldRooms();
-                    Thread.sleep(DISCOVERY_INTERVAL_MS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    Log.w(TAG, "Error in periodic discovery", e);
+        @Override
+        public void onSnapshot(RoomState.Snapshot snapshot) {
+            mainHandler.post(() -> {
+                if (listener != null) {
+                    listener.onRoomSnapshot(snapshot);
                 }
-            }
-        });
+            });
+        }
 
-        // Start listening for responses
-        executorService.submit(this::listenForBroadcastResponses);
-    }
+        @Override
+        public void onPlayerJoined(int playerId, String name) {
+            notifyPlayerJoined(playerId, name);
+        }
 
-    private void sendBroadcastDiscovery() throws IOException {
-        String message = MSG_DISCOVER_ROOMS;
-        byte[] data = message.getBytes();
+        @Override
+        public void onPlayerLeft(int playerId, String name) {
+            notifyPlayerLeft(playerId, name);
+        }
 
-        InetAddress broadcastAddress = InetAddress.getByName("255.255.255.255");
-        DatagramPacket packet = new DatagramPacket(data, data.length, broadcastAddress, UDP_BROADCAST_PORT);
+        @Override
+        public void onGameStarted() {
+            mainHandler.post(() -> {
+                if (listener != null) {
+                    listener.onGameStarted();
+                }
+            });
+        }
 
-        if (broadcastSocket != null && !broadcastSocket.isClosed()) {
-            broadcastSocket.send(packet);
+        @Override
+        public void onGameData(String data) {
+            notifyGameDataReceived(PlayerRegistry.NO_PLAYER, data);
         }
-    }
 
-    private void listenForBroadcastResponses() {
-        byte[] buffer = new byte[1024];
+        @Override
+        public void onDisconnected(String reason) {
+            if (joinedRoom != room) return; // disconnect() ran while we were resuming
+            joinedRoom = null;
+            client = null;
+            notifyError(reason);
+        }
+    }
+    // Private implementation methods
+    /**
+     * Joins the beacon group once, for browsing and hosting alike, and
+     * starts the single thread that listens on it. The multicast lock is
+     * taken first, or the Wi-Fi driver filters what the channel would hear.
+     */
+    private synchronized void openBeaconSocket() throws IOException {
+        if (beacons != null) return;
 
-        while (isDiscovering && broadcastSocket != null && !broadcastSocket.isClosed()) {
-            try {
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                broadcastSocket.receive(packet);
+        acquireMulticastLock();
+        Transport.Beacons channel;
+        try {
+            channel = transport.openBeacons();
+        } catch (IOException e) {
+            releaseMulticastLock();
+            throw e;
+        }
+        beacons = channel;
 
-                String message = new String(packet.getData(), 0, packet.getLength());
-                String senderAddress = packet.getAddress().getHostAddress();
+        executorService.submit(() -> listenForBeacons(channel));
+    }
 
-                processBroadcastMessage(message, senderAddress);
+    // Browsing and hosting share the channel; it closes once neither needs it
+    private synchronized void closeBeaconSocketIfIdle() {
+        if (isDiscovering || host != null) return;
 
-            } catch (java.net.SocketTimeoutException e) {
-                // Expected timeout, continue listening
-            } catch (Exception e) {
-                if (isDiscovering) {
-                    Log.w(TAG, "Error receiving broadcast", e);
-                }
+        if (beacons != null) {
+            try {
+                beacons.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing beacon channel", e);
             }
         }
+        beacons = null;
+        releaseMulticastLock();
     }
 
-    private void processBroadcastMessage(String message, String senderAddress) {
-        String[] parts = message.split("\\|");
-        if (parts.length < 1) return;
-
-        String messageType = parts[0];
-
-        switch (messageType) {
-            case MSG_DISCOVER_ROOMS:
-                if (isHosting) {
-                    respondToDiscovery(senderAddress);
-                }
-                break;
-
-            case MSG_ROOM_RESPONSE:
-                if (parts.length >= 5) {
-                    String roomCode = parts[1];
-                    String hostName = parts[2];
-                    int hostPort = Integer.parseInt(parts[3]);
-                    int playerCount = Integer.parseInt(parts[4]);
-
-                    DiscoveredRoom room = new DiscoveredRoom(roomCode, hostName, senderAddress, hostPort, playerCount);
-                    discoveredRooms.put(roomCode, room);
-
-                    notifyRoomsUpdate();
-                }
-                break;
+    private void acquireMulticastLock() {
+        if (wifiManager == null) return;
+        if (multicastLock == null) {
+            multicastLock = wifiManager.createMulticastLock("tatoaalu-beacons");
+            multicastLock.setReferenceCounted(false);
+        }
+        if (!multicastLock.isHeld()) {
+            multicastLock.acquire();
         }
     }
 
-    private void respondToDiscovery(String requesterAddress) {
-        try {
-            String response = MSG_ROOM_RESPONSE + "|" + roomCode + "|" + localPlayerName + "|" + hostPort + "|" + connectedPlayers.size();
-            byte[] data = response.getBytes();
+    private void releaseMulticastLock() {
+        if (multicastLock != null && multicastLock.isHeld()) {
+            multicastLock.release();
+        }
+    }
 
-            InetAddress requesterInet = InetAddress.getByName(requesterAddress);
-            DatagramPacket packet = new DatagramPacket(data, data.length, requesterInet, UDP_BROADCAST_PORT);
+    private void sendBeacon(byte[] data, int length) throws IOException {
+        Transport.Beacons channel = beacons;
+        if (channel != null) {
+            channel.broadcast(data, length);
+        }
+    }
 
-            if (broadcastSocket != null && !broadcastSocket.isClosed()) {
-                broadcastSocket.send(packet);
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to respond to discovery", e);
+    private void sendDatagram(byte[] data, int length, String address) throws IOException {
+        Transport.Beacons channel = beacons;
+        if (channel != null) {
+            channel.sendTo(data, length, address);
         }
     }
 
-    private void startHostServer() throws IOException {
-        hostServerSocket = new ServerSocket(0); // Use any available port
-        hostPort = hostServerSocket.getLocalPort();
+    /**
+     * Browser side: pings every listed host over the beacon channel, a few
+     * times quickly once it appears and then slowly, so each room carries a
+     * measured RTT and loss rate. Rooms whose beacons stopped are dropped
+     * here too, since the beacon listener only wakes when something arrives.
+     */
+    private void probeRoomLinks() {
+        byte[] ping = new byte[RoomBeacon.PING_BYTES];
 
-        Log.d(TAG, "Host server started on port " + hostPort);
+        while (isDiscovering) {
+            long now = System.currentTimeMillis();
+            for (DiscoveredRoom room : discoveredRooms.values()) {
+                LinkQuality quality = linkQuality.computeIfAbsent(room.roomId, id -> new LinkQuality());
+                if (!quality.isProbeDue(now)) continue;
 
-        // Accept incoming connections
-        executorService.submit(() -> {
-            while (isHosting && !hostServerSocket.isClosed()) {
+                int seq = quality.nextProbe(now);
+                int length = RoomBeacon.writePing(ping, RoomBeacon.TYPE_PING, room.roomId, seq, System.nanoTime());
                 try {
-                    Socket clientSocket = hostServerSocket.accept();
-                    handleNewConnection(clientSocket);
+                    sendDatagram(ping, length, room.hostAddress);
                 } catch (IOException e) {
-                    if (isHosting) {
-                        Log.w(TAG, "Error accepting connection", e);
-                    }
+                    Log.w(TAG, "Error probing room " + room.roomCode, e);
                 }
+                reportLink(room.roomId, quality); // sending may have judged an older probe lost
             }
-        });
-    }
-
-    private void handleNewConnection(Socket clientSocket) {
-        executorService.submit(() -> {
+            cleanupOldRooms();
+            maintainPreconnects(now);
             try {
-                // Read join request
-                byte[] buffer = new byte[1024];
-                int bytesRead = clientSocket.getInputStream().read(buffer);
-                String message = new String(buffer, 0, bytesRead);
-
-                String[] parts = message.split("\\|");
-                if (parts.length >= 3 && parts[0].equals(MSG_JOIN_REQUEST)) {
-                    String playerName = parts[1];
-                    String playerAddress = parts[2];
-                    String playerId = playerAddress + "_" + playerName;
-
-                    // Accept the connection
-                    String response = MSG_JOIN_RESPONSE + "|OK";
-                    clientSocket.getOutputStream().write(response.getBytes());
-
-                    // Add to connected players
-                    ConnectedPlayer player = new ConnectedPlayer(playerId, playerName, playerAddress, clientSocket);
-                    connectedPlayers.put(playerId, player);
-                    clientConnections.add(clientSocket);
-
-                    Log.d(TAG, "Player joined: " + playerName);
-
-                    notifyPlayerJoined(playerId, playerName);
-                    broadcastPlayerUpdate();
-
-                    // Handle ongoing communication
-                    handleClientCommunication(clientSocket, player);
-                }
-            } catch (Exception e) {
-                Log.w(TAG, "Error handling new connection", e);
-                try {
-                    clientSocket.close();
-                } catch (IOException ioException) {
-                    Log.w(TAG, "Error closing client socket", ioException);
-                }
+                Thread.sleep(Config.RTT_PROBE_BURST_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
             }
-        });
+        }
     }
 
-    private void handleClientCommunication(Socket clientSocket, ConnectedPlayer player) {
-        byte[] buffer = new byte[1024];
-
-        while (!clientSocket.isClosed() && isHosting) {
-            try {
-                int bytesRead = clientSocket.getInputStream().read(buffer);
-                if (bytesRead <= 0) break;
-
-                String message = new String(buffer, 0, bytesRead);
-                processClientMessage(message, player);
+    // Keeps warm connections to the best joinable rooms and closes the rest
+    private void maintainPreconnects(long now) {
+        if (joining) return;
 
-            } catch (IOException e) {
-                Log.d(TAG, "Client disconnected: " + player.playerName);
-                break;
-            }
+        List<DiscoveredRoom> likely = new ArrayList<>();
+        for (DiscoveredRoom room : discoveredRooms.values()) {
+            if (room.isJoinable) likely.add(room);
+        }
+        likely.sort((a, b) -> Long.compare(a.qualityScore(), b.qualityScore()));
+        if (likely.size() > Config.PRECONNECT_MAX_ROOMS) {
+            likely = likely.subList(0, Config.PRECONNECT_MAX_ROOMS);
         }
 
-        // Clean up disconnected client
-        connectedPlayers.remove(player.playerId);
-        clientConnections.remove(clientSocket);
-        notifyPlayerLeft(player.playerId, player.playerName);
-        broadcastPlayerUpdate();
+        List<Long> likelyIds = new ArrayList<>(likely.size());
+        for (DiscoveredRoom room : likely) {
+            likelyIds.add(room.roomId);
+        }
+        preconnectPool.retainOnly(likelyIds, now);
 
-        try {
-            clientSocket.close();
-        } catch (IOException e) {
-            Log.w(TAG, "Error closing client socket", e);
+        for (DiscoveredRoom room : likely) {
+            if (preconnectPool.reserve(room.roomId, now)) {
+                executorService.submit(() -> preconnectPool.connect(room.roomId, room.hostAddress, room.hostPort));
+            }
         }
     }
 
-    private void processClientMessage(String message, ConnectedPlayer player) {
-        String[] parts = message.split("\\|");
-        if (parts.length < 1) return;
-
-        String messageType = parts[0];
-
-        switch (messageType) {
-            case MSG_HEARTBEAT:
-                player.lastHeartbeat = System.currentTimeMillis();
-                break;
-
-            case MSG_GAME_DATA:
-                if (parts.length >= 2) {
-                    String gameData = parts[1];
-                    notifyGameDataReceived(gameData);
-                }
-                break;
+    // Re-publishes the room only when the estimate moved enough to show or re-rank
+    private void reportLink(long roomId, LinkQuality quality) {
+        DiscoveredRoom room = discoveredRooms.get(roomId);
+        if (room == null) return;
+
+        int rtt = quality.rttMs();
+        int loss = quality.lossPercent();
+        boolean levelChanged = LinkQuality.signalLevel(rtt, loss)
+                != LinkQuality.signalLevel(room.rttMs, room.lossPercent);
+        boolean rttMoved = room.rttMs == LinkQuality.UNKNOWN
+                ? rtt != LinkQuality.UNKNOWN
+                : Math.abs(rtt - room.rttMs) >= Math.max(Config.RTT_REPORT_MIN_CHANGE_MS, room.rttMs / 5);
+        if (!levelChanged && !rttMoved) return;
+
+        DiscoveredRoom updated = room.withLink(rtt, loss);
+        if (discoveredRooms.replace(roomId, room, updated)) {
+            notifyRoomChanged(false, updated);
         }
     }
 
-    private void broadcastToClients(String message) {
-        synchronized (clientConnections) {
-            List<Socket> toRemove = new ArrayList<>();
+    /**
+     * One datagram and one parser serve the whole loop. A room already listed
+     * is refreshed from the parsed primitives alone; strings are only built
+     * for rooms seen for the first time. Ends once the channel is closed.
+     */
+    private void listenForBeacons(Transport.Beacons channel) {
+        Transport.Datagram datagram = new Transport.Datagram(RoomBeacon.MAX_COMBINED_BYTES);
+        RoomBeacon beacon = new RoomBeacon();
 
-            for (Socket socket : clientConnections) {
-                try {
-                    socket.getOutputStream().write(message.getBytes());
-                } catch (IOException e) {
-                    Log.w(TAG, "Failed to broadcast to client", e);
-                    toRemove.add(socket);
+        while (isDiscovering || host != null) {
+            try {
+                channel.receive(datagram);
+                if (beacon.parse(datagram.data, 0, datagram.length)) {
+                    processBeacon(beacon, datagram);
                 }
+            } catch (SocketException e) {
+                if (beacons == channel) {
+                    Log.w(TAG, "Beacon channel failed", e);
+                }
+                return;
+            } catch (Exception e) {
+                Log.w(TAG, "Error receiving beacon", e);
             }
-
-            // Remove failed connections
-            clientConnections.removeAll(toRemove);
         }
     }
 
-    private void broadcastPlayerUpdate() {
-        StringBuilder playerList = new StringBuilder(MSG_PLAYER_UPDATE);
-        for (ConnectedPlayer player : connectedPlayers.values()) {
-            playerList.append("|").append(player.playerName);
-        }
-        executorService.submit(() -> broadcastToClients(playerList.toString()));
-    }
-
-    private void startHeartbeatService() {
-        executorService.submit(() -> {
-            while (isHosting) {
-                try {
-                    broadcastToClients(MSG_HEARTBEAT);
-                    cleanupInactivePlayers();
-                    Thread.sleep(HEARTBEAT_INTERVAL_MS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                } catch (Exception e) {
-                    Log.w(TAG, "Error in heartbeat service", e);
+    private void processBeacon(RoomBeacon beacon, Transport.Datagram datagram) throws IOException {
+        RoomHost serving = host;
+        switch (beacon.type) {
+            case RoomBeacon.TYPE_PROBE:
+                lastGroupTrafficMs = System.currentTimeMillis();
+                if (serving != null) {
+                    serving.onBeacon(beacon, datagram);
                 }
-            }
-        });
-    }
+                break;
 
-    private void cleanupInactivePlayers() {
-        long now = System.currentTimeMillis();
-        List<String> toRemove = new ArrayList<>();
+            case RoomBeacon.TYPE_ROOM:
+            case RoomBeacon.TYPE_ROOMS:
+                lastGroupTrafficMs = System.currentTimeMillis();
+                if (!isDiscovering) break;
+                do {
+                    if (!isOwnRoom(beacon.roomId)) {
+                        onRoomBeacon(beacon, datagram.senderAddress);
+                    }
+                } while (beacon.nextRoom());
+                break;
 
-        for (ConnectedPlayer player : connectedPlayers.values()) {
-            if (now - player.lastHeartbeat > HEARTBEAT_INTERVAL_MS * 3) {
-                toRemove.add(player.playerId);
-            }
-        }
+            case RoomBeacon.TYPE_PING:
+                // Our host echoes pings for its rooms
+                if (serving != null) {
+                    serving.onBeacon(beacon, datagram);
+                }
+                break;
 
-        for (String playerId : toRemove) {
-            ConnectedPlayer player = connectedPlayers.remove(playerId);
-            if (player != null) {
-                notifyPlayerLeft(playerId, player.playerName);
-                try {
-                    player.connection.close();
-                } catch (IOException e) {
-                    Log.w(TAG, "Error closing inactive player connection", e);
+            case RoomBeacon.TYPE_PONG:
+                LinkQuality quality = linkQuality.get(beacon.roomId);
+                if (isDiscovering && quality != null) {
+                    quality.onReply(beacon.probeSeq, System.nanoTime() - beacon.probeSentNanos);
+                    reportLink(beacon.roomId, quality);
                 }
-            }
+                break;
         }
+    }
 
-        if (!toRemove.isEmpty()) {
-            broadcastPlayerUpdate();
+    // Rooms we serve ourselves stay out of the browser
+    private boolean isOwnRoom(long roomId) {
+        RoomHost serving = host;
+        return serving != null && serving.hasRoom(roomId);
+    }
+    private void onRoomBeacon(RoomBeacon beacon, String sender) {
+        DiscoveredRoom known = discoveredRooms.get(beacon.roomId);
+        if (known != null && known.playerCount == beacon.playerCount && known.hostPort == beacon.port
+                && known.maxPlayers == beacon.maxPlayers) {
+            known.lastSeen = System.currentTimeMillis();
+            return;
         }
+
+        // New or changed: listeners get a fresh object rather than one mutated under them
+        DiscoveredRoom room = new DiscoveredRoom(beacon.roomId,
+                known != null ? known.roomCode : beacon.roomCode(),
+                known != null && !known.hostName.startsWith("NSD_") ? known.hostName : beacon.hostName(),
+                known != null ? known.hostAddress : sender,
+                beacon.port, beacon.playerCount, beacon.maxPlayers, beacon.gameMode, beacon.capabilities);
+        if (known != null) {
+            room.rttMs = known.rttMs;
+            room.lossPercent = known.lossPercent;
+        }
+        notifyRoomChanged(discoveredRooms.put(beacon.roomId, room) == null, room);
     }
 
     private void cleanupOldRooms() {
         long now = System.currentTimeMillis();
-        List<String> toRemove = new ArrayList<>();
 
-        for (Map.Entry<String, DiscoveredRoom> entry : discoveredRooms.entrySet()) {
-            if (now - entry.getValue().lastSeen > DISCOVERY_INTERVAL_MS * 3) {
-                toRemove.add(entry.getKey());
+        for (Iterator<DiscoveredRoom> it = discoveredRooms.values().iterator(); it.hasNext(); ) {
+            DiscoveredRoom room = it.next();
+            if (now - room.lastSeen > Config.BEACON_EXPIRY_MS) {
+                it.remove();
+                linkQuality.remove(room.roomId);
+                notifyRoomRemoved(room.roomId);
             }
         }
-
-        for (String roomCode : toRemove) {
-            discoveredRooms.remove(roomCode);
-        }
-
-        if (!toRemove.isEmpty()) {
-            notifyRoomsUpdate();
-        }
     }
 
-    private void stopHosting() {
-        isHosting = false;
-
+    private static void closeQuietly(Transport.Connection connection) {
         try {
-            if (hostServerSocket != null && !hostServerSocket.isClosed()) {
-                hostServerSocket.close();
-            }
+            connection.close();
         } catch (IOException e) {
-            Log.w(TAG, "Error closing host server", e);
+            Log.w(TAG, "Error closing connection", e);
         }
-
-        unregisterNsdService();
     }
 
+    private synchronized void stopHosting() {
+        RoomHost serving = host;
+        host = null;
+        localRoomId = RoomHost.NO_ROOM;
+        if (serving == null) return;
+
+        for (Long roomId : nsdRegistrations.keySet()) {
+            unregisterNsdService(roomId);
+        }
+        suppressedByEarlierHosts += serving.suppressedDiscoveryResponses();
+        serving.close();
+        closeBeaconSocketIfIdle();
+    }
     // NSD (Network Service Discovery) methods
     private void startNsdDiscovery() {
         if (nsdManager == null) return;
@@ -697,14 +994,24 @@ public class EnhancedLanDiscovery {
             @Override
             public void onServiceFound(NsdServiceInfo serviceInfo) {
                 Log.d(TAG, "NSD service found: " + serviceInfo.getServiceName());
-                nsdManager.resolveService(serviceInfo, createResolveListener());
+                // Already listed from a beacon, which says more than a resolve would
+                DiscoveredRoom known = discoveredRooms.get(nsdRoomId(serviceInfo.getServiceName()));
+                if (known != null) {
+                    known.lastSeen = System.currentTimeMillis();
+                    return;
+                }
+                nsdResolveQueue.enqueue(serviceInfo);
             }
 
             @Override
             public void onServiceLost(NsdServiceInfo serviceInfo) {
                 Log.d(TAG, "NSD service lost: " + serviceInfo.getServiceName());
-                discoveredRooms.remove(serviceInfo.getServiceName());
-                notifyRoomsUpdate();
+                nsdResolveQueue.forget(serviceInfo.getServiceName());
+                long roomId = nsdRoomId(serviceInfo.getServiceName());
+                linkQuality.remove(roomId);
+                if (discoveredRooms.remove(roomId) != null) {
+                    notifyRoomRemoved(roomId);
+                }
             }
         };
 
@@ -720,39 +1027,67 @@ public class EnhancedLanDiscovery {
             }
             discoveryListener = null;
         }
+        if (nsdResolveQueue != null) {
+            nsdResolveQueue.cancelPending();
+        }
     }
 
-    private NsdManager.ResolveListener createResolveListener() {
-        return new NsdManager.ResolveListener() {
-            @Override
-            public void onResolveFailed(NsdServiceInfo serviceInfo, int errorCode) {
-                Log.w(TAG, "NSD resolve failed for " + serviceInfo.getServiceName() + ": " + errorCode);
-            }
+    // Main thread, from the resolve queue; merges into the same map as beacons
+    private void onNsdResolved(String serviceName, String hostAddress, int hostPort) {
+        Log.d(TAG, "NSD service resolved: " + serviceName);
+        if (!isDiscovering) return;
 
-            @Override
-            public void onServiceResolved(NsdServiceInfo serviceInfo) {
-                Log.d(TAG, "NSD service resolved: " + serviceInfo.getServiceName());
+        long roomId = nsdRoomId(serviceName);
+        if (isOwnRoom(roomId)) return;
 
-                String roomCode = serviceInfo.getServiceName().replace(SERVICE_NAME + "_", "");
-                String hostAddress = serviceInfo.getHost().getHostAddress();
-                int hostPort = serviceInfo.getPort();
+        // Beacons carry more than NSD does; keep their entry and just mark it seen
+        DiscoveredRoom known = discoveredRooms.get(roomId);
+        if (known != null) {
+            known.lastSeen = System.currentTimeMillis();
+            return;
+        }
 
-                DiscoveredRoom room = new DiscoveredRoom(roomCode, "NSD_" + roomCode, hostAddress, hostPort, 0);
-                discoveredRooms.put(roomCode, room);
-                notifyRoomsUpdate();
+        String roomCode = nsdRoomCode(serviceName);
+        DiscoveredRoom room = new DiscoveredRoom(roomId, roomCode, "NSD_" + roomCode, hostAddress, hostPort, 0);
+        notifyRoomChanged(discoveredRooms.put(roomId, room) == null, room);
+    }
+
+    /**
+     * NSD names end in the room ID, so a room found by NSD and by beacon is
+     * one entry. Names without it (older hosts, or renamed on a clash) fall
+     * back to an ID derived from the whole name.
+     */
+    static long nsdRoomId(String serviceName) {
+        int split = serviceName.lastIndexOf('_');
+        if (split > SERVICE_NAME.length()) {
+            try {
+                return Long.parseUnsignedLong(serviceName.substring(split + 1), 16);
+            } catch (NumberFormatException ignored) {
+                // Not ours; hash the name below
             }
-        };
+        }
+        long hash = 1125899906842597L;
+        for (int i = 0; i < serviceName.length(); i++) {
+            hash = 31 * hash + serviceName.charAt(i);
+        }
+        return hash;
+    }
+
+    static String nsdRoomCode(String serviceName) {
+        String code = serviceName.replace(SERVICE_NAME + "_", "");
+        int split = code.lastIndexOf('_');
+        return split > 0 ? code.substring(0, split) : code;
     }
 
-    private void registerNsdService() {
+    private void registerNsdService(long roomId, String roomCode, int port) {
         if (nsdManager == null || roomCode == null) return;
 
         NsdServiceInfo serviceInfo = new NsdServiceInfo();
-        serviceInfo.setServiceName(SERVICE_NAME + "_" + roomCode);
+        serviceInfo.setServiceName(SERVICE_NAME + "_" + roomCode + "_" + Long.toHexString(roomId));
         serviceInfo.setServiceType(SERVICE_TYPE);
-        serviceInfo.setPort(hostPort);
+        serviceInfo.setPort(port);
 
-        registrationListener = new NsdManager.RegistrationListener() {
+        NsdManager.RegistrationListener registration = new NsdManager.RegistrationListener() {
             @Override
             public void onRegistrationFailed(NsdServiceInfo serviceInfo, int errorCode) {
                 Log.e(TAG, "NSD registration failed: " + errorCode);
@@ -773,21 +1108,21 @@ public class EnhancedLanDiscovery {
                 Log.d(TAG, "NSD service unregistered: " + serviceInfo.getServiceName());
             }
         };
+        nsdRegistrations.put(roomId, registration);
 
-        nsdManager.registerService(serviceInfo, NsdManager.PROTOCOL_DNS_SD, registrationListener);
+        nsdManager.registerService(serviceInfo, NsdManager.PROTOCOL_DNS_SD, registration);
     }
 
-    private void unregisterNsdService() {
-        if (nsdManager != null && registrationListener != null) {
+    private void unregisterNsdService(long roomId) {
+        NsdManager.RegistrationListener registration = nsdRegistrations.remove(roomId);
+        if (nsdManager != null && registration != null) {
             try {
-                nsdManager.unregisterService(registrationListener);
+                nsdManager.unregisterService(registration);
             } catch (Exception e) {
                 Log.w(TAG, "Error unregistering NSD service", e);
             }
-            registrationListener = null;
         }
     }
-
     // Utility methods
     private String getLocalIpAddress() {
         try {
@@ -805,15 +1140,26 @@ public class EnhancedLanDiscovery {
     }
 
     // Notification methods
-    private void notifyRoomsUpdate() {
+    private void notifyRoomChanged(boolean added, DiscoveredRoom room) {
+        mainHandler.post(() -> {
+            if (listener == null) return;
+            if (added) {
+                listener.onRoomAdded(room);
+            } else {
+                listener.onRoomUpdated(room);
+            }
+        });
+    }
+
+    private void notifyRoomRemoved(long roomId) {
         mainHandler.post(() -> {
             if (listener != null) {
-                listener.onRoomsDiscovered(getDiscoveredRooms());
+                listener.onRoomRemoved(roomId);
             }
         });
     }
 
-    private void notifyPlayerJoined(String playerId, String playerName) {
+    private void notifyPlayerJoined(int playerId, String playerName) {
         mainHandler.post(() -> {
             if (listener != null) {
                 listener.onPlayerJoined(playerId, playerName);
@@ -821,7 +1167,7 @@ public class EnhancedLanDiscovery {
         });
     }
 
-    private void notifyPlayerLeft(String playerId, String playerName) {
+    private void notifyPlayerLeft(int playerId, String playerName) {
         mainHandler.post(() -> {
             if (listener != null) {
                 listener.onPlayerLeft(playerId, playerName);
@@ -829,10 +1175,10 @@ public class EnhancedLanDiscovery {
         });
     }
 
-    private void notifyGameDataReceived(String data) {
+    private void notifyGameDataReceived(int senderId, String data) {
         mainHandler.post(() -> {
             if (listener != null) {
-                listener.onGameDataReceived(data);
+                listener.onGameDataReceived(senderId, data);
             }
         });
     }
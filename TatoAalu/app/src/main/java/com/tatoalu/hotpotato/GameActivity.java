@@ -18,6 +18,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * GameActivity - Clean Hot Potato Game Implementation
@@ -32,6 +33,11 @@ public class GameActivity extends AppCompatActivity {
     private Button startGameButton;
     private TextView tapInstructionText;
     private ImageView flyingPotato;
+    // Rooms bigger than the four corner seats are drawn on rings instead
+    private GameView ringView;
+    private boolean ringViewReady = false;
+    private long shownCountdownSec = -1;
+    private static final int CORNER_SEATS = 4;
 
     // Game State
     private String mode = "local";
@@ -45,11 +51,20 @@ public class GameActivity extends AppCompatActivity {
     private Player currentPlayerWithPotato = null;
     private int currentHolderIndex = 0;
 
+    // Client-side pass prediction; the host's PASS / PASS_REJECT reconcile it
+    private PassPredictor passPredictor;
+
+    // Host: sequences and validates every pass. Clients: apply those events in order, once each
+    private final GameStateMachine gameState = new GameStateMachine();
+    private final GameStateMachine.Replica replica = new GameStateMachine.Replica();
+
     // Audio
     private ToneGenerator toneGenerator;
+    // Multiplayer round music; track and stop time come from the round seed
+    private MusicManager musicManager;
 
     // Touch handling
-    private View[] playerTouchZones = new View[4];
+    private View[] playerTouchZones = new View[CORNER_SEATS];
     private long lastTouchTime = 0;
     private static final long TOUCH_COOLDOWN = 300;
 
@@ -87,6 +102,7 @@ public class GameActivity extends AppCompatActivity {
         startGameButton = findViewById(R.id.startGameButton);
         flyingPotato = findViewById(R.id.flyingPotato);
         tapInstructionText = findViewById(R.id.tapInstructionText);
+        ringView = findViewById(R.id.gameView);
     }
 
     private void initializeAudio() {
@@ -125,8 +141,9 @@ public class GameActivity extends AppCompatActivity {
             boolean hasTransferredConnection = intent.getBooleanExtra("hasTransferredConnection", false);
 
             if (useEnhancedLan && mode.equals("multiplayer")) {
-                // Create new multiplayer manager
-                lanMultiplayerManager = new LanMultiplayerManager(this);
+                // The process-wide session: the browser's connection, and ours
+                // again after a configuration change
+                lanMultiplayerManager = MultiplayerService.session(this);
 
                 // Set player name BEFORE setting up listeners
                 if (playerName != null && !playerName.trim().isEmpty()) {
@@ -201,11 +218,13 @@ public class GameActivity extends AppCompatActivity {
         if (hostPlayerName != null && !hostPlayerName.trim().isEmpty()) {
             Player hostPlayer = new Player(hostPlayerName.trim());
             hostPlayer.layoutPosition = 0;
+            hostPlayer.playerId = 0; // the host always holds slot 0
             activePlayers.add(hostPlayer);
             playerNames.add(hostPlayerName.trim());
         } else {
             Player hostPlayer = new Player("Host");
             hostPlayer.layoutPosition = 0;
+            hostPlayer.playerId = 0;
             activePlayers.add(hostPlayer);
             playerNames.add("Host");
         }
@@ -289,6 +308,9 @@ public class GameActivity extends AppCompatActivity {
         if (clientPlayerName != null && !clientPlayerName.trim().isEmpty()) {
             Player clientPlayer = new Player(clientPlayerName.trim());
             clientPlayer.layoutPosition = 0;
+            // Known already if the browser joined; otherwise the join snapshot fills it in
+            clientPlayer.playerId = lanMultiplayerManager != null
+                    ? lanMultiplayerManager.getLocalPlayerId() : PlayerRegistry.NO_PLAYER;
             activePlayers.add(clientPlayer);
             playerNames.add(clientPlayerName.trim());
         } else {
@@ -321,7 +343,9 @@ public class GameActivity extends AppCompatActivity {
 
             // Check if we already joined via RoomBrowserActivity
             if (lanMultiplayerManager.isConnectedToRoom()) {
+                // The join snapshot went to the browser screen; fetch the room again
                 Log.d(TAG, "📱 Already connected to room: " + roomCode);
+                lanMultiplayerManager.requestRoomSnapshot();
             } else {
                 Log.d(TAG, "📱 Ready to join room: " + roomCode);
             }
@@ -337,39 +361,22 @@ public class GameActivity extends AppCompatActivity {
             return;
         }
 
-        // Broadcast player list to all clients on background thread
+        // Clients already hold the roster: a snapshot when they joined, deltas since
         if (lanMultiplayerManager != null) {
-            StringBuilder namesList = new StringBuilder();
-            for (int i = 0; i < activePlayers.size(); i++) {
-                if (i > 0) namesList.append(",");
-                namesList.append(activePlayers.get(i).name);
-            }
-            String playerListMessage = namesList.toString();
-            Log.d(TAG, "📡 Broadcasting player list: " + playerListMessage);
+            startHotPotatoGame();
+            RoundSeed round = RoundSeed.newGame();
+            applyRound(round, 0);
+            Log.d(TAG, "📡 Broadcasting START_GAME to clients");
 
-            // Move network operation to background thread
             runNetworkOperation(() -> {
                 try {
-                    lanMultiplayerManager.broadcastGameData("PLAYER_NAMES:" + playerListMessage);
-                    Log.d(TAG, "✅ Successfully broadcast player names");
-
-                    // Start game after short delay on UI thread
-                    uiHandler.postDelayed(() -> {
-                        startHotPotatoGame();
-                        Log.d(TAG, "📡 Broadcasting START_GAME to clients");
-
-                        // Another background thread for START_GAME broadcast
-                        runNetworkOperation(() -> {
-                            try {
-                                lanMultiplayerManager.broadcastGameData("START_GAME");
-                                Log.d(TAG, "✅ Successfully broadcast START_GAME");
-                            } catch (Exception e) {
-                                Log.e(TAG, "❌ Failed to broadcast START_GAME: " + e.getMessage());
-                            }
-                        });
-                    }, 300);
+                    // Seed first so clients can derive the round as soon as it starts
+                    lanMultiplayerManager.broadcastRoundSeed(round);
+                    lanMultiplayerManager.broadcastGameData("START_GAME");
+                    uiHandler.post(this::showRoundDeadline);
+                    Log.d(TAG, "✅ Successfully broadcast START_GAME");
                 } catch (Exception e) {
-                    Log.e(TAG, "❌ Failed to broadcast player names: " + e.getMessage());
+                    Log.e(TAG, "❌ Failed to broadcast START_GAME: " + e.getMessage());
                     uiHandler.post(() -> {
                         if (playerStatusTextView != null) {
                             playerStatusTextView.setText("❌ Failed to start multiplayer: " + e.getMessage());
@@ -384,6 +391,16 @@ public class GameActivity extends AppCompatActivity {
         startGameButton.setVisibility(View.GONE);
     }
 
+    // Drops a broken session for a fresh one; its listener goes first so
+    // the old session's disconnect does not trigger another retry
+    private void restartSession() {
+        lanMultiplayerManager.setListener(null);
+        MultiplayerService.endSession(this);
+        lanMultiplayerManager = MultiplayerService.session(this);
+        MultiplayerService.start(this);
+        setupMultiplayerListeners();
+    }
+
     private void setupMultiplayerListeners() {
         if (lanMultiplayerManager == null) return;
 
@@ -419,41 +436,54 @@ public class GameActivity extends AppCompatActivity {
             }
 
             @Override
-            public void onPlayerJoined(String playerId, String playerName) {
+            public void onPlayerJoined(int playerId, String playerName) {
                 uiHandler.post(() -> {
                     Log.d(TAG, "🎮 Player joined: " + playerName);
 
                     // Add player if not already exists
-                    boolean playerExists = false;
-                    for (Player player : activePlayers) {
-                        if (player.name.equals(playerName)) {
-                            playerExists = true;
-                            break;
-                        }
-                    }
-
-                    if (!playerExists) {
+                    if (indexOfPlayer(playerId) < 0) {
                         Player newPlayer = new Player(playerName);
                         newPlayer.layoutPosition = activePlayers.size();
+                        newPlayer.playerId = playerId;
                         activePlayers.add(newPlayer);
                         playerNames.add(playerName);
 
                         setupPlayerPositions();
+                        gameState.setPlayers(seatedPlayerIds());
 
                         updateHostUI();
                         Log.d(TAG, "✅ Total players: " + activePlayers.size());
                     }
+                });
+            }
 
             @Override
-            public void onPlayerLeft(String playerId, String playerName) {
+            public void onPlayerLeft(int playerId, String playerName) {
                 uiHandler.post(() -> {
                     Log.d(TAG, "👋 Player left: " + playerName);
-                    activePlayers.removeIf(player -> player.name.equals(playerName));
+                    activePlayers.removeIf(player -> player.playerId == playerId);
                     playerNames.remove(playerName);
+                    GameStateMachine.Event handOff = gameState.setPlayers(seatedPlayerIds());
+                    // Positions shift; the host also moves the potato on if its holder left
+                    currentHolderIndex = activePlayers.indexOf(currentPlayerWithPotato);
+                    if (gameInProgress && isMultiplayerHost()) {
+                        showHolder(indexOfPlayer(gameState.holder()));
+                        if (handOff != null) {
+                            // Sequenced like any pass, so clients' replicas follow the potato
+                            lanMultiplayerManager.updateRoomHolder(gameState.holder(), gameState.eventSeq());
+                            String message = passMessage(handOff);
+                            runNetworkOperation(() -> lanMultiplayerManager.broadcastGameData(message));
+                        }
+                    }
                     setupPlayerPositions();
                 });
             }
 
+            @Override
+            public void onRoomSnapshot(RoomState.Snapshot snapshot) {
+                uiHandler.post(() -> applyRoomSnapshot(snapshot));
+            }
+
             @Override
             public void onGameStarted() {
                 uiHandler.post(() -> {
@@ -463,8 +493,8 @@ public class GameActivity extends AppCompatActivity {
             }
 
             @Override
-            public void onGameDataReceived(String data) {
-                handleMultiplayerData(data);
+            public void onGameDataReceived(int senderId, String data) {
+                handleMultiplayerData(senderId, data);
             }
 
             @Override
@@ -491,7 +521,8 @@ public class GameActivity extends AppCompatActivity {
                                 Log.d(TAG, "🔄 Retrying connection...");
                                 // Attempt cleanup first
                                 try {
-                                    lanMultiplayerManager.cleanup();
+                                    restartSession();
+                                    lanMultiplayerManager.setLocalPlayerName(playerName);
                                 } catch (Exception e) {
                                     Log.w(TAG, "Cleanup error: " + e.getMessage());
                                 }
@@ -550,12 +581,11 @@ public class GameActivity extends AppCompatActivity {
         }
     }
 
-    private void handleMultiplayerData(String data) {
-        String[] parts = data.split(":");
-        if (parts.length < 1) return;
-
-        String action = parts[0];
-        String payload = parts.length > 1 ? parts[1] : "";
+    private void handleMultiplayerData(int senderId, String data) {
+        // Payloads may themselves contain ':' (e.g. player names), so keep everything after the first one
+        int colon = data.indexOf(':');
+        String action = colon >= 0 ? data.substring(0, colon) : data;
+        String payload = colon >= 0 ? data.substring(colon + 1) : "";
 
         switch (action) {
             case "START_GAME":
@@ -566,59 +596,233 @@ public class GameActivity extends AppCompatActivity {
                 });
                 break;
 
-            case "PLAYER_NAMES":
-                String[] namesArray = payload.split(",");
-                uiHandler.post(() -> {
-                    Log.d(TAG, "📋 Received player names: " + payload);
-
-                    // Keep current player but update full list
-                    String currentPlayerName = activePlayers.isEmpty() ? null : activePlayers.get(0).name;
-                    activePlayers.clear();
-                    playerNames.clear();
-
-                    for (int i = 0; i < namesArray.length; i++) {
-                        String name = namesArray[i].trim();
-                        if (!name.isEmpty()) {
-                            Player player = new Player(name);
-                            player.layoutPosition = i;
-                            activePlayers.add(player);
-                            playerNames.add(name);
-                        }
-                    }
+            case LanMultiplayerManager.ACTION_ROUND_SEED:
+                // LanMultiplayerManager keeps the decoded seed; timings derive from it
+                RoundSeed round = lanMultiplayerManager != null ? lanMultiplayerManager.getCurrentRound() : null;
+                Log.d(TAG, "🎲 Round seed received: " + round);
+                if (round != null) {
+                    uiHandler.post(() -> applyRound(round, 0));
+                }
+                break;
 
-                    setupPlayerPositions();
+            case LanMultiplayerManager.ACTION_ROUND_DEADLINE:
+                // Also kept by LanMultiplayerManager, which converts it to our clock
+                uiHandler.post(this::showRoundDeadline);
+                break;
 
-                    // Update client UI
-                    if (playerStatusTextView != null) {
-                        StringBuilder playerList = new StringBuilder();
-                        for (int i = 0; i < activePlayers.size(); i++) {
-                            if (i > 0) playerList.append(", ");
-                            playerList.append(activePlayers.get(i).name);
+            case "PASS":
+                GameStateMachine.Event passEvent = GameStateMachine.Event.decode(payload);
+                if (passEvent == null) break;
+                uiHandler.post(() -> {
+                    // Duplicates are dropped and early events wait, so passes never flap
+                    for (GameStateMachine.Event e : replica.offer(passEvent)) {
+                        int shown = e.to;
+                        if (passPredictor != null) {
+                            // Our own still-pending passes stay on screen on top of the host's holder
+                            passPredictor.onAuthoritativePass(e.to, e.originSeq, e.origin);
+                            shown = passPredictor.predictedHolder();
                         }
-                        String status = "CLIENT: " + (currentPlayerName != null ? currentPlayerName : "Unknown") +
-                                       " | Players: " + playerList.toString();
-                        playerStatusTextView.setText(status);
+                        if (shown != playerIdAt(currentHolderIndex)) {
+                            showHolder(indexOfPlayer(shown));
+                        }
+                        Log.d(TAG, "🥔 PASS #" + e.seq + " - new holder: " + e.to + " (showing " + shown + ")");
+                    }
+                    if (replica.needsResync()) {
+                        Log.w(TAG, "⚠️ Missed pass events, asking host for a snapshot");
+                        lanMultiplayerManager.requestRoomSnapshot();
                     }
                 });
                 break;
 
-            case "PASS":
-                int newHolderIndex = Integer.parseInt(payload);
-                uiHandler.post(() -> {
-                    if (newHolderIndex >= 0 && newHolderIndex < activePlayers.size()) {
-                        currentHolderIndex = newHolderIndex;
-                        currentPlayerWithPotato = activePlayers.get(newHolderIndex);
-                        currentPlayerWithPotato.givePotato();
-
-                        updateUIAfterPass();
+            case LanMultiplayerManager.ACTION_PASS_REQUEST:
+                // "seq,from,to,origin"; the origin is whoever's connection it came in on, not what it claims
+                String[] request = payload.split(",", 4);
+                if (request.length < 4) break;
+                int reqSeq;
+                int reqFrom;
+                int reqTo;
+                try {
+                    reqSeq = Integer.parseInt(request[0]);
+                    reqFrom = Integer.parseInt(request[1]);
+                    reqTo = Integer.parseInt(request[2]);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "⚠️ Dropping malformed pass request: " + payload);
+                    break;
+                }
+                uiHandler.post(() -> handlePassRequest(reqSeq, reqFrom, reqTo, senderId));
+                break;
 
-                        Log.d(TAG, "🥔 PASS received - new holder: " + currentPlayerWithPotato.name);
+            case LanMultiplayerManager.ACTION_PASS_REJECT:
+                String[] reject = payload.split(",", 3);
+                if (reject.length < 3) break;
+                int rejectedSeq;
+                int holderId;
+                int rejectOrigin;
+                try {
+                    rejectedSeq = Integer.parseInt(reject[0]);
+                    holderId = Integer.parseInt(reject[1]);
+                    rejectOrigin = Integer.parseInt(reject[2]);
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "⚠️ Dropping malformed pass reject: " + payload);
+                    break;
+                }
+                uiHandler.post(() -> {
+                    if (passPredictor != null && passPredictor.onRejected(rejectedSeq, holderId, rejectOrigin)) {
+                        Log.d(TAG, "↩️ Pass " + rejectedSeq + " rejected, rolling back to " + passPredictor.predictedHolder());
+                        showHolder(indexOfPlayer(passPredictor.predictedHolder()));
                     }
                 });
                 break;
         }
     }
 
+    // Host: the host is the only authority on who holds the potato. GameStateMachine
+    // accepts a request only if its sender holds the potato; otherwise it is refused.
+    private void handlePassRequest(int seq, int from, int to, int origin) {
+        if (!isMultiplayerHost()) return;
+
+        GameStateMachine.Event accepted = gameState.pass(from, to, origin, seq);
+        // A resent request returns its earlier event, which leaves the holder as is
+        if (accepted != null && gameState.holder() != playerIdAt(currentHolderIndex)) {
+            showHolder(indexOfPlayer(gameState.holder()));
+            playPassSound();
+            lanMultiplayerManager.updateRoomHolder(gameState.holder(), gameState.eventSeq());
+        }
+
+        String reply = accepted != null
+                ? passMessage(accepted)
+                : LanMultiplayerManager.ACTION_PASS_REJECT + ":" + seq + "," + gameState.holder() + "," + origin;
+        runNetworkOperation(() -> {
+            try {
+                lanMultiplayerManager.broadcastGameData(reply);
+                Log.d(TAG, "📡 Pass request " + seq + " from " + origin + (accepted != null ? " confirmed" : " rejected"));
+            } catch (Exception e) {
+                Log.e(TAG, "❌ Failed to answer pass request: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Client: the host's whole room as of one roster version, sent on joining
+     * and whenever this device fell behind. Replaces the roster, and if a
+     * round is still burning, catches the game up to the host's holder.
+     */
+    private void applyRoomSnapshot(RoomState.Snapshot snapshot) {
+        Log.d(TAG, "📋 Room snapshot: " + snapshot);
+
+        activePlayers.clear();
+        playerNames.clear();
+        for (Map.Entry<Integer, String> seated : snapshot.roster.entrySet()) {
+            Player player = new Player(seated.getValue());
+            player.layoutPosition = activePlayers.size();
+            player.playerId = seated.getKey();
+            activePlayers.add(player);
+            playerNames.add(player.name);
+        }
+        currentPlayerWithPotato = null;
+        setupPlayerPositions();
+
+        if (playerStatusTextView != null) {
+            String self = getIntent().getStringExtra("playerName");
+            playerStatusTextView.setText("CLIENT: " + (self != null ? self : "Unknown")
+                    + " | Players: " + String.join(", ", playerNames));
+        }
+
+        // A round past its burn is over; anything else is joined where it stands
+        long deadlineMs = lanMultiplayerManager.getRoundDeadlineMs();
+        if (snapshot.round == null || deadlineMs <= ClockSync.monotonicMs()) return;
+        if (!gameInProgress) {
+            startGameButton.setVisibility(View.GONE);
+            startHotPotatoGame();
+            // Joined mid-round: pick the music up where everyone else is
+            applyRound(snapshot.round, snapshot.round.burnThresholdMs() - (deadlineMs - ClockSync.monotonicMs()));
+        }
+        showRoundDeadline();
+        replica.resync(snapshot.holder, snapshot.eventSeq);
+        if (passPredictor != null) {
+            passPredictor.reset(replica.holder());
+        }
+        showHolder(indexOfPlayer(replica.holder()));
+    }
+
+    /**
+     * Starts a round from its seed, the same on every device: the ring
+     * view's burn time, and the music track and stop time. A late joiner
+     * passes how long the round has been running.
+     */
+    private void applyRound(RoundSeed round, long elapsedMs) {
+        if (ringViewReady) {
+            ringView.applyRound(round);
+        }
+        if (musicManager == null) {
+            musicManager = new MusicManager(this);
+        }
+        musicManager.startRoundMusic(round, elapsedMs);
+        showRoundDeadline();
+    }
+
+    /**
+     * Hands the ring view the round's burn time on this device's clock, so
+     * it counts down by itself; 0 until the host's deadline arrives. Read
+     * again every second, as clock sync keeps refining the host offset.
+     */
+    private void showRoundDeadline() {
+        if (ringViewReady) {
+            ringView.setBurnDeadline(lanMultiplayerManager != null ? lanMultiplayerManager.getRoundDeadlineMs() : 0);
+        }
+    }
+
+    // Ring view countdown, redrawn only when the shown second changes
+    private void showCountdown(long millisRemaining) {
+        long seconds = (millisRemaining + 999) / 1000;
+        if (seconds == shownCountdownSec || timerText == null || !gameInProgress) return;
+        shownCountdownSec = seconds;
+        timerText.setText("🔥 " + seconds + "s");
+        showRoundDeadline();
+    }
+
+    // Wire form of a host event; from, to and origin are player IDs
+    private static String passMessage(GameStateMachine.Event e) {
+        return "PASS:" + e.encode();
+    }
+
+    private boolean isMultiplayerHost() {
+        return lanMultiplayerManager != null && mode.equals("multiplayer")
+                && getIntent().getBooleanExtra("isHost", false);
+    }
+
+    // Position in activePlayers of the player with this room ID, or -1
+    private int indexOfPlayer(int playerId) {
+        for (int i = 0; i < activePlayers.size(); i++) {
+            if (activePlayers.get(i).playerId == playerId) return i;
+        }
+        return -1;
+    }
+
+    private int playerIdAt(int index) {
+        return index >= 0 && index < activePlayers.size() ? activePlayers.get(index).playerId : PlayerRegistry.NO_PLAYER;
+    }
+
+    private List<Integer> seatedPlayerIds() {
+        List<Integer> ids = new ArrayList<>(activePlayers.size());
+        for (Player player : activePlayers) {
+            ids.add(player.playerId);
+        }
+        return ids;
+    }
+
+    // Moves the potato on screen without any of the local checks in passPotatoTo
+    private void showHolder(int index) {
+        if (index < 0 || index >= activePlayers.size()) return;
+        if (currentPlayerWithPotato != null) {
+            currentPlayerWithPotato.takePotato();
+        }
+        currentHolderIndex = index;
+        currentPlayerWithPotato = activePlayers.get(index);
+        currentPlayerWithPotato.givePotato();
+        updateUIAfterPass();
+    }
+
     // Start the Hot Potato game
     private void startHotPotatoGame() {
         Log.d(TAG, "🎮 STARTING HOT POTATO");
@@ -647,6 +851,17 @@ public class GameActivity extends AppCompatActivity {
             currentHolderIndex = 0;
         }
 
+        // The host sequences passes from here on; clients predict their own and follow the host's events
+        if (isMultiplayerHost()) {
+            lanMultiplayerManager.setRoomGame(gameState);
+            gameState.start(seatedPlayerIds(), playerIdAt(currentHolderIndex));
+            lanMultiplayerManager.updateRoomHolder(gameState.holder(), gameState.eventSeq());
+        } else if (mode.equals("multiplayer")) {
+            replica.reset(playerIdAt(currentHolderIndex));
+            passPredictor = new PassPredictor(lanMultiplayerManager.getLocalPlayerId());
+            passPredictor.reset(playerIdAt(currentHolderIndex));
+        }
+
         // Hide UI elements
         startGameButton.setVisibility(View.GONE);
 
@@ -685,14 +900,68 @@ public class GameActivity extends AppCompatActivity {
         findViewById(R.id.player3Container).setVisibility(View.GONE);
         findViewById(R.id.player4Container).setVisibility(View.GONE);
 
+        if (activePlayers.size() > CORNER_SEATS) {
+            showRingView();
+            return;
+        }
+        if (ringView != null) {
+            ringView.setVisibility(View.INVISIBLE);
+        }
+
         // Show and setup based on active player count
-        for (int i = 0; i < activePlayers.size() && i < 4; i++) {
+        for (int i = 0; i < activePlayers.size() && i < CORNER_SEATS; i++) {
             Player playerObj = activePlayers.get(i);
             String playerName = playerObj.name;
             setupPlayerPosition(i + 1, playerName);
         }
     }
 
+    /**
+     * Seats everyone on GameView's rings, which scale to a full room. The
+     * view only displays and predicts; taps still go through
+     * passPotatoToNextPlayer and the host's authority like a corner tap.
+     */
+    private void showRingView() {
+        if (ringView == null) return;
+        if (!ringViewReady) {
+            ringView.init(0, new GameView.GameListener() {
+                @Override
+                public void onTick(long millisRemaining) {
+                    showCountdown(millisRemaining);
+                }
+
+                @Override
+                public void onGameOver(String loserName) {}
+            });
+            // Timing and holder come from this screen, never from the view's own clock
+            ringView.setRemoteMode(true);
+            ringView.setPassCallback(this::onRingViewPass);
+            ringViewReady = true;
+            // The seed usually lands before the view is first shown
+            RoundSeed round = lanMultiplayerManager != null ? lanMultiplayerManager.getCurrentRound() : null;
+            if (round != null) {
+                ringView.applyRound(round);
+            }
+            showRoundDeadline();
+        }
+        List<String> names = new ArrayList<>(activePlayers.size());
+        for (Player player : activePlayers) {
+            names.add(player.name);
+        }
+        ringView.setPlayerNames(names);
+        ringView.setCurrentHolder(Math.max(0, currentHolderIndex));
+        ringView.setVisibility(View.VISIBLE);
+    }
+
+    // The ring view already checked the tap was on the holder
+    private void onRingViewPass() {
+        if (gameInProgress) {
+            passPotatoToNextPlayer();
+        }
+        // A refused pass leaves the holder where it was; pull the view's prediction back
+        ringView.reconcileHolder(Math.max(0, currentHolderIndex));
+    }
+
     private void setupPlayerPosition(int position, String name) {
         int containerId = getPlayerContainerId(position);
         int textId = getPlayerTextId(position);
@@ -738,7 +1007,7 @@ public class GameActivity extends AppCompatActivity {
 
         Log.d(TAG, "Setting up tap zones for players");
 
-        for (int i = 0; i < 4; i++) {
+        for (int i = 0; i < CORNER_SEATS; i++) {
             if (playerTouchZones[i] != null) {
                 final int playerIndex = i;
                 Log.d(TAG, "Setting up tap zone for player " + (playerIndex + 1));
@@ -851,6 +1120,18 @@ public class GameActivity extends AppCompatActivity {
         }
         lastTouchTime = currentTime;
 
+        // The host's own taps go through the same authority as client requests
+        GameStateMachine.Event hostEvent = null;
+        if (isMultiplayerHost()) {
+            hostEvent = gameState.pass(currentPlayerWithPotato.playerId, targetPlayer.playerId,
+                    lanMultiplayerManager.getLocalPlayerId(), 0);
+            if (hostEvent == null) {
+                Log.w(TAG, "Pass ignored: Rejected by game state (holder " + gameState.holder() + ").");
+                return;
+            }
+            lanMultiplayerManager.updateRoomHolder(gameState.holder(), gameState.eventSeq());
+        }
+
         // --- 2. Execute the Pass ---
         Player oldHolder = currentPlayerWithPotato;
         Player newHolder = targetPlayer;
@@ -873,21 +1154,41 @@ public class GameActivity extends AppCompatActivity {
         if (lanMultiplayerManager != null && mode.equals("multiplayer")) {
             Intent intent = getIntent();
             boolean isHost = intent.getBooleanExtra("isHost", false);
-            if (isHost) {
+            if (isHost && hostEvent != null) {
+                String message = passMessage(hostEvent);
                 runNetworkOperation(() -> {
                     try {
-                        lanMultiplayerManager.broadcastGameData("PASS:" + currentHolderIndex);
-                        Log.d(TAG, "📡 Successfully broadcast PASS:" + currentHolderIndex + " to " + newHolder.name);
+                        lanMultiplayerManager.broadcastGameData(message);
+                        Log.d(TAG, "📡 Successfully broadcast " + message + " to " + newHolder.name);
                     } catch (Exception e) {
                         Log.e(TAG, "❌ Failed to broadcast pass: " + e.getMessage());
                     }
                 });
+            } else if (passPredictor != null) {
+                // Client: the pass above is a prediction; ask the host to make it real
+                int origin = lanMultiplayerManager.getLocalPlayerId();
+                int seq = passPredictor.predict(oldHolder.playerId, newHolder.playerId, ClockSync.monotonicMs());
+                runNetworkOperation(() -> lanMultiplayerManager.sendGameAction(LanMultiplayerManager.ACTION_PASS_REQUEST,
+                        seq + "," + oldHolder.playerId + "," + newHolder.playerId + "," + origin));
+                // Roll back if the host never answers
+                uiHandler.postDelayed(this::expirePassPredictions, Config.PASS_PREDICTION_TIMEOUT_MS);
             }
         }
     }
 
+    private void expirePassPredictions() {
+        if (passPredictor != null && passPredictor.expire(ClockSync.monotonicMs())) {
+            Log.w(TAG, "⌛ Pass request unanswered, rolling back to " + passPredictor.predictedHolder());
+            showHolder(indexOfPlayer(passPredictor.predictedHolder()));
+        }
+    }
+
     // Update UI after potato pass
     private void updateUIAfterPass() {
+        if (ringView != null && ringView.getVisibility() == View.VISIBLE) {
+            ringView.reconcileHolder(currentHolderIndex);
+        }
+
         // Update instruction text
         if (tapInstructionText != null && currentPlayerWithPotato != null) {
             tapInstructionText.setText(currentPlayerWithPotato.name + ": Tap to pass the potato!");
@@ -952,11 +1253,20 @@ public class GameActivity extends AppCompatActivity {
             toneGenerator = null;
         }
 
+        if (musicManager != null) {
+            musicManager.release();
+            musicManager = null;
+        }
+
+        // A configuration change keeps the session; only leaving the game ends it
         if (lanMultiplayerManager != null) {
-            try {
-                lanMultiplayerManager.cleanup();
-            } catch (Exception e) {
-                Log.w(TAG, "Error cleaning up multiplayer manager: " + e.getMessage());
+            lanMultiplayerManager.setListener(null);
+            if (isFinishing()) {
+                try {
+                    MultiplayerService.endSession(this);
+                } catch (Exception e) {
+                    Log.w(TAG, "Error cleaning up multiplayer manager: " + e.getMessage());
+                }
             }
         }
 
@@ -979,11 +1289,17 @@ public class GameActivity extends AppCompatActivity {
     protected void onPause() {
         super.onPause();
         disableTapToPass();
+        if (musicManager != null) {
+            musicManager.pauseMusic();
+        }
     }
 
     @Override
     protected void onResume() {
         super.onResume();
+        if (musicManager != null) {
+            musicManager.resumeMusic();
+        }
         // Resume passing if game was in progress
         if (gameInProgress && currentPlayerWithPotato != null) {
             enableTapToPass();
@@ -1057,23 +1373,18 @@ public class GameActivity extends AppCompatActivity {
         if (lanMultiplayerManager != null) {
             // Get connected players from the multiplayer manager
             try {
-                List<String> connectedPlayerNames = lanMultiplayerManager.getConnectedPlayerNames();
-                if (connectedPlayerNames != null && connectedPlayerNames.size() > 1) { // More than just host
-                    Log.d(TAG, "🔄 Found existing connected players: " + connectedPlayerNames.size());
+                Map<Integer, String> roster = lanMultiplayerManager.getRoster();
+                if (roster.size() > 1) { // More than just host
+                    Log.d(TAG, "🔄 Found existing connected players: " + roster.size());
 
                     // Add missing players to activePlayers
-                    for (String playerName : connectedPlayerNames) {
-                        boolean playerExists = false;
-                        for (Player player : activePlayers) {
-                            if (player.name.equals(playerName)) {
-                                playerExists = true;
-                                break;
-                            }
-                        }
-
-                        if (!playerExists && !playerName.equals(activePlayers.get(0).name)) {
+                    for (Map.Entry<Integer, String> seated : roster.entrySet()) {
+                        int playerId = seated.getKey();
+                        String playerName = seated.getValue();
+                        if (indexOfPlayer(playerId) < 0) {
                             Player newPlayer = new Player(playerName);
                             newPlayer.layoutPosition = activePlayers.size();
+                            newPlayer.playerId = playerId;
                             activePlayers.add(newPlayer);
                             playerNames.add(playerName);
                             Log.d(TAG, "🔄 Added existing player: " + playerName);
@@ -37,6 +37,7 @@ public class GameView extends View {
     // खेलाडी वर्ग (Player class)
     private static class Player {
         String name; // नाम (Name)
+        String label; // नाम र जित, फ्रेमैपिच्छे नबनाउन (Name and wins, built once rather than every frame)
         Bitmap avatar; // अवतार (Avatar)
         float x, y; // स्थिति (Position)
         boolean eliminated = false; // हटाइएको (Eliminated)
@@ -52,6 +53,16 @@ public class GameView extends View {
     private final Paint glowPaint1 = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint glowPaint2 = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Paint placeholderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF avatarDst = new RectF();
+    private final RectF potatoDst = new RectF();
+
+    // घेरा लेआउट (Ring layout) - ६४ जनासम्म (up to 64 players)
+    private static final float RING_RADIUS = 0.35f; // बाहिरी घेरा, सानो किनाराको अनुपात (Outer ring, fraction of the short side)
+    private static final float MAX_AVATAR = 0.18f; // ठूलो अवतार, सानो किनाराको अनुपात (Largest avatar, fraction of the short side)
+    private static final float AVATAR_GAP = 1.15f; // घेरामा अवतारबीचको दूरी (Spacing along a ring, in avatar sizes)
+    private static final float RING_GAP = 1.6f; // घेराहरूबीचको दूरी, नाम सहित (Spacing between rings, names included)
+    private static final float MIN_AVATAR_DP = 20f; // योभन्दा सानो नबनाउनुहोस् (Never shrink below this)
+    private float avatarSize; // हालको अवतार आकार (Current avatar size)
 
     // खेल डेटा (Game data)
     private final List<Player> players = new ArrayList<>();
@@ -63,6 +74,7 @@ public class GameView extends View {
     private int currentHolder = 0; // हालको धारक (Current holder)
     private long holderStartTime; // धारक सुरु समय (Holder start time)
     private long burnThresholdMs; // जलाउने सीमा (Burn threshold)
+    private long burnDeadlineMs = 0; // रिमोट मोडमा स्थानीय घडीको समय-सीमा (Local-clock deadline in remote mode)
 
     // एनिमेसन अवस्था (Animation state)
     private boolean potatoAnimating = false; // आलु एनिमेट गर्दै (Potato animating)
@@ -118,6 +130,7 @@ public class GameView extends View {
         for (int i = 0; i < playerCount; i++) {
             players.add(new Player(names[i % names.length], null));
         }
+        layoutPlayers(getWidth(), getHeight());
         resetBurnThreshold();
         holderStartTime = SystemClock.uptimeMillis();
         invalidate();
@@ -158,6 +171,7 @@ public class GameView extends View {
             Bitmap avatar = avatars == null ? null : avatars[i % avatars.length];
             players.add(new Player(pendingPlayerNames.get(i), avatar));
         }
+        layoutPlayers(getWidth(), getHeight());
         invalidate();
         gameOver = false;
     }
@@ -168,6 +182,13 @@ public class GameView extends View {
     public void setGameOver(boolean gameOver) { this.gameOver = gameOver; }
 
     public void setRemoteMode(boolean remote) { this.remoteMode = remote; }
+
+    // होस्टबाट आएको समय-सीमा, ClockSync.monotonicMs() आधारमा (Deadline from the host, on the ClockSync.monotonicMs() base)
+    // रिमोट मोडमा उल्टो गन्ती यसैबाट स्थानीय रूपमा गरिन्छ (Remote mode counts down locally from it)
+    public void setBurnDeadline(long localDeadlineMs) {
+        this.burnDeadlineMs = localDeadlineMs;
+        invalidate();
+    }
     public void setPassCallback(PassCallback cb) { this.passCallback = cb; }
     public void setCurrentHolder(int idx) { 
         this.currentHolder = idx % Math.max(1, players.size()); 
@@ -177,6 +198,24 @@ public class GameView extends View {
     public int getCurrentHolder() {
         return currentHolder;
     }
+
+    // होस्टको आधिकारिक धारकसँग मिलाउनुहोस् (Reconcile with the host's authoritative holder)
+    // अनुमान मिलेमा केही नगर्ने, नत्र सही धारकतिर उडाउने (No-op when the prediction matches, else fly to the right holder)
+    public void reconcileHolder(int holder) {
+        if (players.isEmpty()) return;
+        holder = holder % players.size();
+        int shown = potatoAnimating && pendingHolder >= 0 ? pendingHolder : currentHolder;
+        if (shown == holder) return;
+        potatoAnimating = false;
+        pendingHolder = -1;
+        if (currentHolder == holder) {
+            // उडिरहेको अनुमान फिर्ता (Roll back the in-flight prediction)
+            invalidate();
+            return;
+        }
+        simulatePassAnimation(currentHolder, holder);
+        pendingHolder = holder;
+    }
     
     public void simulatePassAnimation(int fromIndex, int toIndex) {
         if (fromIndex < 0 || fromIndex >= players.size() || 
@@ -215,6 +254,14 @@ public class GameView extends View {
         return players.size();
     }
 
+    // साझा बीउबाट राउन्ड सुरु गर्नुहोस् (Start a round from the shared seed)
+    // सबै उपकरणले एउटै जल्ने सीमा पाउँछन् (Every device derives the same burn threshold)
+    public void applyRound(RoundSeed round) {
+        burnThresholdMs = round.burnThresholdMs();
+        holderStartTime = SystemClock.uptimeMillis();
+        invalidate();
+    }
+
     private void resetBurnThreshold() {
         // Fixed 60-second countdown from game start
         burnThresholdMs = 60000;
@@ -232,6 +279,83 @@ public class GameView extends View {
                 0x55FF6F00, 0x00FF6F00, Shader.TileMode.CLAMP));
         glowPaint2.setShader(new RadialGradient(cx, cy - dpToPx(80), r2,
                 0x33FFA000, 0x00FFA000, Shader.TileMode.CLAMP));
+        layoutPlayers(w, h);
+    }
+
+    // खेलाडीहरूलाई केन्द्रीय घेराहरूमा राख्नुहोस् (Seat players on concentric rings)
+    // बाहिरी घेरा पहिले भरिन्छ; नअटाए अवतार सानो हुँदै जान्छ (Outer ring fills first; avatars shrink until everyone fits)
+    // आकार वा खेलाडी बदलिँदा मात्र चल्छ, हरेक फ्रेममा होइन (Runs on size or roster changes only, never per frame)
+    private void layoutPlayers(int w, int h) {
+        int n = players.size();
+        if (n == 0 || w == 0 || h == 0) return;
+
+        float outer = Math.min(w, h) * RING_RADIUS;
+        float minSize = dpToPx(MIN_AVATAR_DP);
+        float size = Math.min(w, h) * MAX_AVATAR;
+        while (size > minSize && ringCapacity(outer, size, n) < n) {
+            size *= 0.9f;
+        }
+        size = Math.max(size, minSize);
+        avatarSize = size;
+
+        float cx = w / 2f;
+        float cy = h / 2f;
+        int seated = 0;
+        int ring = 0;
+        for (float radius = outer; seated < n; radius -= size * RING_GAP, ring++) {
+            int fits = radius < size * 0.5f ? n - seated : seatsOnRing(radius, size);
+            int count = Math.min(fits, n - seated);
+            // भित्री घेरा आधा पाइला घुमाउनुहोस् ताकि नाम नछोपियोस् (Stagger inner rings half a step so names stay clear)
+            double offset = ring % 2 == 0 ? 0 : Math.PI / count;
+            for (int i = 0; i < count; i++) {
+                double angle = (2 * Math.PI * i / count) - Math.PI / 2 + offset; // start top
+                Player p = players.get(seated + i);
+                p.x = (float) (cx + radius * Math.cos(angle));
+                p.y = (float) (cy + radius * Math.sin(angle));
+            }
+            seated += count;
+        }
+
+        textPaint.setTextSize(Math.max(size * 0.22f, dpToPx(8)));
+        ringPaint.setStrokeWidth(size * 0.06f);
+        refreshLabels();
+    }
+
+    // यो आकारमा सबै घेरामा कति अटाउँछन्, n सम्म (How many fit across all rings at this size, up to n)
+    private static int ringCapacity(float outer, float size, int n) {
+        int capacity = 0;
+        for (float radius = outer; radius >= size * 0.5f && capacity < n; radius -= size * RING_GAP) {
+            capacity += seatsOnRing(radius, size);
+        }
+        return capacity;
+    }
+
+    private static int seatsOnRing(float radius, float size) {
+        return Math.max(1, (int) (2 * Math.PI * radius / (size * AVATAR_GAP)));
+    }
+
+    private void refreshLabels() {
+        for (Player p : players) {
+            int wins = (winPrefs == null || p.name == null) ? 0 : winPrefs.getInt(p.name, 0);
+            p.label = p.name + " " + getContext().getString(R.string.win_count_suffix, wins);
+        }
+    }
+
+    // छोएको ठाउँ नजिकको खेलाडी (Player nearest the touch)
+    private int playerAt(float x, float y) {
+        int nearest = -1;
+        float best = Float.MAX_VALUE;
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            float dx = p.x - x;
+            float dy = p.y - y;
+            float d = dx * dx + dy * dy;
+            if (d < best) {
+                best = d;
+                nearest = i;
+            }
+        }
+        return nearest;
     }
 
     private float dpToPx(float dp) { return dp * getResources().getDisplayMetrics().density; }
@@ -256,28 +380,19 @@ public class GameView extends View {
             return;
         }
 
-        // Layout players on a circle
-        float radius = Math.min(w, h) * 0.35f;
-        float cx = w / 2f;
-        float cy = h / 2f;
-
-        float avatarSize = Math.min(w, h) * 0.18f;
-        float textSize = avatarSize * 0.22f;
-        textPaint.setTextSize(textSize);
-        ringPaint.setStrokeWidth(avatarSize * 0.06f);
-        RectF dst = new RectF(0,0,avatarSize,avatarSize);
+        // Positions come from layoutPlayers(); drawing allocates nothing
+        float avatarSize = this.avatarSize;
+        float textSize = textPaint.getTextSize();
 
         for (int i = 0; i < n; i++) {
-            double angle = (2 * Math.PI * i / n) - Math.PI / 2; // start top
-            float px = (float)(cx + radius * Math.cos(angle));
-            float py = (float)(cy + radius * Math.sin(angle));
             Player p = players.get(i);
-            p.x = px; p.y = py;
+            float px = p.x;
+            float py = p.y;
 
-            dst.offsetTo(px - avatarSize/2f, py - avatarSize/2f);
+            avatarDst.set(px - avatarSize/2f, py - avatarSize/2f, px + avatarSize/2f, py + avatarSize/2f);
             if (p.avatar != null) {
                 // draw avatar scaled to destination rect
-                canvas.drawBitmap(p.avatar, null, dst, paint);
+                canvas.drawBitmap(p.avatar, null, avatarDst, paint);
             } else {
                 // draw placeholder circle while avatar loads
                 canvas.drawCircle(px, py, avatarSize * 0.5f, placeholderPaint);
@@ -286,10 +401,10 @@ public class GameView extends View {
             if (i == currentHolder) {
                 canvas.drawCircle(px, py, avatarSize * 0.55f, ringPaint);
             }
-            // draw player name// Name below avatar, with win count
-            int wins = (winPrefs == null || p.name == null) ? 0 : winPrefs.getInt(p.name, 0);
-            String winText = getContext().getString(R.string.win_count_suffix, wins);
-            canvas.drawText(p.name + " " + winText, px, py + avatarSize/2f + textSize + 6f, textPaint);
+            // Name below avatar, with win count
+            if (p.label != null) {
+                canvas.drawText(p.label, px, py + avatarSize/2f + textSize + 6f, textPaint);
+            }
         }
         Player holder = players.get(currentHolder);
         float potatoSize = avatarSize * 0.45f;
@@ -313,7 +428,7 @@ public class GameView extends View {
             potatoPx = holder.x;
             potatoPy = holder.y;
         }
-        RectF potatoDst = new RectF(potatoPx - potatoSize/2f, potatoPy - potatoSize/2f, potatoPx + potatoSize/2f, potatoPy + potatoSize/2f);
+        potatoDst.set(potatoPx - potatoSize/2f, potatoPy - potatoSize/2f, potatoPx + potatoSize/2f, potatoPy + potatoSize/2f);
         if (potato != null) {
             canvas.drawBitmap(potato, null, potatoDst, paint);
         }
@@ -321,6 +436,10 @@ public class GameView extends View {
         long elapsed = SystemClock.uptimeMillis() - holderStartTime;
         long remaining = Math.max(0, burnThresholdMs - elapsed);
         if (!remoteMode && listener != null) listener.onTick(remaining);
+        // रिमोट मोड: होस्ट टिकको सट्टा आफ्नै घडीबाट (Remote mode: from our own clock instead of host ticks)
+        if (remoteMode && burnDeadlineMs > 0 && listener != null) {
+            listener.onTick(Math.max(0, burnDeadlineMs - ClockSync.monotonicMs()));
+        }
 
         // Potato animation handled above
 
@@ -333,8 +452,8 @@ public class GameView extends View {
         // Draw campfire if game over (both local and remote scenarios)
         if (gameOver && campfire != null) {
             float fireSize = avatarSize * 0.8f;
-            RectF fireDst = new RectF(holder.x - fireSize/2f, holder.y - fireSize/2f, holder.x + fireSize/2f, holder.y + fireSize/2f);
-            canvas.drawBitmap(campfire, null, fireDst, paint);
+            potatoDst.set(holder.x - fireSize/2f, holder.y - fireSize/2f, holder.x + fireSize/2f, holder.y + fireSize/2f);
+            canvas.drawBitmap(campfire, null, potatoDst, paint);
         }
 
         if (!gameOver) {
@@ -380,13 +499,16 @@ public class GameView extends View {
     @Override
     public boolean onTouchEvent(MotionEvent event) {
         if (event.getAction() == MotionEvent.ACTION_DOWN && !gameOver) {
-            int n = Math.max(1, players.size());
-            int w = getWidth();
-            float x = event.getX();
-            int zone = Math.min(n - 1, (int) Math.floor(x / Math.max(1f, (float) w / n)));
+            // घेरामा सबैभन्दा नजिकको अवतार (Nearest avatar on the rings)
+            int zone = playerAt(event.getX(), event.getY());
             boolean allowed = zone == currentHolder;
             if (!allowed) return true; // ignore taps outside active player's zone
             if (remoteMode) {
+                // अनुमान: होस्टको जवाफ नपर्खी तुरुन्तै उडाउनुहोस् (Prediction: fly at once without waiting for the host)
+                // गलत भए reconcileHolder ले सच्याउँछ (reconcileHolder corrects it if the host disagrees)
+                if (players.size() > 0 && !potatoAnimating) {
+                    passPotato();
+                }
                 if (passCallback != null) passCallback.onPassRequested();
             } else {
                 if (players.size() > 0) {
@@ -5,15 +5,29 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Simplified LAN-only Multiplayer Manager for Hot Potato
  * Handles only local network connectivity using EnhancedLanDiscovery
+ *
+ * The only entry point to the network: screens browse, host, join and
+ * play through this class and never open sockets of their own. Browsing
+ * and playing share one instance, so the connection made while joining is
+ * the one the game runs on.
  */
 public class LanMultiplayerManager {
     private static final String TAG = "LanMultiplayerManager";
+    public static final String ACTION_ROUND_SEED = "ROUND_SEED";
+    // Host -> all, right after the seed: when the round burns, on the host's ClockSync.monotonicMs()
+    public static final String ACTION_ROUND_DEADLINE = "ROUND_DEADLINE";
+    // Client -> host: "seq,from,to,origin", all player IDs but seq; host answers with PASS or PASS_REJECT
+    public static final String ACTION_PASS_REQUEST = "PASS_REQ";
+    // Host -> all: "seq,holder,origin"; only the origin rolls its prediction back
+    public static final String ACTION_PASS_REJECT = "PASS_REJECT";
 
     private Context context;
     private EnhancedLanDiscovery lanDiscovery;
@@ -24,19 +38,32 @@ public class LanMultiplayerManager {
     private boolean isConnected = false;
     private String localPlayerName;
     private String roomCode;
-    private boolean transferredFromBrowser = false;
+    private RoundSeed currentRound;
+    private long roundDeadlineHostMs; // the host's ClockSync.monotonicMs() at the burn, 0 if unknown
 
     public interface LanMultiplayerListener {
         void onRoomCreated(String roomCode);
         void onRoomJoined(String roomCode, String hostName);
-        void onPlayerJoined(String playerId, String playerName);
-        void onPlayerLeft(String playerId, String playerName);
+        void onPlayerJoined(int playerId, String playerName);
+        void onPlayerLeft(int playerId, String playerName);
+        void onRoomSnapshot(RoomState.Snapshot snapshot);
         void onGameStarted();
-        void onGameDataReceived(String data);
+        // senderId: the sender's seat while hosting, PlayerRegistry.NO_PLAYER for data from the host
+        void onGameDataReceived(int senderId, String data);
         void onConnectionError(String error);
         void onDisconnected();
     }
 
+    /** Room list updates for the browser screen. */
+    public interface RoomBrowserListener {
+        void onRoomAdded(EnhancedLanDiscovery.DiscoveredRoom room);
+        void onRoomUpdated(EnhancedLanDiscovery.DiscoveredRoom room);
+        void onRoomRemoved(long roomId);
+        void onDiscoveryStateChanged(boolean isDiscovering);
+    }
+
+    private RoomBrowserListener roomBrowserListener;
+
     public LanMultiplayerManager(Context context) {
         this.context = context;
         this.mainHandler = new Handler(Looper.getMainLooper());
@@ -47,10 +74,27 @@ public class LanMultiplayerManager {
     private void setupLanDiscovery() {
         lanDiscovery.setListener(new EnhancedLanDiscovery.LanDiscoveryListener() {
             @Override
-            public void onRoomsDiscovered(List<EnhancedLanDiscovery.DiscoveredRoom> rooms) {
+            public void onRoomAdded(EnhancedLanDiscovery.DiscoveredRoom room) {
+                if (roomBrowserListener != null) {
+                    roomBrowserListener.onRoomAdded(room);
+                }
                 // Room discovery is handled by RoomBrowserActivity
             }
 
+            @Override
+            public void onRoomUpdated(EnhancedLanDiscovery.DiscoveredRoom room) {
+                if (roomBrowserListener != null) {
+                    roomBrowserListener.onRoomUpdated(room);
+                }
+            }
+
+            @Override
+            public void onRoomRemoved(long roomId) {
+                if (roomBrowserListener != null) {
+                    roomBrowserListener.onRoomRemoved(roomId);
+                }
+            }
+
             @Override
             public void onRoomJoined(String roomCode, String hostName) {
                 LanMultiplayerManager.this.roomCode = roomCode;
@@ -78,7 +122,7 @@ public class LanMultiplayerManager {
             }
 
             @Override
-            public void onPlayerJoined(String playerId, String playerName) {
+            public void onPlayerJoined(int playerId, String playerName) {
                 if (listener != null) {
                     listener.onPlayerJoined(playerId, playerName);
                 }
@@ -87,7 +131,7 @@ public class LanMultiplayerManager {
             }
 
             @Override
-            public void onPlayerLeft(String playerId, String playerName) {
+            public void onPlayerLeft(int playerId, String playerName) {
                 if (listener != null) {
                     listener.onPlayerLeft(playerId, playerName);
                 }
@@ -95,6 +139,21 @@ public class LanMultiplayerManager {
                 Log.d(TAG, "Player left: " + playerName + " (" + playerId + ")");
             }
 
+            @Override
+            public void onRoomSnapshot(RoomState.Snapshot snapshot) {
+                // A late joiner picks the running round up from here instead of a resent seed
+                if (snapshot.round != null) {
+                    currentRound = snapshot.round;
+                    roundDeadlineHostMs = snapshot.roundDeadlineMs == RoomState.NO_DEADLINE
+                            ? 0 : snapshot.roundDeadlineMs;
+                }
+                if (listener != null) {
+                    listener.onRoomSnapshot(snapshot);
+                }
+
+                Log.d(TAG, "Room snapshot: " + snapshot);
+            }
+
             @Override
             public void onGameStarted() {
                 if (listener != null) {
@@ -105,10 +164,23 @@ public class LanMultiplayerManager {
             }
 
             @Override
-            public void onGameDataReceived(String data) {
+            public void onGameDataReceived(int senderId, String data) {
                 Log.d(TAG, "NETWORK RECV: " + data);
+                if (data.startsWith(ACTION_ROUND_SEED + ":")) {
+                    RoundSeed round = RoundSeed.decode(data.substring(ACTION_ROUND_SEED.length() + 1));
+                    if (round != null) {
+                        currentRound = round;
+                        roundDeadlineHostMs = 0;
+                    }
+                } else if (data.startsWith(ACTION_ROUND_DEADLINE + ":")) {
+                    try {
+                        roundDeadlineHostMs = Long.parseLong(data.substring(ACTION_ROUND_DEADLINE.length() + 1));
+                    } catch (NumberFormatException e) {
+                        Log.w(TAG, "Dropping malformed round deadline: " + data);
+                    }
+                }
                 if (listener != null) {
-                    listener.onGameDataReceived(data);
+                    listener.onGameDataReceived(senderId, data);
                 }
             }
 
@@ -125,7 +197,9 @@ public class LanMultiplayerManager {
 
             @Override
             public void onDiscoveryStateChanged(boolean isDiscovering) {
-                // Discovery state changes handled by RoomBrowserActivity
+                if (roomBrowserListener != null) {
+                    roomBrowserListener.onDiscoveryStateChanged(isDiscovering);
+                }
             }
         });
     }
@@ -135,6 +209,18 @@ public class LanMultiplayerManager {
         this.listener = listener;
     }
 
+    public void setRoomBrowserListener(RoomBrowserListener roomBrowserListener) {
+        this.roomBrowserListener = roomBrowserListener;
+    }
+
+    public void startDiscovery() {
+        lanDiscovery.startDiscovery();
+    }
+
+    public void stopDiscovery() {
+        lanDiscovery.stopDiscovery();
+    }
+
     public void setLocalPlayerName(String playerName) {
         this.localPlayerName = playerName;
         if (lanDiscovery != null) {
@@ -143,6 +229,15 @@ public class LanMultiplayerManager {
     }
 
     public void createRoom(String roomCode) {
+        // A screen taking over an open room only needs to hear about it
+        if (isHost && isConnected && this.roomCode != null) {
+            Log.d(TAG, "Using existing room: " + this.roomCode);
+            if (listener != null) {
+                listener.onRoomCreated(this.roomCode);
+            }
+            return;
+        }
+
         if (isConnected) {
             Log.w(TAG, "Already connected to a room");
             return;
@@ -155,15 +250,6 @@ public class LanMultiplayerManager {
             return;
         }
 
-        // If we already have a connection from browser transfer, don't create new room
-        if (transferredFromBrowser && isConnected && this.roomCode != null) {
-            Log.d(TAG, "Using existing room connection: " + this.roomCode);
-            if (listener != null) {
-                listener.onRoomCreated(this.roomCode);
-            }
-            return;
-        }
-
         Log.d(TAG, "Creating room: " + roomCode);
         lanDiscovery.hostRoom(roomCode);
     }
@@ -174,6 +260,13 @@ public class LanMultiplayerManager {
             return;
         }
 
+        if (!lanDiscovery.getHubRoomCodes().isEmpty()) {
+            if (listener != null) {
+                listener.onConnectionError("Close this device's hub rooms before joining another room");
+            }
+            return;
+        }
+
         if (localPlayerName == null || localPlayerName.trim().isEmpty()) {
             if (listener != null) {
                 listener.onConnectionError("Player name is required");
@@ -185,6 +278,26 @@ public class LanMultiplayerManager {
         lanDiscovery.joinRoom(room);
     }
 
+    /**
+     * Hub: opens a room on this device that others play in without us, on
+     * the same port as any room we host. Rounds start by themselves once
+     * enough players are in. Returns false if no more rooms fit, or if we
+     * are a player in someone else's room.
+     */
+    public boolean openHubRoom(String roomCode) {
+        Log.d(TAG, "Opening hub room: " + roomCode);
+        return lanDiscovery.openHubRoom(roomCode);
+    }
+
+    public void closeHubRoom(String roomCode) {
+        Log.d(TAG, "Closing hub room: " + roomCode);
+        lanDiscovery.closeHubRoom(roomCode);
+    }
+
+    public List<String> getHubRoomCodes() {
+        return lanDiscovery.getHubRoomCodes();
+    }
+
     public void startGame() {
         if (!isHost) {
             Log.w(TAG, "Only host can start the game");
@@ -200,27 +313,6 @@ public class LanMultiplayerManager {
         lanDiscovery.startGame();
     }
 
-    public void transferConnectionState(LanMultiplayerManager sourceManager) {
-        if (sourceManager != null) {
-            this.isHost = sourceManager.isHost;
-            this.isConnected = sourceManager.isConnected;
-            this.roomCode = sourceManager.roomCode;
-            this.transferredFromBrowser = true;
-
-            Log.d(TAG, "Transferred connection state - isHost: " + isHost + ", roomCode: " + roomCode);
-
-            // Transfer the underlying discovery instance
-            if (sourceManager.lanDiscovery != null) {
-                this.lanDiscovery = sourceManager.lanDiscovery;
-                setupLanDiscovery(); // Re-setup listener for this manager
-            }
-        }
-    }
-
-    public boolean isTransferredFromBrowser() {
-        return transferredFromBrowser;
-    }
-
     public boolean isConnectedToRoom() {
         return isConnected && roomCode != null;
     }
@@ -240,6 +332,24 @@ public class LanMultiplayerManager {
         lanDiscovery.broadcastGameData(data);
     }
 
+    /**
+     * Broadcasts several updates in one network write
+     */
+    public void broadcastGameData(List<String> data) {
+        if (!isHost) {
+            Log.w(TAG, "Only host can broadcast game data");
+            return;
+        }
+
+        if (!isConnected) {
+            Log.w(TAG, "Not connected to any room");
+            return;
+        }
+
+        Log.d(TAG, "NETWORK SEND: " + data + " (broadcast batch)");
+        lanDiscovery.broadcastGameData(data);
+    }
+
     /**
      * CRITICAL FIX: Proper client-to-host communication
      * This method handles both host broadcasting and client-to-host sending
@@ -272,31 +382,29 @@ public class LanMultiplayerManager {
         return null;
     }
 
-    public List<String> getConnectedPlayerNames() {
-        List<String> names = new ArrayList<>();
-        List<EnhancedLanDiscovery.ConnectedPlayer> players = getConnectedPlayers();
+    /**
+     * Discovery answers and probes skipped to keep crowded networks quiet
+     */
+    public long getSuppressedDiscoveryResponses() {
+        return lanDiscovery != null ? lanDiscovery.getSuppressedDiscoveryResponses() : 0;
+    }
 
-        if (players != null) {
-            for (EnhancedLanDiscovery.ConnectedPlayer player : players) {
-                names.add(player.playerName);
-            }
+    /**
+     * Outbound queue statistics per player; only populated on the host
+     */
+    public Map<String, OutboundQueue.Stats> getOutboundStats() {
+        if (lanDiscovery != null) {
+            return lanDiscovery.getOutboundStats();
         }
+        return Collections.emptyMap();
+    }
 
-        // Always include local player name
-        if (localPlayerName != null && !localPlayerName.trim().isEmpty()) {
-            boolean hasLocalPlayer = false;
-            for (String name : names) {
-                if (name.equals(localPlayerName)) {
-                    hasLocalPlayer = true;
-                    break;
-                }
-            }
-            if (!hasLocalPlayer) {
-                names.add(0, localPlayerName); // Add at beginning
-            }
+    /** Everyone in the room by player ID, this device included; empty when not in one. */
+    public Map<Integer, String> getRoster() {
+        if (lanDiscovery != null) {
+            return lanDiscovery.getRoster();
         }
-
-        return names;
+        return Collections.emptyMap();
     }
 
     public boolean isHost() {
@@ -315,6 +423,14 @@ public class LanMultiplayerManager {
         return localPlayerName;
     }
 
+    /**
+     * This device's player ID in the room, the number every game message
+     * uses for it: 0 for the host, assigned on join for everyone else.
+     */
+    public int getLocalPlayerId() {
+        return lanDiscovery != null ? lanDiscovery.getLocalPlayerId() : PlayerRegistry.NO_PLAYER;
+    }
+
     public void cleanup() {
         disconnect();
     }
@@ -325,6 +441,8 @@ public class LanMultiplayerManager {
         isConnected = false;
         isHost = false;
         roomCode = null;
+        currentRound = null;
+        roundDeadlineHostMs = 0;
 
         if (lanDiscovery != null) {
             lanDiscovery.disconnect();
@@ -336,23 +454,69 @@ public class LanMultiplayerManager {
     }
 
     // Hot Potato specific game actions
-    public void broadcastMusicStart(int expectedDurationMs) {
-        sendGameAction("MUSIC_START", String.valueOf(expectedDurationMs));
+
+    /**
+     * Announces the round once; every device derives the burn threshold,
+     * music track and stop time from it, so no per-event timing is sent.
+     * The burn time goes with it on the host's clock, so every screen counts
+     * down to the same instant however late the seed reached it.
+     */
+    public void broadcastRoundSeed(RoundSeed round) {
+        long startedAtMs = ClockSync.monotonicMs();
+        currentRound = round;
+        roundDeadlineHostMs = startedAtMs + round.burnThresholdMs();
+        if (lanDiscovery != null) {
+            lanDiscovery.setRound(round, startedAtMs);
+        }
+        broadcastGameData(Arrays.asList(ACTION_ROUND_SEED + ":" + round.encode(),
+                ACTION_ROUND_DEADLINE + ":" + roundDeadlineHostMs));
     }
 
-    public void broadcastMusicStop() {
-        sendGameAction("MUSIC_STOP", "");
+    public RoundSeed getCurrentRound() {
+        return currentRound;
+    }
+
+    /**
+     * When the running round burns, on this device's
+     * {@link ClockSync#monotonicMs()}; 0 if not known. The host sends it on
+     * its own clock, with the seed and in snapshots, and clients convert it
+     * with their estimate of that clock.
+     */
+    public long getRoundDeadlineMs() {
+        if (roundDeadlineHostMs == 0 || lanDiscovery == null) return 0;
+        return lanDiscovery.hostToLocalTime(roundDeadlineHostMs);
+    }
+
+    /** Host: keeps the room snapshot's potato holder current after each accepted pass. */
+    public void updateRoomHolder(int holder, int eventSeq) {
+        if (isHost && lanDiscovery != null) {
+            lanDiscovery.setRoomHolder(holder, eventSeq);
+        }
+    }
+
+    /** Host: lets the room replay this game's missed passes to players who resume. */
+    public void setRoomGame(GameStateMachine game) {
+        if (isHost && lanDiscovery != null) {
+            lanDiscovery.setRoomGame(game);
+        }
+    }
+
+    /** Client: asks the host for the full room state when events were lost. */
+    public void requestRoomSnapshot() {
+        if (!isHost && lanDiscovery != null) {
+            lanDiscovery.requestRoomSnapshot();
+        }
     }
 
-    public void broadcastPlayerElimination(String playerName) {
-        sendGameAction("PLAYER_ELIMINATED", playerName);
+    public void broadcastPlayerElimination(int playerId) {
+        sendGameAction("PLAYER_ELIMINATED", String.valueOf(playerId));
     }
 
-    public void broadcastGameWinner(String winnerName) {
-        sendGameAction("GAME_WINNER", winnerName);
+    public void broadcastGameWinner(int winnerId) {
+        sendGameAction("GAME_WINNER", String.valueOf(winnerId));
     }
 
-    public void broadcastNextRound(String currentPlayerName) {
-        sendGameAction("NEXT_ROUND", currentPlayerName);
+    public void broadcastNextRound(int currentPlayerId) {
+        sendGameAction("NEXT_ROUND", String.valueOf(currentPlayerId));
     }
 }
@@ -0,0 +1,91 @@
+package com.tatoalu.hotpotato;
+
+/**
+ * Round-trip time and loss estimate for one discovered host, fed by small
+ * unicast probes from the room browser.
+ *
+ * RTT is smoothed the way TCP does it (gain 1/8, variance gain 1/4). A
+ * probe counts as lost if it is still unanswered when {@link #LOSS_LAG}
+ * newer probes have gone out, so slow replies are not mistaken for loss.
+ * Loss is an average over the first few verdicts and a moving average
+ * after that.
+ *
+ * Shared by the prober and the beacon listener; all methods synchronize.
+ */
+public final class LinkQuality {
+    public static final int UNKNOWN = -1;
+
+    static final int LOSS_LAG = 4;
+    private static final int WINDOW = 64;
+    private static final int LOSS_GAIN_DIVISOR = 8;
+
+    private final boolean[] acked = new boolean[WINDOW];
+    private int nextSeq;
+    private long lastProbeMs;
+
+    private double srttMs = UNKNOWN;
+    private double rttVarMs;
+    private double loss;
+    private int lossSamples;
+
+    /** Quick probes until a few are out, then one per steady interval. */
+    public synchronized boolean isProbeDue(long nowMs) {
+        long interval = nextSeq < Config.RTT_PROBE_BURST
+                ? Config.RTT_PROBE_BURST_INTERVAL_MS : Config.RTT_PROBE_INTERVAL_MS;
+        return nextSeq == 0 || nowMs - lastProbeMs >= interval;
+    }
+
+    /** Records a probe about to be sent and returns its sequence number. */
+    public synchronized int nextProbe(long nowMs) {
+        int judged = nextSeq - LOSS_LAG;
+        if (judged >= 0) {
+            double sample = acked[judged % WINDOW] ? 0 : 1;
+            lossSamples++;
+            loss += (sample - loss) / Math.min(lossSamples, LOSS_GAIN_DIVISOR);
+        }
+        acked[nextSeq % WINDOW] = false;
+        lastProbeMs = nowMs;
+        return nextSeq++;
+    }
+
+    /** A reply for probe seq; duplicates and replies outside the window are ignored. */
+    public synchronized void onReply(int seq, long rttNanos) {
+        if (seq < 0 || seq >= nextSeq || nextSeq - seq > WINDOW || acked[seq % WINDOW]) return;
+        acked[seq % WINDOW] = true;
+
+        double rtt = rttNanos / 1_000_000.0;
+        if (srttMs == UNKNOWN) {
+            srttMs = rtt;
+            rttVarMs = rtt / 2;
+        } else {
+            rttVarMs += (Math.abs(srttMs - rtt) - rttVarMs) / 4;
+            srttMs += (rtt - srttMs) / 8;
+        }
+    }
+
+    public synchronized int rttMs() {
+        return srttMs == UNKNOWN ? UNKNOWN : (int) Math.round(srttMs);
+    }
+
+    public synchronized int rttVarianceMs() {
+        return (int) Math.round(rttVarMs);
+    }
+
+    public synchronized int lossPercent() {
+        return (int) Math.round(loss * 100);
+    }
+
+    /** Lower is better; unmeasured hosts sort last. Each lost percent weighs like 4% extra RTT. */
+    public static long score(int rttMs, int lossPercent) {
+        if (rttMs == UNKNOWN) return Long.MAX_VALUE;
+        return (long) (rttMs + 1) * (100 + 4L * lossPercent);
+    }
+
+    /** 0 (unknown or barely usable) to 3 (excellent), for the signal icon. */
+    public static int signalLevel(int rttMs, int lossPercent) {
+        if (rttMs == UNKNOWN || lossPercent >= 50) return 0;
+        if (rttMs < 30 && lossPercent < 5) return 3;
+        if (rttMs < 100 && lossPercent < 20) return 2;
+        return 1;
+    }
+}
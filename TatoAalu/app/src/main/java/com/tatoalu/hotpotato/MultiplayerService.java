@@ -0,0 +1,136 @@
+package com.tatoalu.hotpotato;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.net.wifi.WifiManager;
+import android.os.Build;
+import android.os.IBinder;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+/**
+ * Keeps the multiplayer session alive while the player is in a room.
+ *
+ * There is one {@link LanMultiplayerManager} per process, built on the
+ * application context and shared by every screen through {@link #session}.
+ * Its sockets and network threads therefore outlive activity switches and
+ * configuration changes. While a room is open this foreground service holds
+ * the process up and keeps a Wi-Fi lock in low-latency mode (high-performance
+ * before Android 10), so the radio does not slip into power save when the
+ * screen dims mid-round.
+ *
+ * Screens call {@link #start} once a room is hosted or joined and
+ * {@link #endSession} when the player leaves it.
+ */
+public class MultiplayerService extends Service {
+    private static final String TAG = "MultiplayerService";
+    private static final String CHANNEL_ID = "multiplayer_session";
+    private static final int NOTIFICATION_ID = 1;
+
+    private static LanMultiplayerManager session;
+
+    private WifiManager.WifiLock wifiLock;
+
+    /** The process-wide session, created on first use. */
+    public static synchronized LanMultiplayerManager session(Context context) {
+        if (session == null) {
+            session = new LanMultiplayerManager(context.getApplicationContext());
+        }
+        return session;
+    }
+
+    /** Holds the session in the foreground; call once in a room. */
+    public static void start(Context context) {
+        ContextCompat.startForegroundService(context, new Intent(context, MultiplayerService.class));
+    }
+
+    /** Leaves the room, closes the session and lets the service go. */
+    public static void endSession(Context context) {
+        LanMultiplayerManager ended;
+        synchronized (MultiplayerService.class) {
+            ended = session;
+            session = null;
+        }
+        if (ended != null) {
+            ended.cleanup();
+        }
+        context.stopService(new Intent(context, MultiplayerService.class));
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        acquireWifiLock();
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        ServiceCompat.startForeground(this, NOTIFICATION_ID, buildNotification(),
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                        ? ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE : 0);
+        // Sockets do not survive the process; a restarted service would hold nothing
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        if (wifiLock != null && wifiLock.isHeld()) {
+            wifiLock.release();
+        }
+        wifiLock = null;
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void acquireWifiLock() {
+        WifiManager wifiManager = (WifiManager) getApplicationContext().getSystemService(Context.WIFI_SERVICE);
+        if (wifiManager == null) return;
+
+        int mode = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? WifiManager.WIFI_MODE_FULL_LOW_LATENCY : WifiManager.WIFI_MODE_FULL_HIGH_PERF;
+        try {
+            wifiLock = wifiManager.createWifiLock(mode, "TatoAalu:session");
+            wifiLock.setReferenceCounted(false);
+            wifiLock.acquire();
+        } catch (RuntimeException e) {
+            // Play on with normal Wi-Fi power saving rather than not at all
+            Log.w(TAG, "Could not acquire Wi-Fi lock", e);
+            wifiLock = null;
+        }
+    }
+
+    private Notification buildNotification() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    getString(R.string.session_channel_name), NotificationManager.IMPORTANCE_LOW);
+            getSystemService(NotificationManager.class).createNotificationChannel(channel);
+        }
+
+        // Brings the running task back as it was rather than starting a screen afresh
+        Intent open = getPackageManager().getLaunchIntentForPackage(getPackageName());
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.potato)
+                .setContentTitle(getString(R.string.session_notification_title))
+                .setContentText(getString(R.string.session_notification_text))
+                .setOngoing(true)
+                .setCategory(NotificationCompat.CATEGORY_SERVICE);
+        if (open != null) {
+            builder.setContentIntent(PendingIntent.getActivity(this, 0, open, PendingIntent.FLAG_IMMUTABLE));
+        }
+        return builder.build();
+    }
+}
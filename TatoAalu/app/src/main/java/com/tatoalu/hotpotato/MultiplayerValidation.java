@@ -38,6 +38,7 @@ public class MultiplayerValidation {
         testNetworkThreading();
         testErrorHandling();
         testMessageValidation();
+        testFullRoomFanOut();
 
         // Print summary
         printTestSummary();
@@ -62,13 +63,15 @@ public class MultiplayerValidation {
                 @Override
                 public void onRoomJoined(String roomCode, String hostName) {}
                 @Override
-                public void onPlayerJoined(String playerId, String playerName) {}
+                public void onPlayerJoined(int playerId, String playerName) {}
                 @Override
-                public void onPlayerLeft(String playerId, String playerName) {}
+                public void onPlayerLeft(int playerId, String playerName) {}
+                @Override
+                public void onRoomSnapshot(RoomState.Snapshot snapshot) {}
                 @Override
                 public void onGameStarted() {}
                 @Override
-                public void onGameDataReceived(String data) {
+                public void onGameDataReceived(int senderId, String data) {
                     if (data.contains("TEST_ACTION:test_data")) {
                         messageSent[0] = true;
                     }
@@ -208,13 +211,15 @@ public class MultiplayerValidation {
                 @Override
                 public void onRoomJoined(String roomCode, String hostName) {}
                 @Override
-                public void onPlayerJoined(String playerId, String playerName) {}
+                public void onPlayerJoined(int playerId, String playerName) {}
+                @Override
+                public void onPlayerLeft(int playerId, String playerName) {}
                 @Override
-                public void onPlayerLeft(String playerId, String playerName) {}
+                public void onRoomSnapshot(RoomState.Snapshot snapshot) {}
                 @Override
                 public void onGameStarted() {}
                 @Override
-                public void onGameDataReceived(String data) {}
+                public void onGameDataReceived(int senderId, String data) {}
                 @Override
                 public void onConnectionError(String error) {
                     errorCaught[0] = true;
@@ -299,6 +304,78 @@ public class MultiplayerValidation {
         }
     }
 
+    /**
+     * Test 7: Host fan-out in a full room. One pass per frame for ten seconds
+     * at 60 fps, each sequenced, encoded once and queued for every other
+     * player, must average within Config.HOST_FAN_OUT_BUDGET_MS so the host's
+     * own frame (Config.FRAME_BUDGET_MS) keeps room to draw.
+     */
+    private void testFullRoomFanOut() {
+        String testName = "Full Room Fan-Out";
+        totalTests++;
+
+        try {
+            RoomState<OutboundQueue> room = new RoomState<>();
+            room.reset("Host");
+            for (int i = 1; i < Config.MAX_PLAYERS; i++) {
+                room.addPlayer("Player" + i, new OutboundQueue());
+            }
+            List<Integer> ids = new ArrayList<>(room.roster().keySet());
+            if (ids.size() != Config.MAX_PLAYERS) {
+                recordTestResult(testName, false, "Only " + ids.size() + " of " + Config.MAX_PLAYERS + " players seated");
+                return;
+            }
+
+            GameStateMachine game = new GameStateMachine();
+            game.start(ids, ids.get(0));
+            WireCodec codec = new WireCodec();
+
+            int frames = 600;
+            long totalNs = 0;
+            long worstNs = 0;
+            for (int f = 0; f < frames; f++) {
+                long start = System.nanoTime();
+
+                int from = game.holder();
+                int to = ids.get((ids.indexOf(from) + 1) % ids.size());
+                GameStateMachine.Event event = game.pass(from, to, 0, 0);
+                PooledBuffer frame = codec.frame().gameData("PASS:" + event.encode()).seal();
+                for (PlayerRegistry.Entry<OutboundQueue> seated : room.players().snapshot()) {
+                    if (seated.connection != null) {
+                        seated.connection.offer(frame.retain(), OutboundQueue.Priority.CRITICAL);
+                    }
+                }
+                frame.release();
+
+                long took = System.nanoTime() - start;
+                totalNs += took;
+                worstNs = Math.max(worstNs, took);
+
+                // Stand in for the host's I/O thread so the queues stay bounded
+                for (PlayerRegistry.Entry<OutboundQueue> seated : room.players().snapshot()) {
+                    PooledBuffer sent;
+                    while (seated.connection != null && (sent = seated.connection.poll()) != null) {
+                        sent.release();
+                    }
+                }
+            }
+
+            double meanMs = totalNs / (double) frames / 1_000_000;
+            double worstMs = worstNs / 1_000_000.0;
+            String details = String.format("%d players, mean %.3f ms, worst %.3f ms per pass (budget %d ms of a %d ms frame)",
+                    ids.size(), meanMs, worstMs, Config.HOST_FAN_OUT_BUDGET_MS, Config.FRAME_BUDGET_MS);
+            if (meanMs <= Config.HOST_FAN_OUT_BUDGET_MS) {
+                recordTestResult(testName, true, details);
+                passedTests++;
+            } else {
+                recordTestResult(testName, false, details);
+            }
+
+        } catch (Exception e) {
+            recordTestResult(testName, false, "Exception in fan-out test: " + e.getMessage());
+        }
+    }
+
     /**
      * Record test result
      */
@@ -341,6 +418,7 @@ public class MultiplayerValidation {
         Log.i(TAG, "- If Game State Sync failed: Check Player class methods");
         Log.i(TAG, "- If Error Handling failed: Add try/catch and listener.onConnectionError()");
         Log.i(TAG, "- If Message Validation failed: Add bounds checking for PASS messages");
+        Log.i(TAG, "- If Full Room Fan-Out failed: Profile broadcastToClients on the host device");
         Log.i(TAG, "=====================================");
     }
 
@@ -8,17 +8,20 @@ import android.util.Log;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 
 /**
  * Music Manager for Hot Potato Game
- * Handles random music playback with random stopping for elimination mechanics
+ * Handles random music playback with random stopping for elimination mechanics.
+ * Track and stop time come from a {@link RoundSeed}, so every device in a
+ * multiplayer room plays and stops the same music without extra messages.
  */
 public class MusicManager {
     private static final String TAG = "MusicManager";
 
-    // Dynamically discover music files stored in assets/music/ folder
+    // Dynamically discover music files stored in assets/music/ folder.
+    // Sorted so a seeded track index picks the same file on every device.
     private List<String> getMusicFiles() {
         List<String> result = new ArrayList<>();
         try {
@@ -32,18 +35,15 @@ public class MusicManager {
         } catch (IOException e) {
             Log.w(TAG, "Unable to list assets/music", e);
         }
+        Collections.sort(result);
         return result;
     }
 
-    // Random timing constraints (in milliseconds)
-    private static final int MIN_PLAY_TIME = 10000; // 10 seconds minimum
-    private static final int MAX_PLAY_TIME = 30000; // 30 seconds maximum
     private static final int FADE_OUT_DURATION = 1000; // 1 second fade out
 
     private Context context;
     private MediaPlayer mediaPlayer;
     private Handler handler;
-    private Random random;
     private boolean isPlaying = false;
     private boolean isPaused = false;
 
@@ -62,7 +62,6 @@ public class MusicManager {
     public MusicManager(Context context) {
         this.context = context;
         this.handler = new Handler(Looper.getMainLooper());
-        this.random = new Random();
         initializeMediaPlayer();
     }
 
@@ -88,19 +87,38 @@ public class MusicManager {
      * Start playing random music with random stop time
      */
     public void startRandomMusic() {
+        startRoundMusic(RoundSeed.newGame());
+    }
+
+    /**
+     * Start the track and stop time derived from the round seed
+     */
+    public void startRoundMusic(RoundSeed round) {
+        startRoundMusic(round, 0);
+    }
+
+    /**
+     * Join the round's music where it stands, alreadyPlayedMs after it
+     * started elsewhere; nothing plays if it has already stopped
+     */
+    public void startRoundMusic(RoundSeed round, long alreadyPlayedMs) {
         if (isPlaying) {
             stopMusic();
         }
+        if (alreadyPlayedMs >= round.musicStopMs()) {
+            Log.d(TAG, "Round music already stopped " + (alreadyPlayedMs - round.musicStopMs()) + "ms ago");
+            return;
+        }
 
         try {
             // Select random music file from discovered assets
             List<String> musicFiles = getMusicFiles();
             if (musicFiles.isEmpty()) {
                 Log.w(TAG, "No music files found in assets/music, using fallback timer");
-                playFallbackSound();
+                playFallbackSound(round, alreadyPlayedMs);
                 return;
             }
-            String selectedMusic = musicFiles.get(random.nextInt(musicFiles.size()));
+            String selectedMusic = musicFiles.get(round.trackIndex(musicFiles.size()));
             Log.d(TAG, "Starting music: " + selectedMusic);
 
             // Check if file exists in assets
@@ -120,20 +138,24 @@ public class MusicManager {
                         Log.w(TAG, "Error closing AssetFileDescriptor", closeException);
                     }
                 }
-                playFallbackSound();
+                playFallbackSound(round, alreadyPlayedMs);
                 return;
             }
 
             mediaPlayer.prepare();
             mediaPlayer.setLooping(true); // Loop until we stop it randomly
+            int trackMs = mediaPlayer.getDuration();
+            if (alreadyPlayedMs > 0 && trackMs > 0) {
+                mediaPlayer.seekTo((int) (alreadyPlayedMs % trackMs));
+            }
             mediaPlayer.start();
 
             isPlaying = true;
             isPaused = false;
             musicStartTime = System.currentTimeMillis();
 
-            // Calculate random stop time
-            currentRandomStopTime = MIN_PLAY_TIME + random.nextInt(MAX_PLAY_TIME - MIN_PLAY_TIME);
+            // Stop time shared by every device in the round
+            currentRandomStopTime = (int) (round.musicStopMs() - alreadyPlayedMs);
             Log.d(TAG, "Music will stop after: " + currentRandomStopTime + "ms");
 
             // Notify listener that music started
@@ -146,18 +168,18 @@ public class MusicManager {
 
         } catch (IOException e) {
             Log.e(TAG, "Error starting music", e);
-            playFallbackSound();
+            playFallbackSound(round, alreadyPlayedMs);
         }
     }
 
     /**
      * Fallback to timer-based system when music files are not available
      */
-    private void playFallbackSound() {
+    private void playFallbackSound(RoundSeed round, long alreadyPlayedMs) {
         Log.d(TAG, "Using fallback timer system (no music files)");
 
         // Use a simple timer-based approach
-        currentRandomStopTime = MIN_PLAY_TIME + random.nextInt(MAX_PLAY_TIME - MIN_PLAY_TIME);
+        currentRandomStopTime = (int) (round.musicStopMs() - alreadyPlayedMs);
         isPlaying = true;
         isPaused = false;
         musicStartTime = System.currentTimeMillis();
@@ -0,0 +1,188 @@
+package com.tatoalu.hotpotato;
+
+import android.net.nsd.NsdManager;
+import android.net.nsd.NsdServiceInfo;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.net.InetAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serializes NSD resolves.
+ *
+ * NsdManager rejects a resolve while another is in flight
+ * (FAILURE_ALREADY_ACTIVE), so firing one per onServiceFound loses most of a
+ * burst. Services are queued instead and resolved one at a time:
+ * - a service already queued or in flight is not queued twice;
+ * - a resolved host:port is cached for {@link Config#NSD_RESOLVE_CACHE_TTL_MS},
+ *   so the service turning up again (e.g. after a refresh) answers at once;
+ * - failures retry with exponential backoff, and a resolve that never calls
+ *   back is given up after {@link Config#NSD_RESOLVE_TIMEOUT_MS}.
+ *
+ * All state lives on the handler's thread; NSD callbacks are posted there.
+ */
+public final class NsdResolveQueue {
+    private static final String TAG = "NsdResolveQueue";
+
+    public interface Callback {
+        void onResolved(String serviceName, String hostAddress, int port);
+    }
+
+    private static final class Pending {
+        final NsdServiceInfo info;
+        int attempts;
+
+        Pending(NsdServiceInfo info) {
+            this.info = info;
+        }
+    }
+
+    private static final class Resolved {
+        final String hostAddress;
+        final int port;
+        final long expiresAtMs;
+
+        Resolved(String hostAddress, int port, long expiresAtMs) {
+            this.hostAddress = hostAddress;
+            this.port = port;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    private final NsdManager nsdManager;
+    private final Handler handler;
+    private final Callback callback;
+
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private final Set<String> pendingNames = new HashSet<>(); // names whose result is still wanted
+    private final Map<String, Resolved> cache = new HashMap<>();
+    private Pending inFlight;
+    private int generation; // tells stale callbacks and timeouts from the current attempt
+
+    public NsdResolveQueue(NsdManager nsdManager, Handler handler, Callback callback) {
+        this.nsdManager = nsdManager;
+        this.handler = handler;
+        this.callback = callback;
+    }
+
+    /** A service was found; resolves it unless cached or already pending. */
+    public void enqueue(NsdServiceInfo info) {
+        handler.post(() -> {
+            String name = info.getServiceName();
+            Resolved cached = cache.get(name);
+            if (cached != null && cached.expiresAtMs > SystemClock.elapsedRealtime()) {
+                callback.onResolved(name, cached.hostAddress, cached.port);
+                return;
+            }
+            if (!pendingNames.add(name)) return;
+
+            queue.add(new Pending(info));
+            pump();
+        });
+    }
+
+    /** The service is gone: drop its cache entry and any queued resolve. */
+    public void forget(String serviceName) {
+        handler.post(() -> {
+            cache.remove(serviceName);
+            queue.removeIf(pending -> pending.info.getServiceName().equals(serviceName));
+            pendingNames.remove(serviceName);
+        });
+    }
+
+    /** Drops queued work but keeps the cache, so the next discovery starts warm. */
+    public void cancelPending() {
+        handler.post(() -> {
+            queue.clear();
+            pendingNames.clear(); // an in-flight result is still cached, just not reported
+        });
+    }
+
+    private void pump() {
+        if (inFlight != null || queue.isEmpty()) return;
+
+        Pending pending = queue.poll();
+        inFlight = pending;
+        int attempt = ++generation;
+
+        try {
+            nsdManager.resolveService(pending.info, new NsdManager.ResolveListener() {
+                @Override
+                public void onResolveFailed(NsdServiceInfo serviceInfo, int errorCode) {
+                    handler.post(() -> onFailed(attempt, errorCode));
+                }
+
+                @Override
+                public void onServiceResolved(NsdServiceInfo serviceInfo) {
+                    handler.post(() -> onSucceeded(attempt, serviceInfo));
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            // Listener already in use or bad service info; treat as a failed attempt
+            Log.w(TAG, "NSD resolve rejected for " + pending.info.getServiceName(), e);
+            handler.post(() -> onFailed(attempt, NsdManager.FAILURE_INTERNAL_ERROR));
+            return;
+        }
+        handler.postDelayed(() -> onFailed(attempt, NsdManager.FAILURE_INTERNAL_ERROR),
+                Config.NSD_RESOLVE_TIMEOUT_MS);
+    }
+
+    private void onSucceeded(int attempt, NsdServiceInfo serviceInfo) {
+        if (attempt != generation || inFlight == null) return;
+        Pending pending = inFlight;
+        inFlight = null;
+
+        String name = pending.info.getServiceName();
+        InetAddress host = serviceInfo.getHost();
+        if (host != null) {
+            String hostAddress = host.getHostAddress();
+            int port = serviceInfo.getPort();
+            cache.put(name, new Resolved(hostAddress, port,
+                    SystemClock.elapsedRealtime() + Config.NSD_RESOLVE_CACHE_TTL_MS));
+            if (pendingNames.remove(name)) {
+                callback.onResolved(name, hostAddress, port);
+            }
+        } else {
+            pendingNames.remove(name);
+        }
+        pump();
+    }
+
+    private void onFailed(int attempt, int errorCode) {
+        if (attempt != generation || inFlight == null) return;
+        Pending pending = inFlight;
+        inFlight = null;
+        generation++; // a late callback for this attempt is ignored
+
+        String name = pending.info.getServiceName();
+        if (pendingNames.contains(name) && ++pending.attempts < Config.NSD_RESOLVE_MAX_ATTEMPTS) {
+            long delay = (long) Config.NSD_RESOLVE_RETRY_BASE_MS << (pending.attempts - 1);
+            Log.d(TAG, "NSD resolve failed for " + name + " (" + errorCode + "), retry in " + delay + " ms");
+            handler.postDelayed(() -> {
+                // Skip if forgotten meanwhile, or found again and queued afresh
+                if (pendingNames.contains(name) && !isQueuedOrInFlight(name)) {
+                    queue.add(pending);
+                    pump();
+                }
+            }, delay);
+        } else {
+            Log.w(TAG, "NSD resolve gave up on " + name + ": " + errorCode);
+            pendingNames.remove(name);
+        }
+        pump();
+    }
+
+    private boolean isQueuedOrInFlight(String name) {
+        if (inFlight != null && inFlight.info.getServiceName().equals(name)) return true;
+        for (Pending pending : queue) {
+            if (pending.info.getServiceName().equals(name)) return true;
+        }
+        return false;
+    }
+}
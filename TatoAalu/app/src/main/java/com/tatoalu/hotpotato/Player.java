@@ -10,6 +10,8 @@ public class Player {
     public boolean hasPotato = false;
     public boolean isActive = true;
     public boolean isEliminated = false;
+    // Room ID every multiplayer message uses for this player; unset in local games
+    public int playerId = PlayerRegistry.NO_PLAYER;
 
     // UI position for player layout
     public int layoutPosition = -1; // 0=top-left, 1=bottom-right, 2=top-right, 3=bottom-left
@@ -0,0 +1,153 @@
+package com.tatoalu.hotpotato;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Speculative connections to the rooms a browsing player is most likely
+ * to join, so that joining is a single write on an open connection instead of a
+ * connect followed by the join exchange.
+ *
+ * Hosts pay a socket and a pending-join slot for each one, so they are
+ * kept on a budget: at most {@link Config#PRECONNECT_MAX_ROOMS} open or opening, each
+ * closed after {@link Config#PRECONNECT_IDLE_MS} unused or as soon as its
+ * room drops out of the likely set, and a room that lost its connection
+ * waits {@link Config#PRECONNECT_COOLDOWN_MS} before another is opened.
+ *
+ * Connections are opened through a {@link Transport}, like the join they
+ * stand in for.
+ *
+ * Thread-safe; {@link #connect} blocks and belongs on a worker thread.
+ */
+public final class PreconnectPool {
+    private static final class Warm {
+        final String host;
+        final int port;
+        final Transport.Connection connection;
+        final long openedAtMs;
+
+        Warm(String host, int port, Transport.Connection connection, long openedAtMs) {
+            this.host = host;
+            this.port = port;
+            this.connection = connection;
+            this.openedAtMs = openedAtMs;
+        }
+    }
+
+    private final Transport transport;
+    private final int maxRooms;
+    private final long idleMs;
+    private final long cooldownMs;
+
+    private final Map<Long, Warm> open = new HashMap<>();
+    private final Map<Long, Integer> connecting = new HashMap<>(); // room -> generation at reserve
+    private final Map<Long, Long> cooldownUntil = new HashMap<>();
+    private int generation; // bumped by closeAll so connects still in flight are discarded
+
+    public PreconnectPool(Transport transport) {
+        this(transport, Config.PRECONNECT_MAX_ROOMS, Config.PRECONNECT_IDLE_MS, Config.PRECONNECT_COOLDOWN_MS);
+    }
+
+    public PreconnectPool(Transport transport, int maxRooms, long idleMs, long cooldownMs) {
+        this.transport = transport;
+        this.maxRooms = maxRooms;
+        this.idleMs = idleMs;
+        this.cooldownMs = cooldownMs;
+    }
+
+    /** Claims a slot for this room if it has none, the budget allows and it is not cooling down. */
+    public synchronized boolean reserve(long roomId, long nowMs) {
+        if (open.containsKey(roomId) || connecting.containsKey(roomId)) return false;
+        if (open.size() + connecting.size() >= maxRooms) return false;
+        Long until = cooldownUntil.get(roomId);
+        if (until != null && nowMs < until) return false;
+
+        connecting.put(roomId, generation);
+        return true;
+    }
+
+    /** Opens the reserved connection. Failures only start the room's cooldown. */
+    public void connect(long roomId, String host, int port) {
+        Integer reservedAt;
+        synchronized (this) {
+            reservedAt = connecting.get(roomId);
+        }
+        if (reservedAt == null) return; // released before we got here
+
+        Transport.Connection connection;
+        try {
+            connection = transport.connect(host, port, Config.SOCKET_CONNECT_TIMEOUT_MS);
+        } catch (IOException e) {
+            synchronized (this) {
+                if (release(roomId, reservedAt)) {
+                    cooldownUntil.put(roomId, System.currentTimeMillis() + cooldownMs);
+                }
+            }
+            return;
+        }
+
+        synchronized (this) {
+            if (release(roomId, reservedAt)) {
+                open.put(roomId, new Warm(host, port, connection, System.currentTimeMillis()));
+                return;
+            }
+        }
+        closeQuietly(connection); // released while connecting
+    }
+
+    // True if the reservation is still the one this connect was started for
+    private boolean release(long roomId, Integer reservedAt) {
+        if (!reservedAt.equals(connecting.get(roomId)) || reservedAt != generation) return false;
+        connecting.remove(roomId);
+        return true;
+    }
+
+    /**
+     * Hands over the warm connection for a room, or null. One to another
+     * address, or one past its idle budget, is closed instead.
+     */
+    public synchronized Transport.Connection take(long roomId, String host, int port) {
+        Warm warm = open.remove(roomId);
+        if (warm == null) return null;
+        if (!warm.host.equals(host) || warm.port != port
+                || System.currentTimeMillis() - warm.openedAtMs > idleMs) {
+            closeQuietly(warm.connection);
+            return null;
+        }
+        return warm.connection;
+    }
+
+    /** Closes connections to rooms no longer likely, and ones idle too long. */
+    public synchronized void retainOnly(Collection<Long> likelyRooms, long nowMs) {
+        for (Iterator<Map.Entry<Long, Warm>> it = open.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Warm> entry = it.next();
+            if (!likelyRooms.contains(entry.getKey()) || nowMs - entry.getValue().openedAtMs > idleMs) {
+                closeQuietly(entry.getValue().connection);
+                it.remove();
+                cooldownUntil.put(entry.getKey(), nowMs + cooldownMs);
+            }
+        }
+        cooldownUntil.values().removeIf(until -> until <= nowMs);
+    }
+
+    public synchronized void closeAll() {
+        for (Warm warm : open.values()) {
+            closeQuietly(warm.connection);
+        }
+        open.clear();
+        connecting.clear();
+        cooldownUntil.clear();
+        generation++;
+    }
+
+    private static void closeQuietly(Transport.Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+            // Nothing was sent on it
+        }
+    }
+}
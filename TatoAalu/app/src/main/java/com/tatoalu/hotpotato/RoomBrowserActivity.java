@@ -20,7 +20,9 @@ import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 /**
@@ -28,12 +30,10 @@ import java.util.Random;
  * Shows available Hot Potato rooms on local network
  * Allows creating new rooms or joining existing ones
  */
-public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLanDiscovery.LanDiscoveryListener {
+public class RoomBrowserActivity extends AppCompatActivity
+        implements LanMultiplayerManager.LanMultiplayerListener, LanMultiplayerManager.RoomBrowserListener {
     private static final String TAG = "RoomBrowserActivity";
 
-    // Static reference to transfer connection state to GameActivity
-    public static LanMultiplayerManager transferManager = null;
-
     // Network executor for background operations
     private java.util.concurrent.ExecutorService networkExecutor;
 
@@ -49,11 +49,11 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
     private MaterialButton backButton;
     private MaterialCardView noRoomsCard;
 
-    // Discovery and networking
-    private EnhancedLanDiscovery lanDiscovery;
+    // Discovery and networking, all through the process-wide session
     private LanMultiplayerManager lanMultiplayerManager;
     private RoomListAdapter roomAdapter;
-    private List<EnhancedLanDiscovery.DiscoveredRoom> discoveredRooms;
+    // Rooms by ID in discovery order; main thread only
+    private final Map<Long, EnhancedLanDiscovery.DiscoveredRoom> discoveredRooms = new LinkedHashMap<>();
     private boolean isDiscovering = false;
     private String playerName = "Player";
 
@@ -97,8 +97,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
     }
 
     private void setupRecyclerView() {
-        discoveredRooms = new ArrayList<>();
-        roomAdapter = new RoomListAdapter(discoveredRooms, this::joinRoom);
+        roomAdapter = new RoomListAdapter(this::joinRoom);
 
         roomsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         roomsRecyclerView.setAdapter(roomAdapter);
@@ -115,16 +114,20 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
 
     private void setupNetworking() {
         android.util.Log.d(TAG, "🔧 Setting up networking with player name: " + playerName);
-        lanDiscovery = new EnhancedLanDiscovery(this);
-        lanMultiplayerManager = new LanMultiplayerManager(this);
-        lanDiscovery.setListener(this);
+        lanMultiplayerManager = MultiplayerService.session(this);
+        lanMultiplayerManager.setListener(this);
+        lanMultiplayerManager.setRoomBrowserListener(this);
         lanMultiplayerManager.setLocalPlayerName(playerName);
-        lanDiscovery.setLocalPlayerName(playerName);
         android.util.Log.d(TAG, "✅ Network discovery initialized");
     }
 
     private void setupButtons() {
         createRoomButton.setOnClickListener(v -> createRoom());
+        // Hub: a long press serves another room from this device instead of playing in one
+        createRoomButton.setOnLongClickListener(v -> {
+            openHubRoom();
+            return true;
+        });
         refreshButton.setOnClickListener(v -> refreshRooms());
         backButton.setOnClickListener(v -> finish());
 
@@ -140,7 +143,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         String newName = playerNameInput.getText().toString().trim();
         if (!newName.isEmpty() && !newName.equals(playerName)) {
             playerName = newName;
-            lanDiscovery.setLocalPlayerName(playerName);
+            lanMultiplayerManager.setLocalPlayerName(playerName);
         }
     }
 
@@ -159,7 +162,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         // Run discovery on background thread
         networkExecutor.execute(() -> {
             try {
-                lanDiscovery.startDiscovery();
+                lanMultiplayerManager.startDiscovery();
                 android.util.Log.d(TAG, "✅ Discovery started successfully");
             } catch (Exception e) {
                 android.util.Log.e(TAG, "❌ Failed to start discovery: " + e.getMessage(), e);
@@ -183,7 +186,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         // Run stop on background thread
         networkExecutor.execute(() -> {
             try {
-                lanDiscovery.stopDiscovery();
+                lanMultiplayerManager.stopDiscovery();
                 android.util.Log.d(TAG, "✅ Discovery stopped successfully");
             } catch (Exception e) {
                 android.util.Log.e(TAG, "❌ Error stopping discovery: " + e.getMessage(), e);
@@ -199,8 +202,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
     private void refreshRooms() {
         android.util.Log.d(TAG, "🔄 Refreshing rooms - clearing current list of " + discoveredRooms.size() + " rooms");
         discoveredRooms.clear();
-        roomAdapter.notifyDataSetChanged();
-        updateUIState();
+        submitRooms();
 
         stopDiscovery();
 
@@ -240,7 +242,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         // Start hosting on background thread
         networkExecutor.execute(() -> {
             try {
-                lanDiscovery.hostRoom(roomCode);
+                lanMultiplayerManager.createRoom(roomCode);
                 android.util.Log.d(TAG, "✅ Room hosting initiated for: " + roomCode);
             } catch (Exception e) {
                 android.util.Log.e(TAG, "❌ Failed to host room: " + e.getMessage(), e);
@@ -253,8 +255,28 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         });
     }
 
-    private void joinRoom(EnhancedLanDiscovery.DiscoveredRoom room) {
+    /**
+     * Serves a room from this device that nearby players join and play in
+     * without us; rounds start by themselves. A tablet left on this screen
+     * can run several side by side. Leaving the screen closes them.
+     */
+    private void openHubRoom() {
+        String roomCode = generateRoomCode();
+        if (!lanMultiplayerManager.openHubRoom(roomCode)) {
+            Toast.makeText(this, "No more hub rooms can open on this device", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        MultiplayerService.start(this);
+        int open = lanMultiplayerManager.getHubRoomCodes().size();
+        android.util.Log.d(TAG, "🏟️ Hub room " + roomCode + " open (" + open + " running)");
+        statusTextView.setText("🏟️ Hub rooms running: " + open);
+        Toast.makeText(this, "Hub room " + roomCode + " is open", Toast.LENGTH_SHORT).show();
+    }
+
+    private void joinRoom(EnhancedLanDiscovery.DiscoveredRoom selected) {
         updatePlayerName();
+        EnhancedLanDiscovery.DiscoveredRoom room = fastestHostFor(selected);
 
         if (playerName.trim().isEmpty()) {
             android.util.Log.w(TAG, "❌ Cannot join room - player name is empty");
@@ -276,7 +298,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         // Attempt to join the room on background thread
         networkExecutor.execute(() -> {
             try {
-                lanDiscovery.joinRoom(room);
+                lanMultiplayerManager.joinRoom(room);
                 android.util.Log.d(TAG, "✅ Join request sent for room: " + room.roomCode);
             } catch (Exception e) {
                 android.util.Log.e(TAG, "❌ Failed to join room: " + e.getMessage(), e);
@@ -294,9 +316,11 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         android.util.Log.d(TAG, "   Is Host: " + isHost);
         android.util.Log.d(TAG, "   Player Name: " + playerName);
 
-        // Transfer the connection state to GameActivity
-        transferManager = lanMultiplayerManager;
-        android.util.Log.d(TAG, "🔄 Transferring connection state to GameActivity");
+        // GameActivity carries on with the same session; the service keeps it up meanwhile
+        stopDiscovery();
+        lanMultiplayerManager.setRoomBrowserListener(null);
+        MultiplayerService.start(this);
+        android.util.Log.d(TAG, "🔄 Handing the session over to GameActivity");
 
         Intent intent = new Intent(this, GameActivity.class);
         intent.putExtra("gameMode", "multiplayer");
@@ -336,7 +360,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
             roomsRecyclerView.setVisibility(View.VISIBLE);
 
             int joinableRooms = 0;
-            for (EnhancedLanDiscovery.DiscoveredRoom room : discoveredRooms) {
+            for (EnhancedLanDiscovery.DiscoveredRoom room : discoveredRooms.values()) {
                 if (room.isJoinable) joinableRooms++;
             }
 
@@ -344,22 +368,55 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         }
     }
 
-    // EnhancedLanDiscovery.LanDiscoveryListener implementation
+    // LanMultiplayerManager.RoomBrowserListener implementation
     @Override
-    public void onRoomsDiscovered(List<EnhancedLanDiscovery.DiscoveredRoom> rooms) {
-        android.util.Log.d(TAG, "🎮 Discovered " + rooms.size() + " rooms:");
-        for (EnhancedLanDiscovery.DiscoveredRoom room : rooms) {
-            android.util.Log.d(TAG, "   Room: " + room.roomCode + " by " + room.hostName +
-                               " at " + room.hostAddress + ":" + room.hostPort +
-                               " (joinable: " + room.isJoinable + ")");
+    public void onRoomAdded(EnhancedLanDiscovery.DiscoveredRoom room) {
+        android.util.Log.d(TAG, "🎮 Room found: " + room.roomCode + " by " + room.hostName +
+                           " at " + room.hostAddress + ":" + room.hostPort +
+                           " (joinable: " + room.isJoinable + ")");
+        discoveredRooms.put(room.roomId, room);
+        submitRooms();
+    }
+
+    @Override
+    public void onRoomUpdated(EnhancedLanDiscovery.DiscoveredRoom room) {
+        discoveredRooms.put(room.roomId, room);
+        submitRooms();
+    }
+
+    @Override
+    public void onRoomRemoved(long roomId) {
+        if (discoveredRooms.remove(roomId) != null) {
+            submitRooms();
         }
+    }
 
-        runOnUiThread(() -> {
-            discoveredRooms.clear();
-            discoveredRooms.addAll(rooms);
-            roomAdapter.notifyDataSetChanged();
-            updateUIState();
-        });
+    // Discovery callbacks arrive on the main thread; the adapter diffs the copy in the background.
+    // Best measured link first; unmeasured rooms keep discovery order at the end.
+    private void submitRooms() {
+        List<EnhancedLanDiscovery.DiscoveredRoom> rooms = new ArrayList<>(discoveredRooms.values());
+        rooms.sort((a, b) -> Long.compare(a.qualityScore(), b.qualityScore()));
+        roomAdapter.submitRooms(rooms);
+        updateUIState();
+    }
+
+    /**
+     * The same room code can be visible through several hosts (e.g. across
+     * access points); steer the player to the joinable one with the best link.
+     */
+    private EnhancedLanDiscovery.DiscoveredRoom fastestHostFor(EnhancedLanDiscovery.DiscoveredRoom selected) {
+        EnhancedLanDiscovery.DiscoveredRoom best = selected;
+        for (EnhancedLanDiscovery.DiscoveredRoom room : discoveredRooms.values()) {
+            if (room.isJoinable && room.roomCode.equals(selected.roomCode)
+                    && room.qualityScore() < best.qualityScore()) {
+                best = room;
+            }
+        }
+        if (best != selected) {
+            android.util.Log.d(TAG, "📶 Room " + selected.roomCode + ": using " + best.hostAddress +
+                               " (" + best.rttMs + " ms) instead of " + selected.hostAddress);
+        }
+        return best;
     }
 
     @Override
@@ -376,26 +433,21 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
     }
 
     @Override
-    public void onRoomHosted(String roomCode, int port) {
-        android.util.Log.d(TAG, "✅ Successfully hosted room: " + roomCode + " on port: " + port + " as HOST");
+    public void onRoomCreated(String roomCode) {
+        android.util.Log.d(TAG, "✅ Successfully hosted room: " + roomCode + " as HOST");
 
         runOnUiThread(() -> {
             statusTextView.setText("✅ Room " + roomCode + " created! Waiting for players...");
             createRoomButton.setEnabled(true);
             Toast.makeText(this, "Room created! Share code: " + roomCode, Toast.LENGTH_LONG).show();
 
-            // Update multiplayer manager state
-            if (lanMultiplayerManager != null) {
-                lanMultiplayerManager.setLocalPlayerName(playerName);
-            }
-
             // Launch game activity as HOST
             launchGameActivity(roomCode, true);
         });
     }
 
     @Override
-    public void onPlayerJoined(String playerId, String playerName) {
+    public void onPlayerJoined(int playerId, String playerName) {
         android.util.Log.d(TAG, "🎮 Player joined: " + playerName + " (ID: " + playerId + ")");
 
         runOnUiThread(() -> {
@@ -404,7 +456,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
     }
 
     @Override
-    public void onPlayerLeft(String playerId, String playerName) {
+    public void onPlayerLeft(int playerId, String playerName) {
         android.util.Log.d(TAG, "👋 Player left: " + playerName + " (ID: " + playerId + ")");
 
         runOnUiThread(() -> {
@@ -412,6 +464,11 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         });
     }
 
+    @Override
+    public void onRoomSnapshot(RoomState.Snapshot snapshot) {
+        android.util.Log.d(TAG, "📋 Room snapshot: " + snapshot.roster.size() + " players");
+    }
+
     @Override
     public void onGameStarted() {
         runOnUiThread(() -> {
@@ -420,7 +477,7 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
     }
 
     @Override
-    public void onGameDataReceived(String data) {
+    public void onGameDataReceived(int senderId, String data) {
         // Handle game data if needed
     }
 
@@ -435,6 +492,11 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
         });
     }
 
+    @Override
+    public void onDisconnected() {
+        android.util.Log.d(TAG, "🔌 Disconnected from room");
+    }
+
     @Override
     public void onDiscoveryStateChanged(boolean isDiscovering) {
         android.util.Log.d(TAG, "🔄 Discovery state changed: " + (isDiscovering ? "STARTED" : "STOPPED"));
@@ -458,6 +520,13 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
     protected void onResume() {
         super.onResume();
 
+        // Back from a game the session may be a new one, and listens to us again
+        LanMultiplayerManager current = MultiplayerService.session(this);
+        if (current != lanMultiplayerManager) {
+            isDiscovering = false;
+        }
+        setupNetworking();
+
         // Restart discovery if we came back from a game
         if (!isDiscovering) {
             refreshRooms();
@@ -478,16 +547,15 @@ public class RoomBrowserActivity extends AppCompatActivity implements EnhancedLa
 
         android.util.Log.d(TAG, "🧹 Cleaning up RoomBrowserActivity");
 
-        // Only cleanup if we're not transferring to GameActivity
-        if (transferManager == null) {
-            if (lanDiscovery != null) {
-                lanDiscovery.disconnect();
-            }
-            if (lanMultiplayerManager != null) {
-                lanMultiplayerManager.cleanup();
+        // Leaving the browser ends the session, hub rooms included, unless a game is running on it
+        if (lanMultiplayerManager != null) {
+            lanMultiplayerManager.setListener(null);
+            lanMultiplayerManager.setRoomBrowserListener(null);
+            if (isFinishing() && !lanMultiplayerManager.isConnectedToRoom()) {
+                MultiplayerService.endSession(this);
+            } else {
+                android.util.Log.d(TAG, "🔄 Skipping cleanup - session stays with the game");
             }
-        } else {
-            android.util.Log.d(TAG, "🔄 Skipping cleanup - connection transferred to GameActivity");
         }
 
         if (networkExecutor != null && !networkExecutor.isShutdown()) {
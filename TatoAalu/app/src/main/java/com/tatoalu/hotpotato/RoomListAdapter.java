@@ -7,6 +7,9 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.button.MaterialButton;
@@ -16,18 +19,50 @@ import java.util.List;
 
 /**
  * RecyclerView Adapter for displaying discovered LAN rooms
+ *
+ * Lists are diffed off the main thread by {@link AsyncListDiffer}, keyed by
+ * room ID, so a beacon only touches the card it is about. A card whose
+ * occupancy or measured link changed gets a partial rebind of just those views.
  */
 public class RoomListAdapter extends RecyclerView.Adapter<RoomListAdapter.RoomViewHolder> {
 
-    private List<EnhancedLanDiscovery.DiscoveredRoom> rooms;
+    // Change payload: only player count, joinability or link quality differ
+    private static final Object PAYLOAD_STATUS = new Object();
+
+    private static final DiffUtil.ItemCallback<EnhancedLanDiscovery.DiscoveredRoom> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<EnhancedLanDiscovery.DiscoveredRoom>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull EnhancedLanDiscovery.DiscoveredRoom oldRoom,
+                                               @NonNull EnhancedLanDiscovery.DiscoveredRoom newRoom) {
+                    return oldRoom.roomId == newRoom.roomId;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull EnhancedLanDiscovery.DiscoveredRoom oldRoom,
+                                                  @NonNull EnhancedLanDiscovery.DiscoveredRoom newRoom) {
+                    return sameHeader(oldRoom, newRoom) && sameOccupancy(oldRoom, newRoom)
+                            && oldRoom.rttMs == newRoom.rttMs && oldRoom.lossPercent == newRoom.lossPercent
+                            && oldRoom.hostPort == newRoom.hostPort
+                            && oldRoom.hostAddress.equals(newRoom.hostAddress);
+                }
+
+                @Nullable
+                @Override
+                public Object getChangePayload(@NonNull EnhancedLanDiscovery.DiscoveredRoom oldRoom,
+                                               @NonNull EnhancedLanDiscovery.DiscoveredRoom newRoom) {
+                    return sameHeader(oldRoom, newRoom) ? PAYLOAD_STATUS : null;
+                }
+            };
+
+    private final AsyncListDiffer<EnhancedLanDiscovery.DiscoveredRoom> differ =
+            new AsyncListDiffer<>(this, DIFF_CALLBACK);
     private OnRoomClickListener onRoomClickListener;
 
     public interface OnRoomClickListener {
         void onRoomClick(EnhancedLanDiscovery.DiscoveredRoom room);
     }
 
-    public RoomListAdapter(List<EnhancedLanDiscovery.DiscoveredRoom> rooms, OnRoomClickListener listener) {
-        this.rooms = rooms;
+    public RoomListAdapter(OnRoomClickListener listener) {
         this.onRoomClickListener = listener;
     }
 
@@ -41,19 +76,36 @@ public class RoomListAdapter extends RecyclerView.Adapter<RoomListAdapter.RoomVi
 
     @Override
     public void onBindViewHolder(@NonNull RoomViewHolder holder, int position) {
-        EnhancedLanDiscovery.DiscoveredRoom room = rooms.get(position);
+        EnhancedLanDiscovery.DiscoveredRoom room = differ.getCurrentList().get(position);
         holder.bind(room, onRoomClickListener);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RoomViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        EnhancedLanDiscovery.DiscoveredRoom room = differ.getCurrentList().get(position);
+        holder.bindOccupancy(room, onRoomClickListener);
+    }
+
     @Override
     public int getItemCount() {
-        return rooms.size();
+        return differ.getCurrentList().size();
     }
 
-    public void updateRooms(List<EnhancedLanDiscovery.DiscoveredRoom> newRooms) {
-        this.rooms.clear();
-        this.rooms.addAll(newRooms);
-        notifyDataSetChanged();
+    /** The list must not be modified afterwards; pass a fresh copy each time. */
+    public void submitRooms(List<EnhancedLanDiscovery.DiscoveredRoom> newRooms) {
+        differ.submitList(newRooms);
+    }
+
+    private static boolean sameHeader(EnhancedLanDiscovery.DiscoveredRoom a, EnhancedLanDiscovery.DiscoveredRoom b) {
+        return a.roomCode.equals(b.roomCode) && a.hostName.equals(b.hostName);
+    }
+
+    private static boolean sameOccupancy(EnhancedLanDiscovery.DiscoveredRoom a, EnhancedLanDiscovery.DiscoveredRoom b) {
+        return a.playerCount == b.playerCount && a.maxPlayers == b.maxPlayers && a.isJoinable == b.isJoinable;
     }
 
     static class RoomViewHolder extends RecyclerView.ViewHolder {
@@ -88,6 +140,11 @@ public class RoomListAdapter extends RecyclerView.Adapter<RoomListAdapter.RoomVi
             // Set host name
             hostNameText.setText("Hosted by " + room.hostName);
 
+            bindOccupancy(room, listener);
+        }
+
+        // Everything that follows player count, joinability and link quality, plus the join targets
+        void bindOccupancy(EnhancedLanDiscovery.DiscoveredRoom room, OnRoomClickListener listener) {
             // Set player count
             playerCountText.setText(room.playerCount + "/" + room.maxPlayers);
 
@@ -96,7 +153,8 @@ public class RoomListAdapter extends RecyclerView.Adapter<RoomListAdapter.RoomVi
 
             if (isJoinable) {
                 // Room is available
-                statusText.setText("Available");
+                statusText.setText(room.rttMs == LinkQuality.UNKNOWN
+                        ? "Available" : "Available · " + room.rttMs + " ms");
                 statusText.setTextColor(itemView.getContext().getColor(R.color.flame_green));
                 signalIcon.setImageResource(android.R.drawable.presence_online);
                 signalIcon.setColorFilter(itemView.getContext().getColor(R.color.flame_green));
@@ -136,17 +194,21 @@ public class RoomListAdapter extends RecyclerView.Adapter<RoomListAdapter.RoomVi
                 playerCountCard.setCardBackgroundColor(itemView.getContext().getColor(R.color.flame_red));
             }
 
-            // Calculate connection quality based on last seen time
-            long timeSinceLastSeen = System.currentTimeMillis() - room.lastSeen;
-            if (timeSinceLastSeen < 5000) {
-                // Very recent - excellent connection
-                signalIcon.setAlpha(1.0f);
-            } else if (timeSinceLastSeen < 10000) {
-                // Somewhat recent - good connection
-                signalIcon.setAlpha(0.8f);
-            } else {
-                // Old - weak connection
-                signalIcon.setAlpha(0.5f);
+            // Connection quality from the measured RTT and loss
+            switch (LinkQuality.signalLevel(room.rttMs, room.lossPercent)) {
+                case 3:
+                    signalIcon.setAlpha(1.0f);
+                    break;
+                case 2:
+                    signalIcon.setAlpha(0.8f);
+                    break;
+                case 1:
+                    signalIcon.setAlpha(0.6f);
+                    break;
+                default:
+                    // Not measured yet, or barely answering
+                    signalIcon.setAlpha(0.4f);
+                    break;
             }
 
             // Set up click listener for the entire card
@@ -0,0 +1,45 @@
+package com.tatoalu.hotpotato;
+
+/**
+ * Adaptive timing for room beacons.
+ *
+ * A room that just opened or changed announces itself in a quick burst, so
+ * browsers see it within a few hundred milliseconds, then backs off by
+ * doubling the gap until it settles at a slow steady rate. Nothing about a
+ * quiet room is news, so the steady rate only has to keep it from expiring
+ * on listeners.
+ *
+ * Not thread-safe; the beacon thread owns it.
+ */
+public final class BeaconScheduler {
+    private final long burstIntervalMs;
+    private final long steadyIntervalMs;
+    private long intervalMs;
+
+    public BeaconScheduler() {
+        this(Config.BEACON_BURST_INTERVAL_MS, Config.BEACON_STEADY_INTERVAL_MS);
+    }
+
+    public BeaconScheduler(long burstIntervalMs, long steadyIntervalMs) {
+        this.burstIntervalMs = burstIntervalMs;
+        this.steadyIntervalMs = steadyIntervalMs;
+        this.intervalMs = burstIntervalMs;
+    }
+
+    /** Something listeners should hear about soon: restart the burst. */
+    public void reset() {
+        intervalMs = burstIntervalMs;
+    }
+
+    /** Delay before the next beacon; each call backs off further. */
+    public long nextDelayMs() {
+        long delay = intervalMs;
+        intervalMs = Math.min(steadyIntervalMs, intervalMs * 2);
+        return delay;
+    }
+
+    /** True while still in the fast phase, where a reset would change nothing. */
+    public boolean inBurst() {
+        return intervalMs < steadyIntervalMs;
+    }
+}
@@ -0,0 +1,45 @@
+package com.tatoalu.hotpotato;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free pool of {@link PooledBuffer}s so steady-state encoding
+ * (ticks, passes) reuses arrays instead of creating garbage per message.
+ * Buffers that grew far beyond the default size are left to the GC.
+ */
+public final class BufferPool {
+    private final ConcurrentLinkedQueue<PooledBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+    private final int bufferSize;
+    private final int maxPooled;
+
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    public PooledBuffer acquire() {
+        PooledBuffer buffer = free.poll();
+        if (buffer == null) {
+            buffer = new PooledBuffer(this, bufferSize);
+        } else {
+            pooled.decrementAndGet();
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    void recycle(PooledBuffer buffer) {
+        if (buffer.capacity() > bufferSize * 4) return;
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        free.offer(buffer);
+    }
+
+    public int pooledCount() {
+        return pooled.get();
+    }
+}
@@ -0,0 +1,86 @@
+package com.tatoalu.hotpotato;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NTP-style estimate of the host clock as seen from a client.
+ *
+ * The client stamps a request with its own clock (t0), the host answers with
+ * its clock at receipt (t1), and the client stamps the answer on arrival (t3).
+ * Assuming symmetric paths, offset = t1 - (t0 + t3) / 2 and rtt = t3 - t0.
+ *
+ * Wi-Fi jitter makes single samples noisy, so only the last
+ * {@link Config#CLOCK_SYNC_WINDOW} samples are kept and the one with the
+ * lowest round trip wins: queueing delay only ever adds to the RTT, so the
+ * fastest exchange is the one least skewed by it. Thread-safe.
+ */
+public final class ClockSync {
+    private final long[] offsets;
+    private final long[] rtts;
+    private int count;
+    private int next;
+
+    private volatile long offsetMs;
+    private volatile long rttMs = -1;
+
+    public ClockSync() {
+        this(Config.CLOCK_SYNC_WINDOW);
+    }
+
+    public ClockSync(int window) {
+        offsets = new long[window];
+        rtts = new long[window];
+    }
+
+    /** Monotonic clock every side of the protocol stamps with. */
+    public static long monotonicMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /** Records one request/response exchange. */
+    public synchronized void addSample(long clientSendMs, long hostMs, long clientReceiveMs) {
+        long rtt = clientReceiveMs - clientSendMs;
+        if (rtt < 0) return;
+
+        offsets[next] = hostMs - (clientSendMs + clientReceiveMs) / 2;
+        rtts[next] = rtt;
+        next = (next + 1) % offsets.length;
+        if (count < offsets.length) count++;
+
+        int best = 0;
+        for (int i = 1; i < count; i++) {
+            if (rtts[i] < rtts[best]) best = i;
+        }
+        offsetMs = offsets[best];
+        rttMs = rtts[best];
+    }
+
+    public boolean hasEstimate() {
+        return rttMs >= 0;
+    }
+
+    /** Host clock minus local clock; 0 until the first sample arrives. */
+    public long offsetMs() {
+        return offsetMs;
+    }
+
+    /** Round trip of the sample the offset came from, or -1 without one. */
+    public long rttMs() {
+        return rttMs;
+    }
+
+    public long toLocalTime(long hostMs) {
+        return hostMs - offsetMs;
+    }
+
+    public long toHostTime(long localMs) {
+        return localMs + offsetMs;
+    }
+
+    public synchronized void reset() {
+        count = 0;
+        next = 0;
+        offsetMs = 0;
+        rttMs = -1;
+    }
+}
@@ -0,0 +1,82 @@
+package com.tatoalu.hotpotato;
+
+// कन्फिगरेसन सेटिङहरू - खेल र नेटवर्क पैरामिटरहरू (Configuration Settings - Game and Network Parameters)
+public final class Config {
+    private Config() {} // इन्स्ट्यान्सिएसन रोक्नुहोस् (Prevent instantiation)
+
+    // नेटवर्क कन्फिगरेसन (Network Configuration)
+    public static final int MAX_PLAYERS = 64; // अधिकतम खेलाडीहरू, होस्ट सहित (Maximum players, host included)
+    public static final int MAX_PLAYER_NAME_LENGTH = 24; // ६४ जनाको स्न्यापसट एउटै सन्देशमा अटाउँछ (Keeps a 64-player snapshot within one message)
+    public static final int MAX_FRAME_SIZE = 64 * 1024; // ६४ KB अधिकतम फ्रेम, धेरै सन्देशहरू सहित (64 KB max frame, many messages)
+    public static final boolean WIRE_DEBUG_JSON = false; // डिबगको लागि JSON सन्देशहरू (JSON messages for debugging)
+    public static final int WIRE_BUFFER_SIZE = 256; // पूल बफरको सुरु आकार (Initial pooled buffer size)
+    public static final int WIRE_POOL_SIZE = 64; // पूलमा राखिने अधिकतम बफरहरू (Max buffers kept in the pool)
+
+    // बहिर्गमन लाम (Outbound queue) - प्रति जडान (per connection)
+    public static final int OUTBOUND_HIGH_WATERMARK_BYTES = 64 * 1024; // यसपछि नयाँ फ्रेम अस्वीकार (Reject new frames above this)
+    public static final int OUTBOUND_LOW_WATERMARK_BYTES = 16 * 1024; // यहाँसम्म खाली भएपछि फेरि स्वीकार (Accept again once drained to this)
+    public static final int OUTBOUND_STALL_TIMEOUT_MS = 3000; // यति बेर भरिएमा क्लाइन्ट हटाउनुहोस् (Evict client if full this long)
+    public static final int OUTBOUND_BATCH_BYTES = 8 * 1024; // लाममा पर्खिरहेका फ्रेमहरू एउटै लेखाइमा (Queued frames coalesced into one write)
+    
+    // समय कन्फिगरेसन (Timing Configuration)
+    public static final int FRAME_BUDGET_MS = 1000 / 60; // ६० fps को एउटा फ्रेम (One frame at 60 fps)
+    public static final int HOST_FAN_OUT_BUDGET_MS = 2; // पूरा कोठामा एउटा पास पठाउने होस्ट समय (Host time to fan one pass out to a full room)
+    public static final int PASS_PREDICTION_TIMEOUT_MS = 1000; // जवाफ नआएको अनुमानित पास फिर्ता (Roll back unanswered predicted passes)
+    public static final int GAME_EVENT_BUFFER_SIZE = 32; // क्रमभन्दा अगाडि आएका घटना (Out-of-order events held before a resync)
+    public static final int GAME_EVENT_LOG_SIZE = 256; // पुनः जडानमा दोहोर्याउन राखिएका घटना (Events kept for replay on resume)
+
+    // घडी मिलान (Clock sync)
+    public static final int CLOCK_SYNC_WINDOW = 8; // राखिने नमूनाहरू (Samples kept for filtering)
+    public static final int CLOCK_SYNC_BURST = 8; // सामेल भएपछि छिटो नमूनाहरू (Quick samples after joining)
+    public static final int CLOCK_SYNC_BURST_INTERVAL_MS = 200; // छिटो नमूना अन्तराल (Quick sample interval)
+    public static final int CLOCK_SYNC_INTERVAL_MS = 5000; // निरन्तर नमूना अन्तराल (Steady sample interval)
+
+    // पुनः जडान (Reconnect) - होस्टले सिट राख्ने समयभित्र (within the time the host keeps the seat)
+    public static final int CLIENT_RECONNECT_BASE_MS = 250; // ब्याकअफ आधार, दोब्बरिँदै (Backoff base, doubling)
+    public static final int CLIENT_RECONNECT_MAX_MS = 4000; // अधिकतम ब्याकअफ (Backoff cap)
+    public static final int CLIENT_RECONNECT_MAX_ATTEMPTS = 6; // छोड्नु अघि प्रयासहरू (Attempts before giving up)
+    public static final int CLIENT_READ_TIMEOUT_MS = 12000; // होस्ट यति बेर चुप भए जडान छुटेको मान्ने, दुई घडी नमूनाभन्दा बढी (Host silence taken as a drop; over two clock samples)
+
+    // कोठा बीकन (Room beacons) - खुल्दा/बदलिँदा छिटो, त्यसपछि ढिलो (fast when opened or changed, then slow)
+    public static final int BEACON_BURST_INTERVAL_MS = 100; // पहिलो बीकन अन्तराल, दोब्बरिँदै (First gap, doubling)
+    public static final int BEACON_STEADY_INTERVAL_MS = 5000; // स्थिर बीकन अन्तराल (Steady beacon interval)
+    public static final int BEACON_EXPIRY_MS = 3 * BEACON_STEADY_INTERVAL_MS + 1000; // यति बेर नसुनिए कोठा हटाउनुहोस् (Drop rooms unheard this long)
+    public static final int DISCOVERY_RESPONSE_JITTER_MS = 150; // प्रोबको जवाफ अघि अनियमित ढिलाइ (Random wait before answering a probe)
+    public static final int DISCOVERY_PROBE_JITTER_MS = 250; // आफ्नो प्रोब अघि सुन्ने समय (Listen this long before our own probe)
+    public static final int DISCOVERY_SHARED_WINDOW_MS = 1000; // यति भित्र सुनिएको जवाफ सबैका लागि पुग्छ (An answer heard this recently serves everyone)
+    public static final int DISCOVERY_REQUESTER_INTERVAL_MS = 2000; // एउटै अनुरोधकर्तालाई जवाफ अन्तराल (Min gap between answers to one requester)
+
+    // कोठा ढिलाइ मापन (Room latency probing) - ब्राउजरबाट प्रत्येक होस्टलाई (from the browser to each host)
+    public static final int RTT_PROBE_BURST = 3; // नयाँ कोठालाई छिटो प्रोबहरू (Quick probes for a new room)
+    public static final int RTT_PROBE_BURST_INTERVAL_MS = 250; // छिटो प्रोब अन्तराल (Quick probe interval)
+    public static final int RTT_PROBE_INTERVAL_MS = 2000; // निरन्तर प्रोब अन्तराल (Steady probe interval)
+    public static final int RTT_REPORT_MIN_CHANGE_MS = 5; // यति भन्दा सानो RTT परिवर्तन UI मा नपठाउनुहोस् (Smaller RTT moves are not re-reported)
+
+    // NSD समाधान लाम (NSD resolve queue) - एक पटकमा एउटा मात्र (one at a time)
+    public static final int NSD_RESOLVE_TIMEOUT_MS = 5000; // जवाफ नआए छोड्नुहोस् (Give up on a resolve that never answers)
+    public static final int NSD_RESOLVE_MAX_ATTEMPTS = 4; // प्रति सेवा प्रयासहरू (Attempts per service)
+    public static final int NSD_RESOLVE_RETRY_BASE_MS = 200; // ब्याकअफ आधार, दोब्बरिँदै (Backoff base, doubling)
+    public static final int NSD_RESOLVE_CACHE_TTL_MS = 120000; // समाधान गरिएको ठेगाना राख्ने समय (How long a resolved host:port is reused)
+
+    // पूर्व-जडान (Speculative pre-connect) - ब्राउज गर्दा सम्भावित कोठामा (to likely rooms while browsing)
+    public static final int PRECONNECT_MAX_ROOMS = 2; // एकैसाथ खुला पूर्व-जडानहरू (Warm connections open at once)
+    public static final int PRECONNECT_IDLE_MS = 20000; // प्रयोग नभए बन्द गर्नुहोस् (Close unused after this)
+    public static final int PRECONNECT_COOLDOWN_MS = 10000; // बन्द भएपछि फेरि खोल्न प्रतीक्षा (Wait before reopening to the same room)
+    public static final int HOST_JOIN_WAIT_MS = PRECONNECT_IDLE_MS + 5000; // होस्टले सामेल अनुरोध पर्खने समय (Host waits this long for a join request)
+    public static final int HOST_MAX_PENDING_JOINS = 16; // सामेल नभएका अधिकतम जडानहरू (Max connections not yet joined)
+
+    // हब (Hub) - एउटै उपकरणले धेरै कोठा चलाउँछ (one device serving several rooms)
+    public static final int MAX_HOSTED_ROOMS = 8; // एउटै पोर्टमा कोठाहरू, एउटै बीकनमा (Rooms on one port, and in one beacon)
+    public static final int HUB_MIN_PLAYERS = 2; // राउन्ड आफैं सुरु हुन चाहिने खेलाडी (Players needed before a round starts itself)
+    public static final int HUB_LOBBY_MS = 15000; // पर्याप्त खेलाडी भएपछि सुरु हुन पर्खाइ (Wait once enough players are seated)
+    public static final int HUB_ROUND_BREAK_MS = 10000; // राउन्डहरूबीचको विश्राम (Break between rounds)
+
+    // राउन्ड बीउ दायराहरू (Round seed ranges) - सबै उपकरणमा एउटै हुनुपर्छ (must match on every device)
+    public static final long ROUND_BURN_MIN_MS = 40000; // न्यूनतम जल्ने समय (Minimum burn time)
+    public static final long ROUND_BURN_MAX_MS = 60000; // अधिकतम जल्ने समय (Maximum burn time)
+    public static final long ROUND_MUSIC_MIN_MS = 10000; // न्यूनतम संगीत समय (Minimum music time)
+    public static final long ROUND_MUSIC_MAX_MS = 30000; // अधिकतम संगीत समय (Maximum music time)
+    
+    // सकेट कन्फिगरेसन (Socket Configuration)
+    public static final int SOCKET_CONNECT_TIMEOUT_MS = 10000; // १० सेकेन्ड (10 seconds)
+}
\ No newline at end of file
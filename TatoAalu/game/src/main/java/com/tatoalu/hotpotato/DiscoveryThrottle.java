@@ -0,0 +1,84 @@
+package com.tatoalu.hotpotato;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Keeps discovery chatter flat on crowded networks.
+ *
+ * With many hosts and many browsers on one access point, answering every
+ * probe separately multiplies traffic. Instead:
+ * - each requester gets at most one answer per
+ *   {@link Config#DISCOVERY_REQUESTER_INTERVAL_MS};
+ * - answers wait a random {@link #jitterMs} so a host that has just
+ *   beaconed, and a probe that another browser already triggered, can be
+ *   skipped: beacons go to the multicast group, so one answer serves every
+ *   browser listening;
+ * - a browser about to probe does the same and stays quiet if it already
+ *   hears rooms or another browser's probe.
+ *
+ * Everything skipped is counted in {@link #suppressedCount()}. Thread-safe.
+ */
+public final class DiscoveryThrottle {
+    private static final int MAX_TRACKED_REQUESTERS = 64;
+
+    private final long requesterIntervalMs;
+    private final long sharedWindowMs;
+    private final Map<String, Long> lastProbeBy =
+            new LinkedHashMap<String, Long>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_TRACKED_REQUESTERS;
+                }
+            };
+    private long suppressed;
+
+    public DiscoveryThrottle() {
+        this(Config.DISCOVERY_REQUESTER_INTERVAL_MS, Config.DISCOVERY_SHARED_WINDOW_MS);
+    }
+
+    public DiscoveryThrottle(long requesterIntervalMs, long sharedWindowMs) {
+        this.requesterIntervalMs = requesterIntervalMs;
+        this.sharedWindowMs = sharedWindowMs;
+    }
+
+    /** Host side: false (and counted) if this requester was answered too recently. */
+    public synchronized boolean admitProbe(String requester, long nowMs) {
+        Long last = lastProbeBy.get(requester);
+        if (last != null && nowMs - last < requesterIntervalMs) {
+            suppressed++;
+            return false;
+        }
+        lastProbeBy.put(requester, nowMs);
+        return true;
+    }
+
+    /**
+     * Whether to speak now, given when the answer was last heard on the
+     * group (a beacon we sent, or a probe or beacon someone else sent).
+     * A recent one already serves every listener, so this is counted as
+     * suppressed instead.
+     */
+    public synchronized boolean shouldSend(long lastSharedMs, long nowMs) {
+        if (lastSharedMs > 0 && nowMs - lastSharedMs < sharedWindowMs) {
+            suppressed++;
+            return false;
+        }
+        return true;
+    }
+
+    /** For answers dropped by the caller, e.g. coalesced into one already pending. */
+    public synchronized void countSuppressed() {
+        suppressed++;
+    }
+
+    public synchronized long suppressedCount() {
+        return suppressed;
+    }
+
+    /** Random wait before answering, so answers for the same moment can collapse into one. */
+    public static long jitterMs(long maxMs) {
+        return ThreadLocalRandom.current().nextLong(maxMs + 1);
+    }
+}
@@ -0,0 +1,140 @@
+package com.tatoalu.hotpotato;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads length-prefixed frames from a TCP stream or, in push mode, from
+ * bytes handed over by a non-blocking channel.
+ *
+ * Wire layout (big-endian):
+ *   frame   = length:int32, body[length]
+ * The body is a {@link WireCodec} message batch.
+ *
+ * TCP may merge or split writes, so bytes are accumulated in a reusable
+ * buffer that grows on demand until a whole frame is available. One
+ * reader belongs to one connection and is not thread-safe.
+ */
+public final class FrameReader {
+    public static final int HEADER_BYTES = 4;
+
+    private final int maxFrameSize;
+    private byte[] buffer;
+    private int start = 0; // first unconsumed byte
+    private int end = 0;   // one past the last buffered byte
+
+    // Current frame window, valid until the next readFrame() call
+    private int frameOffset = 0;
+    private int frameLength = 0;
+
+    public FrameReader() {
+        this(1024, Config.MAX_FRAME_SIZE);
+    }
+
+    public FrameReader(int initialCapacity, int maxFrameSize) {
+        this.buffer = new byte[Math.max(HEADER_BYTES, initialCapacity)];
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Blocks until one complete frame is buffered.
+     *
+     * @return false if the stream ended cleanly between frames
+     * @throws EOFException if the stream ended in the middle of a frame
+     * @throws IOException if the peer announced a frame above the size limit
+     */
+    public boolean readFrame(InputStream in) throws IOException {
+        while (!nextFrame()) {
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                if (end == start) return false;
+                throw new EOFException("Stream ended inside a frame");
+            }
+            end += read;
+        }
+        return true;
+    }
+
+    /**
+     * Push mode for non-blocking callers: copies whatever the channel
+     * delivered; complete frames are then taken with {@link #nextFrame()}.
+     */
+    public void append(ByteBuffer src) {
+        int count = src.remaining();
+        if (buffer.length - end < count) {
+            ensureCapacity(end - start + count);
+        }
+        src.get(buffer, end, count);
+        end += count;
+    }
+
+    /**
+     * Exposes the next complete buffered frame, if any, without reading.
+     * Leaves room in the buffer for the rest of a partial frame.
+     */
+    public boolean nextFrame() throws IOException {
+        frameLength = 0;
+
+        int available = end - start;
+        if (available < HEADER_BYTES) {
+            ensureCapacity(HEADER_BYTES);
+            return false;
+        }
+        int length = readInt(buffer, start);
+        if (length < 0 || length > maxFrameSize) {
+            throw new IOException("Frame length " + length + " exceeds limit " + maxFrameSize);
+        }
+        if (available < HEADER_BYTES + length) {
+            ensureCapacity(HEADER_BYTES + length);
+            return false;
+        }
+        frameOffset = start + HEADER_BYTES;
+        frameLength = length;
+        // The frame stays readable until the next call compacts the buffer
+        start = frameOffset + length;
+        return true;
+    }
+
+    // Raw access to the current frame body for binary payloads
+    public byte[] frameArray() {
+        return buffer;
+    }
+
+    public int frameOffset() {
+        return frameOffset;
+    }
+
+    public int frameLength() {
+        return frameLength;
+    }
+
+    // Make room for `needed` bytes starting at `start`, compacting before growing
+    private void ensureCapacity(int needed) {
+        if (buffer.length - start >= needed) return;
+
+        int buffered = end - start;
+        if (start > 0) {
+            System.arraycopy(buffer, start, buffer, 0, buffered);
+            start = 0;
+            end = buffered;
+        }
+        if (buffer.length < needed) {
+            int newSize = buffer.length;
+            while (newSize < needed) {
+                newSize *= 2;
+            }
+            byte[] grown = new byte[newSize];
+            System.arraycopy(buffer, 0, grown, 0, end);
+            buffer = grown;
+        }
+    }
+
+    static int readInt(byte[] src, int offset) {
+        return ((src[offset] & 0xFF) << 24)
+                | ((src[offset + 1] & 0xFF) << 16)
+                | ((src[offset + 2] & 0xFF) << 8)
+                | (src[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,269 @@
+package com.tatoalu.hotpotato;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Host-authoritative game state: who holds the potato, and the ordered
+ * stream of events that got it there. Players are named by their
+ * {@link PlayerRegistry} ID, so holders and pass targets stay valid while
+ * others join and leave.
+ *
+ * Every accepted event gets the next sequence number, counting from 1 after
+ * {@link #start}. A pass request is checked against the current holder, so a
+ * stale request (made before some other pass landed) or a conflicting one
+ * (two players racing for the same potato) is refused in O(1) without any
+ * history lookup. Requests carry the requester's own sequence number; a
+ * repeat of the last accepted request returns the event it already produced,
+ * so clients may resend freely.
+ *
+ * Devices that only follow the game mirror it with a {@link Replica}, which
+ * applies events strictly in sequence order and drops duplicates. The last
+ * {@link Config#GAME_EVENT_LOG_SIZE} events are kept so a replica that lost
+ * its connection can be caught up with {@link #eventsAfter} alone; one that
+ * fell further behind resyncs from the room snapshot, which carries the
+ * holder and last event sequence, through {@link Replica#resync}.
+ *
+ * Thread-safe.
+ */
+public final class GameStateMachine {
+
+    public enum Phase { LOBBY, PLAYING, OVER }
+
+    /** One sequenced change to the game. */
+    public static final class Event {
+        public final int seq;
+        public final int from;
+        public final int to;
+        public final int origin;      // ID of the player who asked for it
+        public final int originSeq;   // the requester's own number, 0 if none
+
+        public Event(int seq, int from, int to, int origin, int originSeq) {
+            this.seq = seq;
+            this.from = from;
+            this.to = to;
+            this.origin = origin;
+            this.originSeq = originSeq;
+        }
+
+        /** "from,to,originSeq,seq,origin", the payload of a PASS message. */
+        public String encode() {
+            return from + "," + to + "," + originSeq + "," + seq + "," + origin;
+        }
+
+        /** Parses {@link #encode()} output, or returns null if malformed. */
+        public static Event decode(String text) {
+            String[] parts = text.split(",", 5);
+            if (parts.length < 5) return null;
+            try {
+                return new Event(Integer.parseInt(parts[3]), Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                        Integer.parseInt(parts[4]), Integer.parseInt(parts[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Event{#" + seq + " " + from + "->" + to + " by " + origin + "/" + originSeq + "}";
+        }
+    }
+
+    private Phase phase = Phase.LOBBY;
+    private final BitSet seated = new BitSet();
+    private int holder;
+    private int eventSeq;
+    // Last event each requester got accepted, for idempotent resends
+    private final Map<Integer, Event> lastByOrigin = new HashMap<>();
+    private final ArrayDeque<Event> log = new ArrayDeque<>();
+
+    /** Begins a game; the sequence restarts so event 1 is the first pass. */
+    public synchronized void start(Collection<Integer> players, int firstHolder) {
+        phase = Phase.PLAYING;
+        seat(players);
+        holder = firstHolder;
+        eventSeq = 0;
+        lastByOrigin.clear();
+        log.clear();
+    }
+
+    public synchronized void end() {
+        phase = Phase.OVER;
+    }
+
+    /**
+     * Players may join or leave mid-game. If the holder left, the potato goes
+     * to the lowest seated ID; during a game that is a sequenced pass by the
+     * departed holder, returned so the caller broadcasts it like any other.
+     * Returns null when the holder is still seated.
+     */
+    public synchronized Event setPlayers(Collection<Integer> players) {
+        seat(players);
+        if (seated.get(holder)) return null;
+        int next = seated.nextSetBit(0);
+        if (phase != Phase.PLAYING || next < 0) {
+            holder = Math.max(0, next);
+            return null;
+        }
+        return accept(holder, next, holder, 0);
+    }
+
+    private void seat(Collection<Integer> players) {
+        seated.clear();
+        for (int id : players) {
+            seated.set(id);
+        }
+    }
+
+    /**
+     * Applies a pass request. Returns the resulting event, the requester's
+     * last accepted event if this request is a resend (or older than it), or
+     * null if refused; the caller then tells the requester who really holds
+     * the potato. Only the holder may pass, so a request whose origin is not
+     * {@code from} is refused; hosts take the origin from the connection the
+     * request arrived on, never from the request itself.
+     *
+     * @param originSeq the requester's number for this request; 0 disables
+     *                  resend detection (the host's own taps)
+     */
+    public synchronized Event pass(int from, int to, int origin, int originSeq) {
+        if (originSeq > 0) {
+            Event last = lastByOrigin.get(origin);
+            if (last != null && originSeq <= last.originSeq) {
+                // Already settled; replaying the event is harmless since replicas dedupe it
+                return last;
+            }
+        }
+        if (phase != Phase.PLAYING || from != origin || from != holder || to == from || to < 0 || !seated.get(to)) {
+            return null;
+        }
+
+        return accept(from, to, origin, originSeq);
+    }
+
+    private Event accept(int from, int to, int origin, int originSeq) {
+        holder = to;
+        Event event = new Event(++eventSeq, from, to, origin, originSeq);
+        if (originSeq > 0) {
+            lastByOrigin.put(origin, event);
+        }
+        if (log.size() == Config.GAME_EVENT_LOG_SIZE) {
+            log.pollFirst();
+        }
+        log.addLast(event);
+        return event;
+    }
+
+    /**
+     * Events after {@code seq}, oldest first, for a replica catching up.
+     * Returns null when the log no longer reaches back that far, or when
+     * seq is ahead of this game, i.e. from a game since restarted.
+     */
+    public synchronized List<Event> eventsAfter(int seq) {
+        if (seq > eventSeq) return null;
+        List<Event> missed = new ArrayList<>();
+        if (seq == eventSeq) return missed;
+        Event oldest = log.peekFirst();
+        if (oldest == null || oldest.seq > seq + 1) return null;
+        for (Event event : log) {
+            if (event.seq > seq) missed.add(event);
+        }
+        return missed;
+    }
+
+    public synchronized int holder() {
+        return holder;
+    }
+
+    public synchronized int eventSeq() {
+        return eventSeq;
+    }
+
+    public synchronized Phase phase() {
+        return phase;
+    }
+
+    /**
+     * Follower-side copy of the game. Events may arrive twice or out of
+     * order; {@link #offer} hands them back exactly once each, in sequence.
+     * Events that arrive early wait in a bounded buffer; if a gap outlives
+     * {@link Config#GAME_EVENT_BUFFER_SIZE} later events the replica reports
+     * {@link #needsResync()} instead of growing without limit.
+     */
+    public static final class Replica {
+        private final Map<Integer, Event> early = new HashMap<>();
+        private int applied;
+        private int holder;
+        private boolean needsResync;
+
+        public synchronized void reset(int firstHolder) {
+            early.clear();
+            applied = 0;
+            holder = firstHolder;
+            needsResync = false;
+        }
+
+        /**
+         * Jumps to the host's state as of event appliedSeq, e.g. from a room
+         * snapshot. Returns buffered events that follow on from there.
+         */
+        public synchronized List<Event> resync(int currentHolder, int appliedSeq) {
+            applied = appliedSeq;
+            holder = currentHolder;
+            needsResync = false;
+            early.keySet().removeIf(seq -> seq <= appliedSeq);
+
+            List<Event> ready = new ArrayList<>();
+            Event next = early.remove(applied + 1);
+            while (next != null) {
+                applied = next.seq;
+                holder = next.to;
+                ready.add(next);
+                next = early.remove(applied + 1);
+            }
+            return ready;
+        }
+
+        /** Returns the events now ready to apply, oldest first; empty for duplicates. */
+        public synchronized List<Event> offer(Event event) {
+            List<Event> ready = new ArrayList<>(1);
+            if (event.seq <= applied || early.containsKey(event.seq)) {
+                return ready;
+            }
+            if (event.seq != applied + 1) {
+                if (early.size() >= Config.GAME_EVENT_BUFFER_SIZE) {
+                    needsResync = true;
+                } else {
+                    early.put(event.seq, event);
+                }
+                return ready;
+            }
+
+            Event next = event;
+            while (next != null) {
+                applied = next.seq;
+                holder = next.to;
+                ready.add(next);
+                next = early.remove(applied + 1);
+            }
+            return ready;
+        }
+
+        public synchronized int holder() {
+            return holder;
+        }
+
+        public synchronized int appliedSeq() {
+            return applied;
+        }
+
+        public synchronized boolean needsResync() {
+            return needsResync;
+        }
+    }
+}
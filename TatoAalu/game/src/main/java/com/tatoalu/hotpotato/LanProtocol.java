@@ -0,0 +1,70 @@
+package com.tatoalu.hotpotato;
+
+import java.security.SecureRandom;
+
+/**
+ * The LAN wire protocol shared by every host, phone or headless, and the
+ * clients that join them.
+ *
+ * Hosts listen on TCP and announce their rooms as {@link RoomBeacon}s on a
+ * multicast group. A connection carries length-prefixed frames
+ * ({@link FrameReader}) of {@link WireCodec} messages on three logical
+ * channels: lobby (join, snapshot, roster, start), game ("ACTION:payload"
+ * game data) and heartbeat. {@link RoomHost} serves them and
+ * {@link RoomClient} joins them.
+ *
+ * The first message on a connection is a JOIN naming the player and the
+ * room. The host answers WELCOME with the player's ID, a resume token and
+ * its clock as it answered, followed by a {@link RoomState.Snapshot} in the
+ * same frame, or JOIN_DENIED with one of the REFUSED_ reasons. The request
+ * and its answer are the client's first clock sample. A client whose
+ * connection drops opens a new one with a RESUME instead of a join, naming
+ * the roster version, round and last game event it had. While the host
+ * still holds the seat it is welcomed back under the same ID, followed by
+ * just the passes it missed if it is still in that round with that roster,
+ * or else by a snapshot.
+ *
+ * Clients keep an estimate of the host's clock ({@link ClockSync}) from
+ * TIME_REQ and TIME_RESP samples, so round deadlines can be sent as host
+ * times.
+ */
+public final class LanProtocol {
+    public static final int BEACON_PORT = 54568;
+    // Site-local multicast group; TTL 1 keeps beacons on the local subnet
+    public static final String BEACON_GROUP = "239.255.84.84";
+    public static final int HEARTBEAT_INTERVAL_MS = 5000;
+
+    // Everything the host game flow supports, announced in each beacon
+    public static final int HOST_CAPABILITIES = RoomBeacon.CAP_ROUND_SEED
+            | RoomBeacon.CAP_PASS_PREDICTION | RoomBeacon.CAP_SEQUENCED_EVENTS;
+
+    // Why a join was refused
+    public static final String REFUSED_NAME_TAKEN = "NAME_TAKEN";
+    public static final String REFUSED_ROOM_FULL = "ROOM_FULL";
+    public static final String REFUSED_NAME_TOO_LONG = "NAME_TOO_LONG";
+    public static final String REFUSED_NO_ROOM = "NO_ROOM";
+    public static final String REFUSED_BAD_NAME = "BAD_NAME";
+    public static final String REFUSED_NO_SESSION = "NO_SESSION";   // resume for a seat the host gave up
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private LanProtocol() {
+    }
+
+    /** Why a host would refuse this name whatever the room, or null if it may be seated. */
+    public static String nameRefusal(String name) {
+        if (name.length() > Config.MAX_PLAYER_NAME_LENGTH) return REFUSED_NAME_TOO_LONG;
+        // '|' separated fields before the wire codec; still refused so no existing name changes meaning
+        if (name.isEmpty() || name.indexOf('|') >= 0) return REFUSED_BAD_NAME;
+        return null;
+    }
+
+    /** A new seat's resume token; never 0, which means "no session". */
+    public static long newSessionToken() {
+        long token;
+        do {
+            token = RANDOM.nextLong();
+        } while (token == 0);
+        return token;
+    }
+}
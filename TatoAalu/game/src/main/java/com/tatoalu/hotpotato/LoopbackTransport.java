@@ -0,0 +1,535 @@
+package com.tatoalu.hotpotato;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.BindException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Transport} inside one JVM, with no sockets: every node on a
+ * {@link Network} is just an address, connections are pairs of in-memory
+ * pipes and beacons go to every node that has the group open.
+ *
+ * Bytes and datagrams travel through lock-free queues; a reader with
+ * nothing to read parks until a writer hands it something, so hundreds of
+ * simulated players run at full speed, and nothing depends on timing.
+ * Delivery is reliable and in order, beacons included. A {@link Poller}
+ * hears about new bytes from the same queues, and its writes never block.
+ */
+public final class LoopbackTransport implements Transport {
+    private static final int FIRST_EPHEMERAL_PORT = 40000;
+    // Bounds one poll() when handlers keep producing readiness
+    private static final int MAX_EVENTS_PER_POLL = 1024;
+
+    /** The simulated network; nodes on the same one can reach each other. */
+    public static final class Network {
+        private final Map<String, Endpoint> listeners = new ConcurrentHashMap<>(); // by "address:port"
+        private final List<LoopbackBeacons> group = new CopyOnWriteArrayList<>();
+        private final AtomicInteger nextPort = new AtomicInteger(FIRST_EPHEMERAL_PORT);
+    }
+
+    private final Network network;
+    private final String address;
+
+    /** A node on the network, reachable by others at {@code address}. */
+    public LoopbackTransport(Network network, String address) {
+        this.network = network;
+        this.address = address;
+    }
+
+    @Override
+    public Listener listen(int port) throws IOException {
+        LoopbackListener listener = new LoopbackListener(bind(port));
+        register(listener.port, listener);
+        return listener;
+    }
+
+    @Override
+    public Poller openPoller(int port) throws IOException {
+        LoopbackPoller poller = new LoopbackPoller(bind(port));
+        register(poller.port, poller);
+        return poller;
+    }
+
+    private int bind(int port) {
+        return port != 0 ? port : network.nextPort.getAndIncrement();
+    }
+
+    private void register(int port, Endpoint endpoint) throws IOException {
+        if (network.listeners.putIfAbsent(address + ":" + port, endpoint) != null) {
+            throw new BindException("Address already in use: " + address + ":" + port);
+        }
+    }
+
+    @Override
+    public Connection connect(String host, int port, int timeoutMs) throws IOException {
+        Endpoint listener = network.listeners.get(host + ":" + port);
+        if (listener == null) throw new ConnectException("Connection refused: " + host + ":" + port);
+
+        LoopbackConnection client = new LoopbackConnection(host);
+        LoopbackConnection server = new LoopbackConnection(address);
+        client.peer = server;
+        server.peer = client;
+        if (!listener.offer(server)) {
+            throw new ConnectException("Connection refused: " + host + ":" + port);
+        }
+        return client;
+    }
+
+    @Override
+    public Beacons openBeacons() {
+        LoopbackBeacons beacons = new LoopbackBeacons();
+        network.group.add(beacons);
+        return beacons;
+    }
+
+    /**
+     * Any thread may offer; one thread at a time takes, parking while the
+     * queue is empty. Lock-free on both sides.
+     */
+    static final class Mailbox<T> {
+        private final ConcurrentLinkedQueue<T> items = new ConcurrentLinkedQueue<>();
+        private volatile Thread waiter;
+        private volatile boolean closed;
+        // Told about every offer and the close, for a poller instead of a parked taker
+        volatile Runnable onChange;
+
+        /** False, dropping the item, once closed. */
+        boolean offer(T item) {
+            if (closed) return false;
+            items.offer(item);
+            LockSupport.unpark(waiter);
+            notifyChange();
+            return true;
+        }
+
+        /** The next item without waiting, or null. */
+        T poll() {
+            return items.poll();
+        }
+
+        /** Closed, and everything offered before has been taken. */
+        boolean isDrained() {
+            return closed && items.isEmpty();
+        }
+
+        /**
+         * The next item, or null once closed and drained. Throws
+         * {@link SocketTimeoutException} after timeoutMs; 0 waits forever.
+         */
+        T take(long timeoutMs) throws IOException {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (true) {
+                T item = items.poll();
+                if (item != null) return item;
+                if (closed) return null;
+
+                waiter = Thread.currentThread();
+                // Check again now that offers will wake us, so none slips in between
+                if (items.isEmpty() && !closed) {
+                    if (timeoutMs <= 0) {
+                        LockSupport.park(this);
+                    } else {
+                        long left = deadline - System.nanoTime();
+                        if (left <= 0) {
+                            waiter = null;
+                            throw new SocketTimeoutException("Read timed out");
+                        }
+                        LockSupport.parkNanos(this, left);
+                    }
+                }
+                waiter = null;
+                if (Thread.interrupted()) throw new InterruptedIOException();
+            }
+        }
+
+        /** Wakes the taker; it still gets what was queued unless discarded. */
+        void close(boolean discard) {
+            closed = true;
+            if (discard) items.clear();
+            LockSupport.unpark(waiter);
+            notifyChange();
+        }
+
+        private void notifyChange() {
+            Runnable listener = onChange;
+            if (listener != null) listener.run();
+        }
+    }
+
+    /** Whatever listens on an address and port. */
+    private interface Endpoint {
+        /** Hands over the host's end of a new connection; false if no longer listening. */
+        boolean offer(LoopbackConnection accepted);
+    }
+
+    private final class LoopbackListener implements Listener, Endpoint {
+        private final int port;
+        final Mailbox<LoopbackConnection> pending = new Mailbox<>();
+
+        LoopbackListener(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public boolean offer(LoopbackConnection accepted) {
+            return pending.offer(accepted);
+        }
+
+        @Override
+        public Connection accept() throws IOException {
+            LoopbackConnection connection = pending.take(0);
+            if (connection == null) throw new SocketException("Listener closed");
+            return connection;
+        }
+
+        @Override
+        public int port() {
+            return port;
+        }
+
+        @Override
+        public void close() {
+            network.listeners.remove(address + ":" + port, this);
+            pending.close(false);
+            LoopbackConnection waiting;
+            while ((waiting = pending.poll()) != null) {
+                waiting.close();
+            }
+        }
+    }
+
+    /**
+     * Readiness arrives as items in one mailbox: connections waiting to be
+     * accepted, channels with something new to read, and wakeups.
+     */
+    private final class LoopbackPoller implements Poller, Endpoint {
+        private final Object wakeupMarker = new Object();
+        private final int port;
+        private final Mailbox<Object> ready = new Mailbox<>();
+        private final Set<LoopbackChannel> channels = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean wakeupQueued = new AtomicBoolean();
+
+        LoopbackPoller(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public boolean offer(LoopbackConnection accepted) {
+            return ready.offer(accepted);
+        }
+
+        @Override
+        public int port() {
+            return port;
+        }
+
+        @Override
+        public void poll(long timeoutMs, PollHandler handler) throws IOException {
+            Object event;
+            try {
+                event = ready.take(timeoutMs);
+            } catch (SocketTimeoutException e) {
+                return;
+            }
+            if (event == null) throw new SocketException("Poller closed");
+            for (int dispatched = 0; event != null && dispatched < MAX_EVENTS_PER_POLL; dispatched++) {
+                dispatch(event, handler);
+                event = ready.poll();
+            }
+            if (event != null) dispatch(event, handler);
+        }
+
+        private void dispatch(Object event, PollHandler handler) {
+            if (event == wakeupMarker) {
+                wakeupQueued.set(false);
+            } else if (event instanceof LoopbackConnection) {
+                LoopbackChannel channel = new LoopbackChannel((LoopbackConnection) event, this);
+                channels.add(channel);
+                handler.onAccepted(channel);
+                if (channel.closed) return;
+                channel.connection.inbox.onChange = channel::signal;
+                channel.signal(); // for anything that arrived before the hook
+            } else {
+                LoopbackChannel channel = (LoopbackChannel) event;
+                channel.queued.set(false);
+                if (channel.closed) return;
+                handler.onReadable(channel);
+                if (channel.closed || !channel.writeInterest) return;
+                handler.onWritable(channel);
+                // Level-triggered, like a selector: still interested, still reported
+                if (channel.writeInterest) channel.signal();
+            }
+        }
+
+        @Override
+        public void wakeup() {
+            if (wakeupQueued.compareAndSet(false, true)) {
+                ready.offer(wakeupMarker);
+            }
+        }
+
+        @Override
+        public void close() {
+            network.listeners.remove(address + ":" + port, this);
+            ready.close(false);
+            Object waiting;
+            while ((waiting = ready.poll()) != null) {
+                if (waiting instanceof LoopbackConnection) ((LoopbackConnection) waiting).close();
+            }
+            for (LoopbackChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    private static final class LoopbackChannel implements Channel {
+        final LoopbackConnection connection;
+        private final LoopbackPoller poller;
+        final AtomicBoolean queued = new AtomicBoolean();
+        volatile boolean closed;
+        volatile boolean writeInterest;
+        private Object attachment;
+        private byte[] chunk;
+        private int position;
+
+        LoopbackChannel(LoopbackConnection connection, LoopbackPoller poller) {
+            this.connection = connection;
+            this.poller = poller;
+        }
+
+        void signal() {
+            if (queued.compareAndSet(false, true)) {
+                poller.ready.offer(this);
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (closed) throw new SocketException("Connection closed");
+            int total = 0;
+            while (dst.hasRemaining()) {
+                if (chunk == null || position == chunk.length) {
+                    chunk = connection.inbox.poll();
+                    position = 0;
+                    if (chunk == null) {
+                        // The peer closed and everything it sent has been read
+                        if (total == 0 && connection.inbox.isDrained()) return -1;
+                        break;
+                    }
+                }
+                int count = Math.min(dst.remaining(), chunk.length - position);
+                dst.put(chunk, position, count);
+                position += count;
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (closed) throw new SocketException("Connection closed");
+            int count = src.remaining();
+            if (count == 0) return 0;
+            byte[] copy = new byte[count];
+            src.get(copy);
+            if (!connection.peer.inbox.offer(copy)) {
+                throw new SocketException("Broken pipe");
+            }
+            return count;
+        }
+
+        @Override
+        public void setWriteInterest(boolean interested) {
+            writeInterest = interested;
+            if (interested) signal();
+        }
+
+        @Override
+        public void attach(Object attachment) {
+            this.attachment = attachment;
+        }
+
+        @Override
+        public Object attachment() {
+            return attachment;
+        }
+
+        @Override
+        public String remoteAddress() {
+            return connection.remoteAddress;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            poller.channels.remove(this);
+            connection.close();
+        }
+    }
+
+    private static final class LoopbackConnection implements Connection {
+        private final String remoteAddress;
+        private final Mailbox<byte[]> inbox = new Mailbox<>();
+        LoopbackConnection peer;
+        private volatile boolean closed;
+        private volatile int readTimeoutMs;
+
+        private final InputStream input = new InputStream() {
+            private byte[] chunk;
+            private int position;
+
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (closed) throw new SocketException("Connection closed");
+                if (length == 0) return 0;
+                if (chunk == null || position == chunk.length) {
+                    chunk = inbox.take(readTimeoutMs);
+                    position = 0;
+                    if (chunk == null) {
+                        if (closed) throw new SocketException("Connection closed");
+                        return -1; // the peer closed and everything it sent has been read
+                    }
+                }
+                int count = Math.min(length, chunk.length - position);
+                System.arraycopy(chunk, position, buffer, offset, count);
+                position += count;
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return chunk == null ? 0 : chunk.length - position;
+            }
+        };
+
+        private final OutputStream output = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] buffer, int offset, int length) throws IOException {
+                if (closed) throw new SocketException("Connection closed");
+                if (length == 0) return;
+                // The reader may hold on to the chunk, so it gets its own copy
+                if (!peer.inbox.offer(Arrays.copyOfRange(buffer, offset, offset + length))) {
+                    throw new SocketException("Broken pipe");
+                }
+            }
+        };
+
+        LoopbackConnection(String remoteAddress) {
+            this.remoteAddress = remoteAddress;
+        }
+
+        @Override
+        public InputStream input() {
+            return input;
+        }
+
+        @Override
+        public OutputStream output() {
+            return output;
+        }
+
+        @Override
+        public void setReadTimeout(int timeoutMs) {
+            readTimeoutMs = timeoutMs;
+        }
+
+        @Override
+        public String remoteAddress() {
+            return remoteAddress;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            inbox.close(true);
+            // The peer reads what is already on its way, then end of stream
+            peer.inbox.close(false);
+        }
+    }
+
+    private final class LoopbackBeacons implements Beacons {
+        private final Mailbox<Packet> inbox = new Mailbox<>();
+
+        @Override
+        public void broadcast(byte[] data, int length) {
+            Packet packet = new Packet(Arrays.copyOf(data, length), address);
+            for (LoopbackBeacons member : network.group) {
+                member.inbox.offer(packet);
+            }
+        }
+
+        @Override
+        public void receive(Datagram into) throws IOException {
+            Packet packet = inbox.take(0);
+            if (packet == null) throw new SocketException("Beacon channel closed");
+            // Like UDP, a datagram longer than the buffer is cut short
+            into.length = Math.min(packet.data.length, into.data.length);
+            System.arraycopy(packet.data, 0, into.data, 0, into.length);
+            into.senderAddress = packet.sender;
+            into.senderPort = LanProtocol.BEACON_PORT;
+        }
+
+        @Override
+        public void reply(Datagram datagram) {
+            sendTo(datagram.data, datagram.length, datagram.senderAddress);
+        }
+
+        @Override
+        public void sendTo(byte[] data, int length, String to) {
+            Packet packet = new Packet(Arrays.copyOf(data, length), address);
+            for (LoopbackBeacons member : network.group) {
+                if (member.owner().equals(to)) {
+                    member.inbox.offer(packet);
+                }
+            }
+        }
+
+        private String owner() {
+            return address;
+        }
+
+        @Override
+        public void close() {
+            network.group.remove(this);
+            inbox.close(true);
+        }
+    }
+
+    private static final class Packet {
+        final byte[] data;   // shared by every receiver; never written after sending
+        final String sender;
+
+        Packet(byte[] data, String sender) {
+            this.data = data;
+            this.sender = sender;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.tatoalu.hotpotato;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded per-connection queue of encoded frames waiting to be written.
+ *
+ * Producers never touch the socket: they {@link #offer} a frame and move on,
+ * and a single writer drains it, either a thread blocked in {@link #take}
+ * or an event loop that {@link #poll}s whenever the socket takes more.
+ *
+ * Frames are tagged with a {@link Priority}. The writer always takes from the
+ * most urgent non-empty lane, so a backlog of ticks cannot delay game over.
+ * A conflating lane holds at most one frame: a newer frame replaces the
+ * unsent one, so a slow reader is never sent a queue of stale heartbeats.
+ *
+ * Once the queued bytes reach the high watermark the queue is saturated and
+ * drops new non-critical frames until the writer drains it down to the low
+ * watermark. A queue that stays saturated longer than the stall timeout
+ * belongs to a consumer that is not keeping up, and {@link #isStalled} tells
+ * the owner to disconnect it.
+ *
+ * Guarded by a lock rather than the object's monitor, so a writer waiting in
+ * {@link #take} on a virtual thread does not pin its carrier thread.
+ */
+public final class OutboundQueue {
+
+    /** Lanes in the order the writer drains them. */
+    public enum Priority {
+        CRITICAL(false), // passes, roster deltas, join and clock replies; never dropped while saturated
+        TICK(true);      // heartbeats; only the latest matters
+
+        final boolean conflates;
+
+        Priority(boolean conflates) {
+            this.conflates = conflates;
+        }
+    }
+
+    private static final Priority[] LANES = Priority.values();
+
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final long stallTimeoutMs;
+
+    private final ArrayDeque<PooledBuffer>[] lanes;
+    private int depth;
+    private int queuedBytes;
+    private int peakBytes;
+    private long saturatedSinceMs = -1;
+    private long sentFrames;
+    private long droppedFrames;
+    private long conflatedFrames;
+    private boolean closed;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    /** Point-in-time view of a queue, for spotting the device that lags the room. */
+    public static final class Stats {
+        public final int depth;
+        public final int queuedBytes;
+        public final int peakBytes;
+        public final long sentFrames;
+        public final long droppedFrames;
+        public final long conflatedFrames;
+        public final long saturatedForMs;
+
+        Stats(int depth, int queuedBytes, int peakBytes, long sentFrames,
+              long droppedFrames, long conflatedFrames, long saturatedForMs) {
+            this.depth = depth;
+            this.queuedBytes = queuedBytes;
+            this.peakBytes = peakBytes;
+            this.sentFrames = sentFrames;
+            this.droppedFrames = droppedFrames;
+            this.conflatedFrames = conflatedFrames;
+            this.saturatedForMs = saturatedForMs;
+        }
+
+        @Override
+        public String toString() {
+            return "depth=" + depth + " bytes=" + queuedBytes + " peak=" + peakBytes
+                    + " sent=" + sentFrames + " dropped=" + droppedFrames + " conflated=" + conflatedFrames
+                    + (saturatedForMs > 0 ? " saturated=" + saturatedForMs + "ms" : "");
+        }
+    }
+
+    public OutboundQueue() {
+        this(Config.OUTBOUND_HIGH_WATERMARK_BYTES, Config.OUTBOUND_LOW_WATERMARK_BYTES,
+                Config.OUTBOUND_STALL_TIMEOUT_MS);
+    }
+
+    public OutboundQueue(int highWatermark, int lowWatermark, long stallTimeoutMs) {
+        if (lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("Low watermark above high watermark");
+        }
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.stallTimeoutMs = stallTimeoutMs;
+        this.lanes = newLanes(LANES.length);
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+    }
+
+    // Java has no generic array creation; the array never escapes this class
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayDeque<PooledBuffer>[] newLanes(int count) {
+        return new ArrayDeque[count];
+    }
+
+    /** Queues a {@link Priority#CRITICAL} frame. */
+    public boolean offer(PooledBuffer frame) {
+        return offer(frame, Priority.CRITICAL);
+    }
+
+    /**
+     * Takes ownership of one reference to the frame. Returns false, after
+     * releasing the frame, when it was dropped because the queue is closed
+     * or saturated. A frame that replaced an older one counts as accepted.
+     */
+    public boolean offer(PooledBuffer frame, Priority priority) {
+        lock.lock();
+        try {
+            if (closed) {
+                frame.release();
+                return false;
+            }
+
+            ArrayDeque<PooledBuffer> lane = lanes[priority.ordinal()];
+            if (priority.conflates && !lane.isEmpty()) {
+                PooledBuffer stale = lane.pollFirst();
+                queuedBytes -= stale.length();
+                depth--;
+                stale.release();
+                conflatedFrames++;
+            } else if (saturatedSinceMs >= 0 && priority != Priority.CRITICAL) {
+                droppedFrames++;
+                frame.release();
+                return false;
+            }
+
+            lane.addLast(frame);
+            depth++;
+            queuedBytes += frame.length();
+            peakBytes = Math.max(peakBytes, queuedBytes);
+            if (saturatedSinceMs < 0 && queuedBytes >= highWatermark) {
+                saturatedSinceMs = nowMs();
+            }
+            notEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Next frame to write, or null if none. The caller releases it once written. */
+    public PooledBuffer poll() {
+        lock.lock();
+        try {
+            for (ArrayDeque<PooledBuffer> lane : lanes) {
+                PooledBuffer frame = lane.pollFirst();
+                if (frame != null) {
+                    dequeued(frame);
+                    return frame;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocking variant of {@link #poll} for thread-per-connection writers.
+     * Returns null on timeout or once the queue is closed.
+     */
+    public PooledBuffer take(long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            while (depth == 0 && !closed) {
+                if (remainingNanos <= 0) return null;
+                remainingNanos = notEmpty.awaitNanos(remainingNanos);
+            }
+            return closed ? null : poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return depth == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** True once the queue has stayed above its watermark past the stall timeout. */
+    public boolean isStalled() {
+        lock.lock();
+        try {
+            return saturatedSinceMs >= 0 && nowMs() - saturatedSinceMs > stallTimeoutMs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Releases every queued frame and wakes a blocked writer; later offers are dropped. */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            for (ArrayDeque<PooledBuffer> lane : lanes) {
+                PooledBuffer frame;
+                while ((frame = lane.pollFirst()) != null) {
+                    frame.release();
+                }
+            }
+            depth = 0;
+            queuedBytes = 0;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            long saturatedFor = saturatedSinceMs >= 0 ? nowMs() - saturatedSinceMs : 0;
+            return new Stats(depth, queuedBytes, peakBytes, sentFrames, droppedFrames, conflatedFrames, saturatedFor);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dequeued(PooledBuffer frame) {
+        depth--;
+        queuedBytes -= frame.length();
+        sentFrames++;
+        if (saturatedSinceMs >= 0 && queuedBytes <= lowWatermark) {
+            saturatedSinceMs = -1;
+        }
+    }
+
+    private static long nowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+}
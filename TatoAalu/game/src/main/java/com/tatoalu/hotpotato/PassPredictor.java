@@ -0,0 +1,131 @@
+package com.tatoalu.hotpotato;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Client-side prediction of potato passes.
+ *
+ * A tap is applied locally at once and recorded here with a sequence
+ * number; the request carries that number to the host. The host's verdict
+ * then arrives as either an authoritative pass (possibly acknowledging our
+ * sequence) or a rejection, and the predicted holder is rebuilt as
+ * "confirmed holder + every still-pending pass that chains from it".
+ * A pending pass that no longer chains (someone else moved the potato
+ * first) or that the host rejected is rolled back, along with every pass
+ * predicted on top of it.
+ *
+ * Players, this device included, are named by {@link PlayerRegistry} ID.
+ * Each update returns whether the displayed holder changed so the caller
+ * knows when to correct the screen. Thread-safe.
+ */
+public final class PassPredictor {
+    private static final class Pending {
+        final int seq;
+        final int from;
+        final int to;
+        final long sentAtMs;
+
+        Pending(int seq, int from, int to, long sentAtMs) {
+            this.seq = seq;
+            this.from = from;
+            this.to = to;
+            this.sentAtMs = sentAtMs;
+        }
+    }
+
+    private final int localId;
+    private final long timeoutMs;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private int nextSeq = 1;
+    private int confirmedHolder;
+    private int predictedHolder;
+
+    public PassPredictor(int localId) {
+        this(localId, Config.PASS_PREDICTION_TIMEOUT_MS);
+    }
+
+    public PassPredictor(int localId, long timeoutMs) {
+        this.localId = localId;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /** Starts a round with the given holder and no passes in flight. */
+    public synchronized void reset(int holder) {
+        pending.clear();
+        confirmedHolder = holder;
+        predictedHolder = holder;
+    }
+
+    /** Records a locally applied pass and returns the sequence to send with it. */
+    public synchronized int predict(int from, int to, long nowMs) {
+        int seq = nextSeq++;
+        pending.addLast(new Pending(seq, from, to, nowMs));
+        predictedHolder = to;
+        return seq;
+    }
+
+    /**
+     * The host moved the potato to {@code holder}. If {@code origin} is this
+     * device, {@code seq} acknowledges our passes up to and including it.
+     */
+    public synchronized boolean onAuthoritativePass(int holder, int seq, int origin) {
+        if (origin == localId) {
+            while (!pending.isEmpty() && pending.peekFirst().seq <= seq) {
+                pending.pollFirst();
+            }
+        }
+        confirmedHolder = holder;
+        return rebuild();
+    }
+
+    /** The host refused our pass {@code seq}; the potato is still with {@code holder}. */
+    public synchronized boolean onRejected(int seq, int holder, int origin) {
+        if (origin != localId) return false;
+
+        // Everything from the rejected pass on was predicted on top of it
+        while (!pending.isEmpty() && pending.peekLast().seq >= seq) {
+            pending.pollLast();
+        }
+        confirmedHolder = holder;
+        return rebuild();
+    }
+
+    /** Rolls back passes the host never answered. */
+    public synchronized boolean expire(long nowMs) {
+        Pending oldest = pending.peekFirst();
+        if (oldest == null || nowMs - oldest.sentAtMs < timeoutMs) return false;
+        pending.clear();
+        return rebuild();
+    }
+
+    public synchronized int predictedHolder() {
+        return predictedHolder;
+    }
+
+    public synchronized int confirmedHolder() {
+        return confirmedHolder;
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    // Replays pending passes on the confirmed holder; drops the tail once the chain breaks
+    private boolean rebuild() {
+        int previous = predictedHolder;
+        int holder = confirmedHolder;
+        boolean broken = false;
+        for (Iterator<Pending> it = pending.iterator(); it.hasNext(); ) {
+            Pending p = it.next();
+            if (broken || p.from != holder) {
+                broken = true;
+                it.remove();
+            } else {
+                holder = p.to;
+            }
+        }
+        predictedHolder = holder;
+        return holder != previous;
+    }
+}
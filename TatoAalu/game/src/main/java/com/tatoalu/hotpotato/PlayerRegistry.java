@@ -0,0 +1,171 @@
+package com.tatoalu.hotpotato;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The players in a room, each under a small stable numeric ID.
+ *
+ * IDs are slot numbers in a fixed table of {@code capacity} entries. A player
+ * keeps theirs for as long as they stay, so the wire can say "player 3"
+ * instead of spelling out a name or a list position that shifts whenever
+ * someone leaves. Freed slots go on a free list and are handed out again,
+ * lowest first in a fresh room, so IDs stay below the room size.
+ *
+ * Lookups by ID, name and connection are O(1) and take no lock; changes are
+ * serialised. {@link #snapshot()} returns an immutable list, rebuilt on each
+ * change, that readers can iterate while players come and go.
+ *
+ * @param <C> the connection type; entries may have none (the host itself, or
+ *            a roster mirrored from the host)
+ */
+public final class PlayerRegistry<C> {
+    public static final int NO_PLAYER = -1;
+
+    /** One seated player. */
+    public static final class Entry<C> {
+        public final int id;
+        public final String name;
+        public final C connection;   // null if none
+
+        Entry(int id, String name, C connection) {
+            this.id = id;
+            this.name = name;
+            this.connection = connection;
+        }
+
+        @Override
+        public String toString() {
+            return id + ":" + name;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry<C>> slots;
+    private final Map<String, Entry<C>> byName = new ConcurrentHashMap<>();
+    private final Map<C, Entry<C>> byConnection = new ConcurrentHashMap<>();
+    private final int[] free;   // stack of unused IDs, next one on top
+    private int freeCount;
+    private volatile List<Entry<C>> snapshot = Collections.emptyList();
+
+    public PlayerRegistry(int capacity) {
+        slots = new AtomicReferenceArray<>(capacity);
+        free = new int[capacity];
+        resetFreeList();
+    }
+
+    /**
+     * Seats a player in the next free slot. Returns the new entry, or null if
+     * the name is taken or the room is full.
+     */
+    public synchronized Entry<C> add(String name, C connection) {
+        if (freeCount == 0 || byName.containsKey(name)) return null;
+        return seat(free[--freeCount], name, connection);
+    }
+
+    /**
+     * Seats a player under an ID chosen elsewhere, replacing whoever held
+     * it; for mirroring the host's roster. Returns null if the ID is out of
+     * range or the name belongs to another slot.
+     */
+    public synchronized Entry<C> put(int id, String name, C connection) {
+        if (id < 0 || id >= slots.length()) return null;
+        Entry<C> named = byName.get(name);
+        if (named != null && named.id != id) return null;
+
+        if (slots.get(id) != null) {
+            unseat(id);
+        }
+        for (int i = 0; i < freeCount; i++) {
+            if (free[i] == id) {
+                free[i] = free[--freeCount];
+                break;
+            }
+        }
+        return seat(id, name, connection);
+    }
+
+    /** Frees a slot; returns the entry that held it, or null if it was empty. */
+    public synchronized Entry<C> remove(int id) {
+        if (id < 0 || id >= slots.length() || slots.get(id) == null) return null;
+        Entry<C> entry = unseat(id);
+        free[freeCount++] = id;
+        publish();
+        return entry;
+    }
+
+    public synchronized void clear() {
+        for (int id = 0; id < slots.length(); id++) {
+            slots.set(id, null);
+        }
+        byName.clear();
+        byConnection.clear();
+        resetFreeList();
+        publish();
+    }
+
+    public Entry<C> get(int id) {
+        return id >= 0 && id < slots.length() ? slots.get(id) : null;
+    }
+
+    public Entry<C> byName(String name) {
+        return byName.get(name);
+    }
+
+    public Entry<C> byConnection(C connection) {
+        return connection != null ? byConnection.get(connection) : null;
+    }
+
+    /** Everyone seated, by ID; never changes once returned. */
+    public List<Entry<C>> snapshot() {
+        return snapshot;
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    private Entry<C> seat(int id, String name, C connection) {
+        Entry<C> entry = new Entry<>(id, name, connection);
+        slots.set(id, entry);
+        byName.put(name, entry);
+        if (connection != null) {
+            byConnection.put(connection, entry);
+        }
+        publish();
+        return entry;
+    }
+
+    private Entry<C> unseat(int id) {
+        Entry<C> entry = slots.getAndSet(id, null);
+        byName.remove(entry.name, entry);
+        if (entry.connection != null) {
+            byConnection.remove(entry.connection, entry);
+        }
+        return entry;
+    }
+
+    private void resetFreeList() {
+        // Highest first so the lowest ID is on top
+        freeCount = free.length;
+        for (int i = 0; i < free.length; i++) {
+            free[i] = free.length - 1 - i;
+        }
+    }
+
+    private void publish() {
+        List<Entry<C>> seated = new ArrayList<>(snapshot.size() + 1);
+        for (int id = 0; id < slots.length(); id++) {
+            Entry<C> entry = slots.get(id);
+            if (entry != null) seated.add(entry);
+        }
+        snapshot = Collections.unmodifiableList(seated);
+    }
+}
@@ -0,0 +1,170 @@
+package com.tatoalu.hotpotato;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference-counted, growable byte array borrowed from a {@link BufferPool}.
+ *
+ * One encoded frame is shared by every connection it is broadcast to:
+ * each connection {@link #retain()}s it when queued and {@link #release()}s
+ * it once written, and the last release hands the array back to the pool.
+ */
+public final class PooledBuffer {
+    private final BufferPool owner;
+    private final AtomicInteger refCount = new AtomicInteger();
+    private byte[] data;
+    private int length;
+
+    PooledBuffer(BufferPool owner, int capacity) {
+        this.owner = owner;
+        this.data = new byte[capacity];
+    }
+
+    private PooledBuffer(byte[] data) {
+        this.owner = null;
+        this.data = data;
+        this.length = data.length;
+        this.refCount.set(1);
+    }
+
+    /** Wraps an already encoded frame that does not come from a pool. */
+    public static PooledBuffer wrap(byte[] frame) {
+        return new PooledBuffer(frame);
+    }
+
+    // Called by the pool when the buffer is handed out again
+    void reset() {
+        length = 0;
+        refCount.set(1);
+    }
+
+    public PooledBuffer retain() {
+        refCount.incrementAndGet();
+        return this;
+    }
+
+    public void release() {
+        int remaining = refCount.decrementAndGet();
+        if (remaining == 0 && owner != null) {
+            owner.recycle(this);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("PooledBuffer released too many times");
+        }
+    }
+
+    public byte[] array() {
+        return data;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    int capacity() {
+        return data.length;
+    }
+
+    // Writers fill the array directly and then move the end marker
+    void setLength(int length) {
+        this.length = length;
+    }
+
+    void ensureCapacity(int extra) {
+        int needed = length + extra;
+        if (needed <= data.length) return;
+        int newSize = data.length;
+        while (newSize < needed) {
+            newSize *= 2;
+        }
+        byte[] grown = new byte[newSize];
+        System.arraycopy(data, 0, grown, 0, length);
+        data = grown;
+    }
+
+    void putByte(int value) {
+        ensureCapacity(1);
+        data[length++] = (byte) value;
+    }
+
+    void putInt(int value) {
+        ensureCapacity(4);
+        data[length++] = (byte) (value >>> 24);
+        data[length++] = (byte) (value >>> 16);
+        data[length++] = (byte) (value >>> 8);
+        data[length++] = (byte) value;
+    }
+
+    void putLong(long value) {
+        putInt((int) (value >>> 32));
+        putInt((int) value);
+    }
+
+    void putIntAt(int position, int value) {
+        data[position] = (byte) (value >>> 24);
+        data[position + 1] = (byte) (value >>> 16);
+        data[position + 2] = (byte) (value >>> 8);
+        data[position + 3] = (byte) value;
+    }
+
+    // Unsigned LEB128; small ids and lengths take one byte
+    void putVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    // varint byte count followed by UTF-8, encoded in place
+    void putString(String value) {
+        int maxBytes = value.length() * 3;
+        ensureCapacity(10 + maxBytes);
+        int lengthAt = length;
+        int varintBytes = varIntSize(maxBytes);
+        int end = encodeUtf8(value, data, lengthAt + varintBytes);
+        int byteCount = end - lengthAt - varintBytes;
+        int actualVarintBytes = varIntSize(byteCount);
+        if (actualVarintBytes != varintBytes) {
+            System.arraycopy(data, lengthAt + varintBytes, data, lengthAt + actualVarintBytes, byteCount);
+        }
+        length = lengthAt;
+        putVarLong(byteCount);
+        length += byteCount;
+    }
+
+    static int varIntSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    // Encodes without going through String.getBytes(), which allocates a fresh array per call
+    static int encodeUtf8(String s, byte[] dst, int pos) {
+        for (int i = 0, n = s.length(); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                dst[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[pos++] = (byte) (0xC0 | (c >> 6));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                dst[pos++] = (byte) (0xF0 | (cp >> 18));
+                dst[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                dst[pos++] = (byte) '?';
+            } else {
+                dst[pos++] = (byte) (0xE0 | (c >> 12));
+                dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
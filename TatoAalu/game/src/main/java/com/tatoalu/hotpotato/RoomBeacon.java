@@ -0,0 +1,261 @@
+package com.tatoalu.hotpotato;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-layout binary discovery packet.
+ *
+ * Layout (big-endian):
+ *   magic        uint16  'T' 'A'
+ *   version      uint8
+ *   type         uint8   TYPE_*; a probe ends here
+ *   roomId       int64   random per hosted room, stable while it lives
+ *
+ * then for {@link #TYPE_PING} and {@link #TYPE_PONG} (unicast RTT probes;
+ * the host echoes a ping back unchanged apart from the type):
+ *   seq          int32
+ *   sentNanos    int64   browser clock, only ever compared with itself
+ *
+ * or for {@link #TYPE_ROOM}:
+ *   port         uint16
+ *   players      uint8
+ *   maxPlayers   uint8
+ *   gameMode     uint8
+ *   capabilities uint16  CAP_* bits
+ *   roomCode     uint8 length + UTF-8, at most {@link #MAX_CODE_BYTES}
+ *   hostName     uint8 length + UTF-8, at most {@link #MAX_NAME_BYTES}
+ *
+ * or for {@link #TYPE_ROOMS}, every room one host serves in a single packet:
+ *   count        uint8
+ *   count times the {@link #TYPE_ROOM} fields above, roomId first
+ *
+ * {@link #parse} leaves the first room of a combined beacon in the fields
+ * and {@link #nextRoom} steps to each one after it. A host with one room
+ * sends a plain {@link #TYPE_ROOM}, which older browsers understand.
+ *
+ * Strings are length-prefixed, so any character is allowed in a name.
+ * {@link #parse} reads the fixed fields straight out of the receive buffer
+ * and only records where the strings are; a listener that already knows the
+ * room by {@link #roomId} never has to build them. Malformed or foreign
+ * packets are rejected without throwing.
+ *
+ * One instance is reused for every packet and is not thread-safe.
+ */
+public final class RoomBeacon {
+    public static final int MAGIC = ('T' << 8) | 'A';
+    public static final int VERSION = 1;
+
+    public static final int TYPE_ROOM = 1;
+    public static final int TYPE_PROBE = 2;
+    public static final int TYPE_PING = 3;
+    public static final int TYPE_PONG = 4;
+    public static final int TYPE_ROOMS = 5;
+
+    public static final int MODE_CLASSIC = 0;
+
+    // What the host supports, so browsers can tell compatible rooms apart
+    public static final int CAP_ROUND_SEED = 1;
+    public static final int CAP_PASS_PREDICTION = 1 << 1;
+    public static final int CAP_SEQUENCED_EVENTS = 1 << 2;
+
+    public static final int MAX_CODE_BYTES = 16;
+    public static final int MAX_NAME_BYTES = 32;
+
+    static final int HEADER_BYTES = 4;
+    static final int ROOM_FIXED_BYTES = 8 + 2 + 1 + 1 + 1 + 2;
+    static final int PING_BYTES = HEADER_BYTES + 8 + 4 + 8;
+    static final int ROOM_MAX_BYTES = ROOM_FIXED_BYTES + 2 + MAX_CODE_BYTES + MAX_NAME_BYTES;
+    public static final int MAX_BYTES = HEADER_BYTES + ROOM_MAX_BYTES;
+    public static final int MAX_COMBINED_BYTES = HEADER_BYTES + 1 + Config.MAX_HOSTED_ROOMS * ROOM_MAX_BYTES;
+
+    public int type;
+    public long roomId;
+    public int port;
+    public int playerCount;
+    public int maxPlayers;
+    public int gameMode;
+    public int capabilities;
+    public int probeSeq;
+    public long probeSentNanos;
+
+    // Where the strings sit in the last parsed buffer
+    private byte[] src;
+    private int codeOffset;
+    private int codeLength;
+    private int nameOffset;
+    private int nameLength;
+    // Rooms still to read from the last parsed buffer, and where the next starts
+    private int roomsLeft;
+    private int nextRoomOffset;
+    private int end;
+
+    /** Reads one packet; false if it is not a well-formed beacon of ours. */
+    public boolean parse(byte[] buf, int offset, int length) {
+        if (length < HEADER_BYTES) return false;
+        int end = offset + length;
+        int pos = offset;
+
+        if (readU16(buf, pos) != MAGIC || (buf[pos + 2] & 0xFF) != VERSION) return false;
+        type = buf[pos + 3] & 0xFF;
+        pos += HEADER_BYTES;
+
+        if (type == TYPE_PROBE) return true;
+        if (type == TYPE_PING || type == TYPE_PONG) {
+            if (length < PING_BYTES) return false;
+            roomId = readLong(buf, pos);
+            probeSeq = readU16(buf, pos + 8) << 16 | readU16(buf, pos + 10);
+            probeSentNanos = readLong(buf, pos + 12);
+            return true;
+        }
+        if (type == TYPE_ROOMS) {
+            if (pos >= end) return false;
+            roomsLeft = buf[pos++] & 0xFF;
+        } else if (type == TYPE_ROOM) {
+            roomsLeft = 1;
+        } else {
+            return false;
+        }
+        src = buf;
+        this.end = end;
+        nextRoomOffset = pos;
+        return nextRoom();
+    }
+
+    /**
+     * Moves to the next room of a combined beacon; false once there are no
+     * more, or the rest of the packet is malformed.
+     */
+    public boolean nextRoom() {
+        if (roomsLeft == 0) return false;
+        roomsLeft--;
+
+        byte[] buf = src;
+        int pos = nextRoomOffset;
+        if (end - pos < ROOM_FIXED_BYTES + 2) return false;
+
+        roomId = readLong(buf, pos);
+        pos += 8;
+        port = readU16(buf, pos);
+        pos += 2;
+        playerCount = buf[pos++] & 0xFF;
+        maxPlayers = buf[pos++] & 0xFF;
+        gameMode = buf[pos++] & 0xFF;
+        capabilities = readU16(buf, pos);
+        pos += 2;
+
+        codeLength = buf[pos++] & 0xFF;
+        codeOffset = pos;
+        pos += codeLength;
+        if (codeLength > MAX_CODE_BYTES || pos >= end) return false;
+
+        nameLength = buf[pos++] & 0xFF;
+        nameOffset = pos;
+        pos += nameLength;
+        if (nameLength > MAX_NAME_BYTES || pos > end) return false;
+
+        nextRoomOffset = pos;
+        return true;
+    }
+
+    /** Valid only until the receive buffer is reused. */
+    public String roomCode() {
+        return new String(src, codeOffset, codeLength, StandardCharsets.UTF_8);
+    }
+
+    /** Valid only until the receive buffer is reused. */
+    public String hostName() {
+        return new String(src, nameOffset, nameLength, StandardCharsets.UTF_8);
+    }
+
+    public static int writeProbe(byte[] dst) {
+        return writeHeader(dst, TYPE_PROBE);
+    }
+
+    /** Encodes a ping (or, with {@link #TYPE_PONG}, its echo) into dst; returns its length. */
+    public static int writePing(byte[] dst, int type, long roomId, int seq, long sentNanos) {
+        int pos = writeHeader(dst, type);
+        pos = writeLong(dst, pos, roomId);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            dst[pos++] = (byte) (seq >>> shift);
+        }
+        return writeLong(dst, pos, sentNanos);
+    }
+
+    /** Encodes a room beacon into dst (at least {@link #MAX_BYTES}); returns its length. */
+    public static int writeRoom(byte[] dst, long roomId, int port, int playerCount, int maxPlayers,
+                                int gameMode, int capabilities, String roomCode, String hostName) {
+        return writeRoomFields(dst, writeHeader(dst, TYPE_ROOM), roomId, port, playerCount, maxPlayers,
+                gameMode, capabilities, roomCode, hostName);
+    }
+
+    /**
+     * Starts a combined beacon in dst (at least {@link #MAX_COMBINED_BYTES})
+     * with no rooms yet; returns its length so far.
+     */
+    public static int writeRoomsHeader(byte[] dst) {
+        int pos = writeHeader(dst, TYPE_ROOMS);
+        dst[pos++] = 0;
+        return pos;
+    }
+
+    /** Adds a room to a beacon begun with {@link #writeRoomsHeader}; returns its new length. */
+    public static int appendRoom(byte[] dst, int length, long roomId, int port, int playerCount, int maxPlayers,
+                                 int gameMode, int capabilities, String roomCode, String hostName) {
+        dst[HEADER_BYTES]++;
+        return writeRoomFields(dst, length, roomId, port, playerCount, maxPlayers,
+                gameMode, capabilities, roomCode, hostName);
+    }
+
+    private static int writeRoomFields(byte[] dst, int pos, long roomId, int port, int playerCount, int maxPlayers,
+                                       int gameMode, int capabilities, String roomCode, String hostName) {
+        pos = writeLong(dst, pos, roomId);
+        dst[pos++] = (byte) (port >>> 8);
+        dst[pos++] = (byte) port;
+        dst[pos++] = (byte) Math.min(playerCount, 255);
+        dst[pos++] = (byte) Math.min(maxPlayers, 255);
+        dst[pos++] = (byte) gameMode;
+        dst[pos++] = (byte) (capabilities >>> 8);
+        dst[pos++] = (byte) capabilities;
+        pos = writeString(dst, pos, roomCode, MAX_CODE_BYTES);
+        return writeString(dst, pos, hostName, MAX_NAME_BYTES);
+    }
+
+    private static int writeHeader(byte[] dst, int type) {
+        dst[0] = (byte) (MAGIC >>> 8);
+        dst[1] = (byte) MAGIC;
+        dst[2] = (byte) VERSION;
+        dst[3] = (byte) type;
+        return HEADER_BYTES;
+    }
+
+    private static int writeLong(byte[] dst, int pos, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            dst[pos++] = (byte) (value >>> shift);
+        }
+        return pos;
+    }
+
+    // Truncates at a character boundary so a cut name still decodes cleanly
+    private static int writeString(byte[] dst, int pos, String value, int maxBytes) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, maxBytes);
+        while (length < bytes.length && length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        dst[pos++] = (byte) length;
+        System.arraycopy(bytes, 0, dst, pos, length);
+        return pos + length;
+    }
+
+    private static int readU16(byte[] buf, int pos) {
+        return ((buf[pos] & 0xFF) << 8) | (buf[pos + 1] & 0xFF);
+    }
+
+    private static long readLong(byte[] buf, int pos) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buf[pos + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,418 @@
+package com.tatoalu.hotpotato;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The player side of the LAN protocol: one seat in a room served by a
+ * {@link RoomHost}, whether on a phone or a dedicated server.
+ *
+ * {@link #join} sends the join request and waits for the seat; {@link #run}
+ * then reads the host's {@link WireCodec} frames on the caller's thread,
+ * keeping a copy of the room in {@link #room()}. A connection that drops,
+ * rather than being closed by the host, or that stays silent past
+ * {@link Config#CLIENT_READ_TIMEOUT_MS}, is resumed on a new one with
+ * backoff while the host still holds our seat. The resume names the round
+ * and the last pass we had, so the host need only replay what we missed.
+ *
+ * The host clock is sampled on the scheduler, quickly after each seat and
+ * then steadily, so round deadlines convert to our clock.
+ */
+public final class RoomClient implements Closeable {
+
+    /** Events from the room. All but onDisconnected arrive on the reading thread. */
+    public interface Listener {
+        /** The host gave us a seat; before the snapshot that comes with it. */
+        void onSeated(int playerId, boolean resumed);
+
+        void onSnapshot(RoomState.Snapshot snapshot);
+
+        void onPlayerJoined(int playerId, String name);
+
+        void onPlayerLeft(int playerId, String name);
+
+        void onGameStarted();
+
+        /** A game message ("ACTION:payload") from the host. */
+        void onGameData(String data);
+
+        /** The host hung up or could not be reached again; not called after {@link #close}. */
+        void onDisconnected(String reason);
+    }
+
+    /** The host answered a join with a refusal; the connection itself was fine. */
+    public static final class JoinDeniedException extends IOException {
+        /** One of the {@code LanProtocol.REFUSED_*} codes. */
+        public final String reason;
+
+        JoinDeniedException(String reason) {
+            super("Join refused: " + reason);
+            this.reason = reason;
+        }
+    }
+
+    private static final String PASS_PREFIX = RoomReferee.ACTION_PASS + ":";
+    private static final String ROUND_SEED_PREFIX = RoomReferee.ACTION_ROUND_SEED + ":";
+
+    private final Transport transport;
+    private final ScheduledExecutorService scheduler;
+    private final Listener listener;
+    private final WireCodec codec = new WireCodec();
+    private final RoomState<Void> room = new RoomState<>();
+    private final ClockSync hostClock = new ClockSync();
+    private final AtomicBoolean snapshotRequested = new AtomicBoolean(false);
+    private final Decoded decoded = new Decoded();
+
+    // Frames from different threads must not interleave on the stream
+    private final Object streamLock = new Object();
+    private Transport.Connection connection; // guarded by this; null when not connected
+    private FrameReader reader;              // the reading thread's, for the current connection
+    private String hostAddress;
+    private int hostPort;
+    private long roomId;
+    private volatile int playerId = PlayerRegistry.NO_PLAYER;
+    private volatile long sessionToken; // 0 when there is no seat to resume
+    private volatile boolean closed;
+    // Our clock around the last join or resume exchange; with the host's stamp it is a clock sample
+    private long seatRequestedMs;
+    private long seatAnsweredMs;
+    private boolean resuming;
+    private boolean seated;
+    // Reading thread: the round we are in and the last pass we had of it, in sequence
+    private RoundSeed round;
+    private int lastEvent;
+
+    public RoomClient(Transport transport, ScheduledExecutorService scheduler, Listener listener) {
+        this.transport = transport;
+        this.scheduler = scheduler;
+        this.listener = listener;
+    }
+
+    /**
+     * Asks for a seat over an open connection, which may be a warm one, and
+     * waits for it. Throws {@link JoinDeniedException} when the host answered
+     * with a refusal, a plain IOException when the connection failed.
+     *
+     * @param roomId the room's ID among the several a host may serve; 0 for its own room
+     */
+    public void join(Transport.Connection connection, String hostAddress, int hostPort, long roomId,
+                     String name, String address) throws IOException {
+        this.hostAddress = hostAddress;
+        this.hostPort = hostPort;
+        this.roomId = roomId;
+        // A new host, a new clock and roster
+        hostClock.reset();
+        room.reset(null);
+        sessionToken = 0;
+        resuming = false;
+        round = null;
+        lastEvent = 0;
+
+        requestSeat(connection, codec.frame().join(name, address, roomId).seal());
+        synchronized (this) {
+            if (closed) throw new IOException("Client closed");
+            this.connection = connection;
+        }
+        startClockSync(connection);
+    }
+
+    /**
+     * Reads host messages until the host hangs up, resuming after drops.
+     * Returns once there is nothing left to read; call after {@link #join}.
+     */
+    public void run() {
+        Transport.Connection current;
+        synchronized (this) {
+            current = connection;
+        }
+        while (current != null) {
+            boolean dropped = false;
+            try {
+                while (reader.readFrame(current.input())) {
+                    decode();
+                }
+            } catch (IOException e) {
+                dropped = true;
+            }
+
+            closeQuietly(current);
+            synchronized (this) {
+                if (connection != current) return; // we left on purpose
+                connection = null;
+            }
+            if (!dropped) break;
+            current = resumeWithBackoff();
+        }
+        if (closed) return;
+        sessionToken = 0;
+        listener.onDisconnected("Lost connection to host");
+    }
+
+    /** Sends a game message ("ACTION:payload") to the host. */
+    public void send(String data) throws IOException {
+        write(codec.frame().gameData(data).seal());
+    }
+
+    /**
+     * Asks the host for a full snapshot, e.g. after losing game events. At
+     * most one request is outstanding; the snapshot that answers it clears it.
+     */
+    public void requestSnapshot() throws IOException {
+        if (snapshotRequested.compareAndSet(false, true)) {
+            write(codec.frame().snapshotRequest().seal());
+        }
+    }
+
+    /** A time on the host's {@link ClockSync#monotonicMs()} clock, such as a round deadline, on ours. */
+    public long hostToLocalTime(long hostMs) {
+        return hostClock.toLocalTime(hostMs);
+    }
+
+    /** Our copy of the room, kept by snapshots and deltas. */
+    public RoomState<Void> room() {
+        return room;
+    }
+
+    /** Our ID in the room, or {@link PlayerRegistry#NO_PLAYER} before the host seats us. */
+    public int playerId() {
+        return playerId;
+    }
+
+    /** Leaves the room; the reading thread returns without trying to resume. */
+    @Override
+    public void close() {
+        Transport.Connection current;
+        synchronized (this) {
+            // First, so the reader seeing its connection close does not try to resume it
+            closed = true;
+            sessionToken = 0;
+            current = connection;
+            connection = null;
+        }
+        if (current != null) closeQuietly(current);
+        room.players().clear();
+        playerId = PlayerRegistry.NO_PLAYER;
+    }
+
+    /**
+     * Sends a join or resume request and waits for the host to seat us.
+     * Returns with the rest of the host's answer left in a fresh reader.
+     */
+    private void requestSeat(Transport.Connection connection, PooledBuffer request) throws IOException {
+        reader = new FrameReader();
+        seated = false;
+        connection.setReadTimeout(Config.SOCKET_CONNECT_TIMEOUT_MS);
+        seatRequestedMs = ClockSync.monotonicMs();
+        writeTo(connection, request);
+
+        if (!reader.readFrame(connection.input())) throw new IOException("Host closed the connection");
+        seatAnsweredMs = ClockSync.monotonicMs();
+        // The host packs the snapshot into the same frame, after the welcome
+        decode();
+        if (!seated) throw new IOException("Host answered without seating us");
+        // The host answers clock samples and heartbeats; silence past this is a drop
+        connection.setReadTimeout(Config.CLIENT_READ_TIMEOUT_MS);
+    }
+
+    private void decode() throws IOException {
+        decoded.decoder.decode(reader.frameArray(), reader.frameOffset(), reader.frameLength(), decoded);
+    }
+
+    /**
+     * Asks for our seat back on new connections, with full jitter on a
+     * doubling cap so a room that lost Wi-Fi together does not return in
+     * step. Returns the connection, seated under our old ID, or null once
+     * the attempts ran out or the host gave the seat up.
+     */
+    private Transport.Connection resumeWithBackoff() {
+        for (int attempt = 0; !closed && sessionToken != 0
+                && attempt < Config.CLIENT_RECONNECT_MAX_ATTEMPTS; attempt++) {
+            int cap = Math.min(Config.CLIENT_RECONNECT_MAX_MS, Config.CLIENT_RECONNECT_BASE_MS << attempt);
+            try {
+                Thread.sleep(cap / 2 + ThreadLocalRandom.current().nextInt(cap / 2 + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            Transport.Connection resumed = tryResume();
+            if (resumed != null) return resumed;
+        }
+        return null;
+    }
+
+    // One resume attempt; a refusal also forgets the session, since the host no longer holds the seat
+    private Transport.Connection tryResume() {
+        long token = sessionToken;
+        Transport.Connection candidate = null;
+        try {
+            candidate = transport.connect(hostAddress, hostPort, Config.SOCKET_CONNECT_TIMEOUT_MS);
+            resuming = true;
+            requestSeat(candidate, codec.frame().resume(token, roomId, room.version(), round, lastEvent).seal());
+        } catch (JoinDeniedException e) {
+            sessionToken = 0;
+            closeQuietly(candidate);
+            return null;
+        } catch (IOException e) {
+            if (candidate != null) closeQuietly(candidate);
+            return null;
+        }
+
+        synchronized (this) {
+            // close() ran while we were connecting
+            if (closed || sessionToken == 0) {
+                closeQuietly(candidate);
+                return null;
+            }
+            connection = candidate;
+        }
+        startClockSync(candidate);
+        return candidate;
+    }
+
+    private void startClockSync(Transport.Connection hostConnection) {
+        scheduleClockSample(hostConnection, 0, 0);
+    }
+
+    // Samples the host clock until this is no longer our connection to the host
+    private void scheduleClockSample(Transport.Connection hostConnection, int sent, long delayMs) {
+        try {
+            scheduler.schedule(() -> {
+                if (!isCurrent(hostConnection)) return;
+                try {
+                    writeTo(hostConnection, codec.frame().timeRequest(ClockSync.monotonicMs()).seal());
+                } catch (IOException e) {
+                    closeQuietly(hostConnection); // so the reading thread notices and resumes
+                    return;
+                }
+                scheduleClockSample(hostConnection, sent + 1, sent + 1 < Config.CLOCK_SYNC_BURST
+                        ? Config.CLOCK_SYNC_BURST_INTERVAL_MS : Config.CLOCK_SYNC_INTERVAL_MS);
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private boolean isCurrent(Transport.Connection hostConnection) {
+        synchronized (this) {
+            return connection == hostConnection;
+        }
+    }
+
+    private void write(PooledBuffer frame) throws IOException {
+        Transport.Connection current;
+        synchronized (this) {
+            current = connection;
+        }
+        if (current == null) {
+            frame.release();
+            throw new IOException("No connection to host");
+        }
+        try {
+            writeTo(current, frame);
+        } catch (IOException e) {
+            closeQuietly(current); // so the reading thread notices and resumes
+            throw e;
+        }
+    }
+
+    // Takes the caller's reference to the frame
+    private void writeTo(Transport.Connection target, PooledBuffer frame) throws IOException {
+        try {
+            synchronized (streamLock) {
+                OutputStream out = target.output();
+                out.write(frame.array(), 0, frame.length());
+                out.flush();
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static void closeQuietly(Transport.Connection connection) {
+        try {
+            connection.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+
+    // Reading thread: what the host sent
+    private final class Decoded extends WireCodec.Handler {
+        final WireCodec.Decoder decoder = new WireCodec.Decoder();
+
+        @Override
+        public void onWelcome(int id, long session, long hostMs) {
+            playerId = id;
+            sessionToken = session;
+            seated = true;
+            // Read before the snapshot, so its round deadline converts at once
+            hostClock.addSample(seatRequestedMs, hostMs, seatAnsweredMs);
+            listener.onSeated(id, resuming);
+        }
+
+        @Override
+        public void onJoinDenied(String reason) throws IOException {
+            throw new JoinDeniedException(reason);
+        }
+
+        @Override
+        public void onSnapshot(RoomState.Snapshot snapshot) {
+            room.applySnapshot(snapshot);
+            snapshotRequested.set(false);
+            round = snapshot.round;
+            lastEvent = snapshot.eventSeq;
+            listener.onSnapshot(snapshot);
+        }
+
+        @Override
+        public void onRosterDelta(int version, boolean joined, int id, String name) throws IOException {
+            RoomState.DeltaResult result = room.applyDelta(version, joined, id, name);
+            if (result == RoomState.DeltaResult.APPLIED) {
+                if (joined) {
+                    listener.onPlayerJoined(id, name);
+                } else {
+                    listener.onPlayerLeft(id, name);
+                }
+            } else if (result == RoomState.DeltaResult.GAP) {
+                requestSnapshot();
+            }
+        }
+
+        @Override
+        public void onGameStart() {
+            listener.onGameStarted();
+        }
+
+        @Override
+        public void onHeartbeat() throws IOException {
+            write(codec.frame().heartbeat().seal());
+        }
+
+        @Override
+        public void onTimeResponse(long clientMs, long hostMs) {
+            hostClock.addSample(clientMs, hostMs, ClockSync.monotonicMs());
+        }
+
+        @Override
+        public void onGameData(String data) {
+            if (data.startsWith(PASS_PREFIX)) {
+                GameStateMachine.Event event = GameStateMachine.Event.decode(data.substring(PASS_PREFIX.length()));
+                if (event != null && event.seq == lastEvent + 1) lastEvent = event.seq;
+            } else if (data.startsWith(ROUND_SEED_PREFIX)) {
+                RoundSeed next = RoundSeed.decode(data.substring(ROUND_SEED_PREFIX.length()));
+                if (next != null) {
+                    // A new round restarts the event sequence
+                    round = next;
+                    lastEvent = 0;
+                }
+            }
+            listener.onGameData(data);
+        }
+    }
+}
@@ -0,0 +1,1036 @@
+package com.tatoalu.hotpotato;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The host side of the LAN protocol, shared by a hosting phone and the
+ * dedicated {@code HostServer}: every room served on one port, the players
+ * seated in them, and the beacons announcing them.
+ *
+ * A host serves any number of refereed rooms, each run by its own
+ * {@link RoomReferee}, and at most one played room: the one the host's own
+ * player sits in at slot 0, whose game screen decides the game. Events in
+ * the played room go to the {@link Listener}.
+ *
+ * The thread count is flat however many players join:
+ * - one I/O thread waits on a {@link Transport.Poller} for every
+ *   connection, reads and decodes their frames and drains their
+ *   {@link OutboundQueue}s, writing what each socket takes without blocking;
+ * - one room loop runs the referees, the heartbeat sweep and probe answers;
+ * - one announcer sends the beacons.
+ * Other threads broadcast by queueing a frame and flagging the connection;
+ * the I/O thread is woken once for however many flags it finds.
+ *
+ * Messages are {@link WireCodec} frames. A join names its room by ID; 0
+ * means the played room, and is refused as {@link LanProtocol#REFUSED_NO_ROOM}
+ * when there is none. A player whose connection drops keeps their seat
+ * until the sweep gives it up and may resume it on a new connection
+ * meanwhile; a clean close, an eviction or a closed room unseats them at
+ * once.
+ */
+public final class RoomHost implements Closeable {
+    /** What {@link #openRoom} returns when no room was opened; never a real room ID. */
+    public static final long NO_ROOM = 0;
+
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    private static final int MAX_READS_PER_EVENT = 16;   // then other connections get a turn
+    private static final long POLL_TIMEOUT_MS = 1000;    // how often pending joins are checked
+
+    /** Events from the host, for its owner. */
+    public interface Listener {
+        /** Someone sat down in the played room. I/O thread. */
+        void onPlayerJoined(int playerId, String name);
+
+        /** Someone left the played room, or was unseated. */
+        void onPlayerLeft(int playerId, String name);
+
+        /** A game message ("ACTION:payload") from a player in the played room. I/O thread. */
+        void onGameData(int senderId, String data);
+
+        /** Something worth a log line; warnings may carry the error behind them. */
+        void onLog(boolean warning, String message, Throwable error);
+    }
+
+    /** One player's seat; it outlives a dropped connection until resumed or given up. */
+    public static final class Seat {
+        private final String name;
+        private final String address;
+        private final Room room;
+        private final long sessionToken = LanProtocol.newSessionToken(); // lets a dropped player resume it
+        private volatile int playerId = PlayerRegistry.NO_PLAYER;
+        private volatile long lastHeardMs = System.currentTimeMillis(); // last message of any kind
+        // Replaced, under the room's roster lock, when the player resumes on a new connection
+        private volatile Conn conn;
+
+        Seat(String name, String address, Room room, Conn conn) {
+            this.name = name;
+            this.address = address;
+            this.room = room;
+            this.conn = conn;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /** The address the player reported in their join request. */
+        public String address() {
+            return address;
+        }
+
+        public int playerId() {
+            return playerId;
+        }
+
+        public long lastHeardMs() {
+            return lastHeardMs;
+        }
+    }
+
+    // One room served here; the played room has the host in slot 0 and no referee
+    private static final class Room {
+        final long roomId;
+        final String roomCode;
+        final RoomState<Seat> state = new RoomState<>();
+        RoomReferee referee;
+        volatile GameStateMachine game;   // whose event log catches resumed players up; null if none
+
+        Room(long roomId, String roomCode, String hostPlayer) {
+            this.roomId = roomId;
+            this.roomCode = roomCode;
+            state.reset(hostPlayer);
+        }
+    }
+
+    /**
+     * One accepted connection. Read, written and closed on the I/O thread
+     * only; other threads queue frames and raise flags.
+     */
+    private final class Conn extends WireCodec.Handler {
+        final Transport.Channel channel;
+        final FrameReader reader = new FrameReader();
+        final WireCodec.Decoder decoder = new WireCodec.Decoder();
+        final OutboundQueue outbound = new OutboundQueue();
+        final long acceptedMs = System.currentTimeMillis();
+        // Bytes taken from the queue but not yet written, kept ready to read from
+        final ByteBuffer pending = ByteBuffer.allocate(Config.OUTBOUND_BATCH_BYTES);
+        PooledBuffer partial;   // a frame too big for what was left of pending
+        int partialOffset;
+        volatile Seat seat;     // null until joined or resumed
+        final AtomicBoolean flagged = new AtomicBoolean();   // waiting in the attention queue
+        volatile boolean closeRequested;
+        boolean closeAfterFlush;  // refused: hang up once the answer is out
+        boolean closed;
+
+        Conn(Transport.Channel channel) {
+            this.channel = channel;
+            pending.flip(); // starts empty
+        }
+
+        @Override
+        public void onJoin(String name, String address, long roomId) {
+            if (seat == null && !closeAfterFlush) join(this, name, address, roomId);
+        }
+
+        @Override
+        public void onResume(long session, long roomId, int rosterVersion, RoundSeed round, int lastEvent) {
+            if (seat == null && !closeAfterFlush) resume(this, session, roomId, rosterVersion, round, lastEvent);
+        }
+
+        @Override
+        public void onGameData(String data) {
+            Seat seated = heard();
+            if (seated == null) return;
+            RoomReferee referee = seated.room.referee;
+            int sender = seated.playerId;
+            if (referee != null) {
+                runOnRoomLoop(() -> referee.onGameData(sender, data));
+            } else {
+                listener.onGameData(sender, data);
+            }
+        }
+
+        @Override
+        public void onTimeRequest(long clientMs) {
+            // Never conflated with heartbeats: each reply answers its own clock sample
+            if (heard() != null) {
+                outbound.offer(codec.frame().timeResponse(clientMs, ClockSync.monotonicMs()).seal(),
+                        OutboundQueue.Priority.CRITICAL);
+            }
+        }
+
+        @Override
+        public void onSnapshotRequest() {
+            Seat seated = heard();
+            if (seated == null) return;
+            // Queued under the roster lock so it lands in order with the deltas
+            synchronized (seated.room.state) {
+                outbound.offer(codec.frame().snapshot(seated.room.state.snapshot()).seal(),
+                        OutboundQueue.Priority.CRITICAL);
+            }
+        }
+
+        @Override
+        public void onHeartbeat() {
+            heard(); // only proves the player is there
+        }
+
+        // The seat this connection holds, marked as just heard from; null before a join
+        private Seat heard() {
+            Seat seated = seat;
+            if (seated != null && seated.conn == this) {
+                seated.lastHeardMs = System.currentTimeMillis();
+                return seated;
+            }
+            return null;
+        }
+    }
+
+    private final Transport transport;
+    private final String hostName;
+    private final Listener listener;
+    private final WireCodec codec = new WireCodec();
+    private long lobbyMs = Config.HUB_LOBBY_MS;
+    private long roundBreakMs = Config.HUB_ROUND_BREAK_MS;
+
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+    private volatile Room playedRoom;
+    private final ScheduledExecutorService roomLoop =
+            Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "room-loop"));
+
+    // I/O thread state
+    private Transport.Poller poller;
+    private final ConcurrentLinkedQueue<Conn> attention = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final LinkedHashSet<Conn> pendingJoins = new LinkedHashSet<>(); // accepted, no join yet; oldest first
+    private final List<Conn> connections = new ArrayList<>();
+
+    // Beacons
+    private Transport.Beacons beacons;
+    private final BeaconScheduler beaconScheduler = new BeaconScheduler();
+    // Guards the scheduler; the announcer waits on beaconDue between beacons
+    private final ReentrantLock beaconLock = new ReentrantLock();
+    private final Condition beaconDue = beaconLock.newCondition();
+    private final DiscoveryThrottle discoveryThrottle = new DiscoveryThrottle();
+    private final AtomicBoolean probeAnswerPending = new AtomicBoolean(false);
+    private volatile long lastBeaconSentMs;
+
+    private volatile boolean running;
+
+    /**
+     * @param hostName shown to browsers as the host of every room
+     */
+    public RoomHost(Transport transport, String hostName, Listener listener) {
+        this.transport = transport;
+        this.hostName = hostName;
+        this.listener = listener;
+    }
+
+    /** Lobby and between-round waits for refereed rooms opened after this. */
+    public void setRoomTiming(long lobbyMs, long roundBreakMs) {
+        this.lobbyMs = lobbyMs;
+        this.roundBreakMs = roundBreakMs;
+    }
+
+    /**
+     * Opens the port and starts serving and announcing; rooms may be opened
+     * before or after. The beacon channel stays the caller's, who passes
+     * what it hears to {@link #onBeacon}.
+     */
+    public synchronized void start(int port, Transport.Beacons beacons) throws IOException {
+        if (running) return;
+
+        poller = transport.openPoller(port);
+        this.beacons = beacons;
+        running = true;
+
+        new Thread(this::serveConnections, "room-host-io").start();
+        new Thread(this::announceRooms, "room-beacons").start();
+        roomLoop.scheduleWithFixedDelay(this::sweepSeats, LanProtocol.HEARTBEAT_INTERVAL_MS,
+                LanProtocol.HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        listener.onLog(false, "Listening on port " + poller.port(), null);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /** The port players connect to, once started. */
+    public int port() {
+        Transport.Poller current = poller;
+        return current != null ? current.port() : 0;
+    }
+
+    /**
+     * Opens a refereed room under a fresh room ID and returns the ID, or
+     * {@link #NO_ROOM} once {@link Config#MAX_HOSTED_ROOMS} are open.
+     */
+    public long openRoom(String roomCode) {
+        if (rooms.size() >= Config.MAX_HOSTED_ROOMS) return NO_ROOM;
+
+        Room room = new Room(newRoomId(), roomCode, null);
+        room.referee = new RoomReferee(roomLoop, new RoomReferee.Outbox() {
+            @Override
+            public void broadcast(String... data) {
+                broadcastToRoom(room, data);
+            }
+
+            @Override
+            public void roundStarted(RoundSeed round, long startedAtMs) {
+                room.state.setRound(round, startedAtMs);
+            }
+
+            @Override
+            public void holderChanged(int holder, int eventSeq) {
+                room.state.setHolder(holder, eventSeq);
+            }
+        }, lobbyMs, roundBreakMs);
+        room.game = room.referee.game();
+        rooms.put(room.roomId, room);
+        announceRoomsChanged();
+        listener.onLog(false, "Room " + roomCode + " open", null);
+        return room.roomId;
+    }
+
+    /**
+     * Opens the room the host plays in, seating playerName at slot 0, and
+     * returns its ID; {@link #NO_ROOM} if there already is one or the host
+     * is full.
+     */
+    public synchronized long openPlayedRoom(String roomCode, String playerName) {
+        if (playedRoom != null || rooms.size() >= Config.MAX_HOSTED_ROOMS) return NO_ROOM;
+
+        Room room = new Room(newRoomId(), roomCode, playerName);
+        playedRoom = room;
+        rooms.put(room.roomId, room);
+        announceRoomsChanged();
+        listener.onLog(false, "Room " + roomCode + " open, played here", null);
+        return room.roomId;
+    }
+
+    /** Closes a room and drops its players. */
+    public void closeRoom(long roomId) {
+        Room room = rooms.remove(roomId);
+        if (room == null) return;
+        synchronized (this) {
+            if (playedRoom == room) playedRoom = null;
+        }
+        closeRoom(room);
+        announceRoomsChanged();
+    }
+
+    /** Every open room's code by room ID, in no particular order. */
+    public Map<Long, String> rooms() {
+        Map<Long, String> codes = new LinkedHashMap<>();
+        for (Room room : rooms.values()) {
+            codes.put(room.roomId, room.roomCode);
+        }
+        return codes;
+    }
+
+    public boolean hasRoom(long roomId) {
+        return rooms.containsKey(roomId);
+    }
+
+    /** Whether the room is refereed here rather than played. */
+    public boolean isRefereed(long roomId) {
+        Room room = rooms.get(roomId);
+        return room != null && room.referee != null;
+    }
+
+    /** Players seated in a room, the host's own player included; -1 if no such room is open. */
+    public int playerCount(long roomId) {
+        Room room = rooms.get(roomId);
+        return room != null ? room.state.players().size() : -1;
+    }
+
+    /** A room's ID to name, by ID; empty if no such room is open. */
+    public Map<Integer, String> roster(long roomId) {
+        Room room = rooms.get(roomId);
+        return room != null ? room.state.roster() : new LinkedHashMap<>();
+    }
+
+    /** A room's potato holder as late joiners are told it, or {@link PlayerRegistry#NO_PLAYER}. */
+    public int holder(long roomId) {
+        Room room = rooms.get(roomId);
+        return room != null ? room.state.snapshot().holder : PlayerRegistry.NO_PLAYER;
+    }
+
+    /** The players seated in a room over the network, lowest ID first. */
+    public List<Seat> seats(long roomId) {
+        List<Seat> seats = new ArrayList<>();
+        Room room = rooms.get(roomId);
+        if (room == null) return seats;
+        for (PlayerRegistry.Entry<Seat> seated : room.state.players().snapshot()) {
+            if (seated.connection != null) seats.add(seated.connection);
+        }
+        return seats;
+    }
+
+    /**
+     * Outbound queue depth per seated player in every room, keyed
+     * "ROOMCODE/name". A player whose queue keeps growing is the one
+     * lagging their room.
+     */
+    public Map<String, OutboundQueue.Stats> outboundStats() {
+        Map<String, OutboundQueue.Stats> stats = new LinkedHashMap<>();
+        for (Room room : rooms.values()) {
+            for (Seat seat : seats(room.roomId)) {
+                stats.put(room.roomCode + "/" + seat.name, seat.conn.outbound.stats());
+            }
+        }
+        return stats;
+    }
+
+    /** Discovery answers skipped by storm suppression; a high count means a crowded network. */
+    public long suppressedDiscoveryResponses() {
+        return discoveryThrottle.suppressedCount();
+    }
+
+    // The played room, driven by the host's game screen
+
+    /** Sends game messages ("ACTION:payload") to everyone in a room, in one frame. */
+    public void broadcast(long roomId, String... data) {
+        Room room = rooms.get(roomId);
+        if (room != null && data.length > 0) broadcastToRoom(room, data);
+    }
+
+    /** Tells everyone in a room the game has started. */
+    public void startGame(long roomId) {
+        Room room = rooms.get(roomId);
+        if (room != null) broadcastFrame(room, codec.frame().gameStart().seal(), OutboundQueue.Priority.CRITICAL);
+    }
+
+    /** Records who holds the potato, for snapshots sent to late joiners. */
+    public void setHolder(long roomId, int holder, int eventSeq) {
+        Room room = rooms.get(roomId);
+        if (room != null) room.state.setHolder(holder, eventSeq);
+    }
+
+    /** A round began at startedAtMs on our clock; snapshots carry its seed and burn time. */
+    public void setRound(long roomId, RoundSeed round, long startedAtMs) {
+        Room room = rooms.get(roomId);
+        if (room != null) room.state.setRound(round, startedAtMs);
+    }
+
+    /**
+     * The game played in a room, whose event log lets a resumed player be
+     * sent only the passes it missed; refereed rooms have theirs already.
+     */
+    public void setGame(long roomId, GameStateMachine game) {
+        Room room = rooms.get(roomId);
+        if (room != null && room.referee == null) room.game = game;
+    }
+
+    // Beacons
+
+    /**
+     * Something heard on the beacon channel: answers browsers' probes and
+     * echoes RTT pings for our rooms. The datagram's bytes may be reused.
+     */
+    public void onBeacon(RoomBeacon beacon, Transport.Datagram datagram) throws IOException {
+        if (!running) return;
+        if (beacon.type == RoomBeacon.TYPE_PROBE) {
+            onDiscoveryProbe(datagram.senderAddress);
+        } else if (beacon.type == RoomBeacon.TYPE_PING && rooms.containsKey(beacon.roomId)) {
+            // Echo in place: same bytes, new type, back to the sender
+            datagram.data[3] = (byte) RoomBeacon.TYPE_PONG;
+            beacons.reply(datagram);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                roomLoop.shutdownNow();
+                return;
+            }
+            running = false;
+            playedRoom = null;
+        }
+        for (Room room : rooms.values()) {
+            closeRoom(room);
+        }
+        rooms.clear();
+        announceRoomsChanged(); // wakes the announcer so it sees running
+        poller.wakeup();        // the I/O thread closes every connection on its way out
+        roomLoop.shutdownNow();
+    }
+
+    private void closeRoom(Room room) {
+        if (room.referee != null) {
+            runOnRoomLoop(room.referee::close);
+        }
+        for (PlayerRegistry.Entry<Seat> seated : room.state.players().snapshot()) {
+            if (seated.connection != null) requestClose(seated.connection.conn);
+        }
+        listener.onLog(false, "Room " + room.roomCode + " closed", null);
+    }
+
+    // A random 64-bit ID other than NO_ROOM and any room already open
+    private long newRoomId() {
+        long roomId;
+        do {
+            roomId = ThreadLocalRandom.current().nextLong();
+        } while (roomId == NO_ROOM || rooms.containsKey(roomId));
+        return roomId;
+    }
+
+    // I/O thread
+
+    private final Transport.PollHandler pollHandler = new Transport.PollHandler() {
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+
+        @Override
+        public void onAccepted(Transport.Channel channel) {
+            // Browsers may connect ahead of a join; cap how many can sit waiting
+            if (!running || pendingJoins.size() >= Config.HOST_MAX_PENDING_JOINS) {
+                closeQuietly(channel);
+                return;
+            }
+            Conn conn = new Conn(channel);
+            channel.attach(conn);
+            connections.add(conn);
+            pendingJoins.add(conn);
+        }
+
+        @Override
+        public void onReadable(Transport.Channel channel) {
+            Conn conn = (Conn) channel.attachment();
+            if (conn == null || conn.closed) return;
+            try {
+                for (int reads = 0; reads < MAX_READS_PER_EVENT; reads++) {
+                    readBuffer.clear();
+                    int read = channel.read(readBuffer);
+                    if (read < 0) {
+                        connectionEnded(conn, false);
+                        return;
+                    }
+                    if (read == 0) break;
+                    readBuffer.flip();
+                    conn.reader.append(readBuffer);
+                    while (!conn.closed && conn.reader.nextFrame()) {
+                        conn.decoder.decode(conn.reader.frameArray(), conn.reader.frameOffset(),
+                                conn.reader.frameLength(), conn);
+                    }
+                    if (conn.closed) return;
+                }
+            } catch (IOException e) {
+                connectionEnded(conn, true);
+                return;
+            }
+            // Answers and anything broadcast meanwhile go out now rather than after a wakeup
+            flush(conn);
+        }
+
+        @Override
+        public void onWritable(Transport.Channel channel) {
+            Conn conn = (Conn) channel.attachment();
+            if (conn != null && !conn.closed) flush(conn);
+        }
+    };
+
+    /** Runs the I/O thread until the host closes, then closes every connection. */
+    private void serveConnections() {
+        long nextExpiryMs = System.currentTimeMillis() + POLL_TIMEOUT_MS;
+        while (running) {
+            try {
+                poller.poll(POLL_TIMEOUT_MS, pollHandler);
+            } catch (IOException e) {
+                if (running) listener.onLog(true, "Connection poller failed", e);
+                break;
+            }
+            wakeupPending.set(false);
+            Conn conn;
+            while ((conn = attention.poll()) != null) {
+                conn.flagged.set(false);
+                if (conn.closed) continue;
+                if (conn.closeRequested) {
+                    closeConn(conn);
+                } else {
+                    flush(conn);
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (now >= nextExpiryMs) {
+                expirePendingJoins(now);
+                nextExpiryMs = now + POLL_TIMEOUT_MS;
+            }
+        }
+
+        for (Conn open : new ArrayList<>(connections)) {
+            closeConn(open);
+        }
+        closeQuietly(poller);
+    }
+
+    // A speculative connection may wait a while for its join, but not forever
+    private void expirePendingJoins(long now) {
+        for (Iterator<Conn> it = pendingJoins.iterator(); it.hasNext(); ) {
+            Conn conn = it.next();
+            if (now - conn.acceptedMs < Config.HOST_JOIN_WAIT_MS) break; // oldest first
+            it.remove();
+            closeConn(conn);
+        }
+    }
+
+    /**
+     * Writes what the connection takes without blocking: the bytes left
+     * from last time, then queued frames packed into one batch per write.
+     * Asks to hear when the socket drains if anything is left.
+     */
+    private void flush(Conn conn) {
+        ByteBuffer pending = conn.pending;
+        try {
+            while (true) {
+                if (!pending.hasRemaining() && !fillPending(conn)) break;
+                conn.channel.write(pending);
+                if (pending.hasRemaining()) {
+                    conn.channel.setWriteInterest(true);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            connectionEnded(conn, true);
+            return;
+        }
+        conn.channel.setWriteInterest(false);
+        if (conn.closeAfterFlush) closeConn(conn);
+    }
+
+    // Packs queued frames into the pending buffer; false if there was nothing to send
+    private boolean fillPending(Conn conn) {
+        ByteBuffer pending = conn.pending;
+        pending.clear();
+        while (pending.hasRemaining()) {
+            PooledBuffer frame = conn.partial != null ? conn.partial : conn.outbound.poll();
+            if (frame == null) break;
+            int count = Math.min(pending.remaining(), frame.length() - conn.partialOffset);
+            pending.put(frame.array(), conn.partialOffset, count);
+            if (conn.partialOffset + count == frame.length()) {
+                frame.release();
+                conn.partial = null;
+                conn.partialOffset = 0;
+            } else {
+                conn.partial = frame;
+                conn.partialOffset += count;
+            }
+        }
+        pending.flip();
+        return pending.hasRemaining();
+    }
+
+    private void closeConn(Conn conn) {
+        if (conn.closed) return;
+        conn.closed = true;
+        conn.outbound.close();
+        if (conn.partial != null) {
+            conn.partial.release();
+            conn.partial = null;
+        }
+        pendingJoins.remove(conn);
+        connections.remove(conn);
+        closeQuietly(conn.channel);
+    }
+
+    /**
+     * A connection ended. A clean close means the player left. A dropped
+     * connection keeps the seat for a resume until the sweep gives it up.
+     * Nothing changes if a resume has already moved the seat elsewhere.
+     */
+    private void connectionEnded(Conn conn, boolean dropped) {
+        closeConn(conn);
+        Seat seat = conn.seat;
+        if (seat == null) return;
+        Room room = seat.room;
+        synchronized (room.state) {
+            if (seat.conn != conn) return;
+            if (room.state.players().byConnection(seat) == null) return; // already unseated, e.g. evicted
+            if (dropped && running) {
+                listener.onLog(false, "Keeping " + seat.name + "'s seat in " + room.roomCode + " for a resume", null);
+                return;
+            }
+        }
+        unseat(seat);
+    }
+
+    /**
+     * Seats the sender of a join request in the room it names and queues
+     * their ID, session and the room snapshot ahead of every later delta.
+     */
+    private void join(Conn conn, String name, String address, long roomId) {
+        pendingJoins.remove(conn);
+        Room room = roomId != NO_ROOM ? rooms.get(roomId) : playedRoom;
+
+        PlayerRegistry.Entry<Seat> entry = null;
+        String refusal = room == null ? LanProtocol.REFUSED_NO_ROOM : LanProtocol.nameRefusal(name);
+        if (refusal == null) {
+            Seat seat = new Seat(name, address, room, conn);
+            // Seat, answer and delta together, so every delta queued after is newer than the snapshot
+            synchronized (room.state) {
+                entry = room.state.addPlayer(name, seat);
+                if (entry == null) {
+                    refusal = room.state.players().byName(name) != null
+                            ? LanProtocol.REFUSED_NAME_TAKEN : LanProtocol.REFUSED_ROOM_FULL;
+                } else {
+                    seat.playerId = entry.id;
+                    conn.seat = seat;
+                    RoomState.Snapshot snapshot = room.state.snapshot();
+                    conn.outbound.offer(codec.frame()
+                            .welcome(entry.id, seat.sessionToken, ClockSync.monotonicMs())
+                            .snapshot(snapshot)
+                            .seal(), OutboundQueue.Priority.CRITICAL);
+                    broadcastRosterDelta(room, snapshot.version, true, entry);
+                }
+            }
+        }
+        if (entry == null) {
+            refuse(conn, refusal);
+            listener.onLog(false, "Refusing join from " + name + ": " + refusal, null);
+            return;
+        }
+
+        listener.onLog(false, name + " joined " + room.roomCode + " as player " + entry.id, null);
+        if (room.referee != null) {
+            refereePlayersChanged(room);
+        } else {
+            listener.onPlayerJoined(entry.id, name);
+        }
+    }
+
+    /**
+     * Moves a dropped player's seat, ID and all, to this connection and
+     * answers as for a join; the room sees no roster change.
+     */
+    /**
+     * Gives a dropped player its seat back on a new connection. A player
+     * still in the round it left, with the roster it left, is sent only the
+     * passes it missed; any other gets a full snapshot.
+     */
+    private void resume(Conn conn, long token, long roomId, int rosterVersion, RoundSeed round, int lastEvent) {
+        pendingJoins.remove(conn);
+        Room room = rooms.get(roomId);
+        Seat seat = null;
+        Conn previous = null;
+        List<GameStateMachine.Event> missed = null;
+        if (room != null) {
+            synchronized (room.state) {
+                seat = sessionOwner(room, token);
+                if (seat != null) {
+                    previous = seat.conn;
+                    // Swapped before the log is read: a pass broadcast to the old connection is then in it
+                    seat.conn = conn;
+                    seat.lastHeardMs = System.currentTimeMillis();
+                    conn.seat = seat;
+                    RoomState.Snapshot snapshot = room.state.snapshot();
+                    missed = missedEvents(room, snapshot, rosterVersion, round, lastEvent);
+                    WireCodec.Frame answer = codec.frame()
+                            .welcome(seat.playerId, seat.sessionToken, ClockSync.monotonicMs());
+                    if (missed == null) {
+                        answer.snapshot(snapshot);
+                    } else {
+                        for (GameStateMachine.Event event : missed) {
+                            answer.gameData(RoomReferee.ACTION_PASS + ":" + event.encode());
+                        }
+                    }
+                    conn.outbound.offer(answer.seal(), OutboundQueue.Priority.CRITICAL);
+                }
+            }
+        }
+        if (seat == null) {
+            refuse(conn, LanProtocol.REFUSED_NO_SESSION);
+            return;
+        }
+        // Seeing it was replaced, the old connection leaves the seat alone as it closes
+        if (previous != null && previous != conn) closeConn(previous);
+        listener.onLog(false, seat.name + " resumed in " + room.roomCode + " as player " + seat.playerId
+                + (missed != null ? ", " + missed.size() + " events replayed" : ", from a snapshot"), null);
+    }
+
+    /**
+     * The passes after lastEvent, or null when they cannot bring the player
+     * level with the snapshot: the roster or round moved on, the log no
+     * longer reaches back, or the game and the snapshot are mid-update.
+     */
+    private static List<GameStateMachine.Event> missedEvents(Room room, RoomState.Snapshot snapshot,
+                                                             int rosterVersion, RoundSeed round, int lastEvent) {
+        GameStateMachine game = room.game;
+        if (game == null || round == null || !round.equals(snapshot.round) || rosterVersion != snapshot.version) {
+            return null;
+        }
+        List<GameStateMachine.Event> missed = game.eventsAfter(lastEvent);
+        if (missed == null) return null;
+        int reached = missed.isEmpty() ? lastEvent : missed.get(missed.size() - 1).seq;
+        return reached == snapshot.eventSeq ? missed : null;
+    }
+
+    private void refuse(Conn conn, String reason) {
+        conn.outbound.offer(codec.frame().joinDenied(reason).seal(), OutboundQueue.Priority.CRITICAL);
+        conn.closeAfterFlush = true;
+    }
+
+    // The seat a session token belongs to; called with the roster lock held
+    private static Seat sessionOwner(Room room, long token) {
+        for (PlayerRegistry.Entry<Seat> seated : room.state.players().snapshot()) {
+            if (seated.connection != null && seated.connection.sessionToken == token) return seated.connection;
+        }
+        return null;
+    }
+
+    // Any thread
+
+    private void broadcastToRoom(Room room, String... data) {
+        WireCodec.Frame frame = codec.frame();
+        for (String message : data) {
+            frame.gameData(message);
+        }
+        broadcastFrame(room, frame.seal(), OutboundQueue.Priority.CRITICAL);
+    }
+
+    /** Queues one frame for every player in a room, encoded once and shared; takes the caller's reference. */
+    private void broadcastFrame(Room room, PooledBuffer frame, OutboundQueue.Priority priority) {
+        for (PlayerRegistry.Entry<Seat> seated : room.state.players().snapshot()) {
+            Seat seat = seated.connection;
+            if (seat == null) continue;
+            Conn conn = seat.conn;
+            if (conn.outbound.offer(frame.retain(), priority)) {
+                requestWrite(conn);
+            } else if (conn.outbound.isStalled()) {
+                evict(seat);
+            }
+        }
+        frame.release();
+    }
+
+    /**
+     * Tells every player in the room about one join or leave. Called with
+     * the roster lock held so deltas are queued in version order; they are
+     * never conflated, since a client that misses one must ask for a snapshot.
+     */
+    private void broadcastRosterDelta(Room room, int version, boolean joined, PlayerRegistry.Entry<Seat> seat) {
+        announceRoomsChanged();
+        broadcastFrame(room, codec.frame().rosterDelta(version, joined, seat.id, seat.name).seal(),
+                OutboundQueue.Priority.CRITICAL);
+    }
+
+    // Unseats a player once, however many paths notice them leaving, and hangs up on them
+    private void unseat(Seat seat) {
+        Room room = seat.room;
+        synchronized (room.state) {
+            PlayerRegistry.Entry<Seat> entry = room.state.players().byConnection(seat);
+            if (entry == null || !room.state.removePlayer(entry)) return;
+            broadcastRosterDelta(room, room.state.version(), false, entry);
+        }
+        requestClose(seat.conn);
+        listener.onLog(false, seat.name + " left " + room.roomCode, null);
+        if (room.referee != null) {
+            refereePlayersChanged(room);
+        } else {
+            listener.onPlayerLeft(seat.playerId, seat.name);
+        }
+    }
+
+    // Unseats at once so the potato moves on; a bare hang-up would read as a drop and hold the seat
+    private void evict(Seat seat) {
+        OutboundQueue outbound = seat.conn.outbound;
+        if (outbound.isClosed()) return;
+        listener.onLog(true, "Evicting slow player " + seat.name + ": " + outbound.stats(), null);
+        outbound.close();
+        unseat(seat);
+    }
+
+    // Has the I/O thread write what was queued for this connection
+    private void requestWrite(Conn conn) {
+        if (conn.flagged.compareAndSet(false, true)) {
+            attention.offer(conn);
+            wakeUp();
+        }
+    }
+
+    private void requestClose(Conn conn) {
+        conn.closeRequested = true;
+        conn.outbound.close();
+        requestWrite(conn);
+    }
+
+    // One wakeup however many connections were flagged before the I/O thread looked
+    private void wakeUp() {
+        Transport.Poller current = poller;
+        if (current != null && wakeupPending.compareAndSet(false, true)) {
+            current.wakeup();
+        }
+    }
+
+    private void refereePlayersChanged(Room room) {
+        runOnRoomLoop(() -> room.referee.onPlayersChanged(room.state.roster().keySet()));
+    }
+
+    private void runOnRoomLoop(Runnable task) {
+        try {
+            roomLoop.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Closing; the referees went with the loop
+        }
+    }
+
+    /**
+     * Room loop: heartbeats players gone quiet for an interval, unseats
+     * those silent for three, dropped seats nobody resumed included, and
+     * evicts those whose queue has stalled.
+     */
+    private void sweepSeats() {
+        try {
+            long now = System.currentTimeMillis();
+            PooledBuffer heartbeat = null;
+            for (Room room : rooms.values()) {
+                for (Seat seat : seats(room.roomId)) {
+                    long quietMs = now - seat.lastHeardMs;
+                    Conn conn = seat.conn;
+                    if (quietMs > LanProtocol.HEARTBEAT_INTERVAL_MS * 3L) {
+                        unseat(seat);
+                    } else if (conn.outbound.isStalled()) {
+                        evict(seat);
+                    } else if (quietMs >= LanProtocol.HEARTBEAT_INTERVAL_MS) {
+                        if (heartbeat == null) {
+                            heartbeat = codec.frame().heartbeat().seal();
+                        }
+                        if (conn.outbound.offer(heartbeat.retain(), OutboundQueue.Priority.TICK)) {
+                            requestWrite(conn);
+                        }
+                    }
+                }
+            }
+            if (heartbeat != null) {
+                heartbeat.release();
+            }
+        } catch (RuntimeException e) {
+            // An escaped exception would cancel the periodic task
+            listener.onLog(true, "Error in heartbeat sweep", e);
+        }
+    }
+
+    // Announcer
+
+    /** Announces every room in one beacon, fast after a change and slowly while nothing happens. */
+    private void announceRooms() {
+        beaconLock.lock();
+        try {
+            beaconScheduler.reset();
+        } finally {
+            beaconLock.unlock();
+        }
+        byte[] beacon = new byte[RoomBeacon.MAX_COMBINED_BYTES];
+        while (running) {
+            try {
+                int length = writeBeacon(beacon);
+                if (length > 0) {
+                    beacons.broadcast(beacon, length);
+                    lastBeaconSentMs = System.currentTimeMillis();
+                }
+                beaconLock.lock();
+                try {
+                    if (running) {
+                        beaconDue.await(beaconScheduler.nextDelayMs(), TimeUnit.MILLISECONDS);
+                    }
+                } finally {
+                    beaconLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                if (running) listener.onLog(true, "Error sending room beacon", e);
+            }
+        }
+    }
+
+    // One room as a plain beacon, so older browsers still see it; several combined; 0 for none
+    private int writeBeacon(byte[] beacon) {
+        List<Room> open = new ArrayList<>(rooms.values());
+        if (open.isEmpty()) return 0;
+        int port = port();
+        if (open.size() == 1) {
+            Room room = open.get(0);
+            return RoomBeacon.writeRoom(beacon, room.roomId, port, room.state.players().size(), Config.MAX_PLAYERS,
+                    RoomBeacon.MODE_CLASSIC, LanProtocol.HOST_CAPABILITIES, room.roomCode, hostName);
+        }
+        int length = RoomBeacon.writeRoomsHeader(beacon);
+        for (Room room : open) {
+            length = RoomBeacon.appendRoom(beacon, length, room.roomId, port, room.state.players().size(),
+                    Config.MAX_PLAYERS, RoomBeacon.MODE_CLASSIC, LanProtocol.HOST_CAPABILITIES, room.roomCode, hostName);
+        }
+        return length;
+    }
+
+    // Room details changed: beacon right away and burst again
+    private void announceRoomsChanged() {
+        beaconLock.lock();
+        try {
+            beaconScheduler.reset();
+            beaconDue.signalAll();
+        } finally {
+            beaconLock.unlock();
+        }
+    }
+
+    /**
+     * A browser just opened. The answer is a burst of multicast beacons that
+     * every browser hears, so it is rate limited per requester, delayed by a
+     * random jitter, coalesced with any answer already pending, and skipped
+     * when a beacon went out moments ago or a burst is under way.
+     */
+    private void onDiscoveryProbe(String requester) {
+        if (!discoveryThrottle.admitProbe(requester, System.currentTimeMillis())) return;
+        if (!probeAnswerPending.compareAndSet(false, true)) {
+            discoveryThrottle.countSuppressed();
+            return;
+        }
+
+        try {
+            roomLoop.schedule(() -> {
+                probeAnswerPending.set(false);
+                if (!discoveryThrottle.shouldSend(lastBeaconSentMs, System.currentTimeMillis())) return;
+                beaconLock.lock();
+                try {
+                    if (beaconScheduler.inBurst()) {
+                        discoveryThrottle.countSuppressed();
+                        return;
+                    }
+                    beaconScheduler.reset();
+                    beaconDue.signalAll();
+                } finally {
+                    beaconLock.unlock();
+                }
+            }, DiscoveryThrottle.jitterMs(Config.DISCOVERY_RESPONSE_JITTER_MS), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            probeAnswerPending.set(false); // closing
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+}
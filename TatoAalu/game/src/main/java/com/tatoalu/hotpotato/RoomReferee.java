@@ -0,0 +1,152 @@
+package com.tatoalu.hotpotato;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Host authority for a room this device serves without playing in it, such
+ * as one of several parallel games on a hub tablet. It does what the host's
+ * game screen does, minus the screen: a round starts by itself once
+ * {@link Config#HUB_MIN_PLAYERS} are seated, passes are ordered by a
+ * {@link GameStateMachine}, and the round ends at its seeded burn time.
+ *
+ * It speaks the same game messages as a hosting phone, so players cannot
+ * tell the two apart.
+ *
+ * Not thread-safe: every call, and every timer it sets, runs on the host's
+ * one room loop.
+ */
+public final class RoomReferee {
+    // The game messages GameActivity exchanges through LanMultiplayerManager
+    static final String ACTION_ROUND_SEED = "ROUND_SEED";
+    static final String ACTION_ROUND_DEADLINE = "ROUND_DEADLINE";   // burn time on the host's clock
+    static final String ACTION_START = "START_GAME";
+    static final String ACTION_PASS = "PASS";
+    static final String ACTION_PASS_REQUEST = "PASS_REQ";
+    static final String ACTION_PASS_REJECT = "PASS_REJECT";
+
+    /** Where the referee's decisions go. */
+    public interface Outbox {
+        /** Sends game messages ("ACTION:payload") to everyone in the room, in one frame. */
+        void broadcast(String... data);
+
+        /** A round began at startedAtMs on the host's monotonic clock; kept for the snapshots late joiners get. */
+        void roundStarted(RoundSeed round, long startedAtMs);
+
+        void holderChanged(int holder, int eventSeq);
+    }
+
+    private final ScheduledExecutorService loop;
+    private final Outbox outbox;
+    private final long lobbyMs;
+    private final long roundBreakMs;
+    private final GameStateMachine game = new GameStateMachine();
+    private List<Integer> players = new ArrayList<>();   // seated IDs, lowest first
+    private ScheduledFuture<?> timer;   // the next round's start, or the running round's burn
+    private boolean closed;
+
+    public RoomReferee(ScheduledExecutorService loop, Outbox outbox) {
+        this(loop, outbox, Config.HUB_LOBBY_MS, Config.HUB_ROUND_BREAK_MS);
+    }
+
+    /** With its own lobby and between-round waits, e.g. to run simulated rooms fast. */
+    public RoomReferee(ScheduledExecutorService loop, Outbox outbox, long lobbyMs, long roundBreakMs) {
+        this.loop = loop;
+        this.outbox = outbox;
+        this.lobbyMs = lobbyMs;
+        this.roundBreakMs = roundBreakMs;
+    }
+
+    /** The room's seated player IDs, lowest first, after a join or leave. */
+    public void onPlayersChanged(Collection<Integer> seated) {
+        players = new ArrayList<>(seated);
+        if (closed) return;
+
+        if (game.phase() == GameStateMachine.Phase.PLAYING) {
+            // A departed holder hands the potato on as a sequenced pass, so every replica sees it move
+            GameStateMachine.Event handOff = game.setPlayers(players);
+            if (handOff != null) {
+                outbox.holderChanged(game.holder(), game.eventSeq());
+                outbox.broadcast(ACTION_PASS + ":" + handOff.encode());
+            }
+        } else if (players.size() < Config.HUB_MIN_PLAYERS) {
+            cancelTimer();
+        } else if (timer == null) {
+            timer = loop.schedule(this::startRound, lobbyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** One game message ("ACTION:payload") from the player seated as senderId. */
+    public void onGameData(int senderId, String data) {
+        if (closed || !data.startsWith(ACTION_PASS_REQUEST + ":")) return;
+
+        // "seq,from,to,origin", as LanMultiplayerManager sends it; the claimed origin is
+        // ignored, since only the connection knows who really sent it
+        String[] request = data.substring(ACTION_PASS_REQUEST.length() + 1).split(",", 4);
+        if (request.length < 4) return;
+        int seq;
+        int from;
+        int to;
+        try {
+            seq = Integer.parseInt(request[0]);
+            from = Integer.parseInt(request[1]);
+            to = Integer.parseInt(request[2]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        int origin = senderId;
+
+        GameStateMachine.Event event = game.pass(from, to, origin, seq);
+        if (event == null) {
+            outbox.broadcast(ACTION_PASS_REJECT + ":" + seq + "," + game.holder() + "," + origin);
+            return;
+        }
+        outbox.holderChanged(game.holder(), game.eventSeq());
+        outbox.broadcast(ACTION_PASS + ":" + event.encode());
+    }
+
+    /** The game this referee runs, for catching resumed players up from its event log. */
+    GameStateMachine game() {
+        return game;
+    }
+
+    /** Stops all timers; the referee ignores everything after this. */
+    public void close() {
+        closed = true;
+        cancelTimer();
+    }
+
+    private void startRound() {
+        timer = null;
+        if (closed || players.size() < Config.HUB_MIN_PLAYERS) return;
+
+        // Players start their round with the lowest ID holding, as on a hosting phone
+        RoundSeed round = RoundSeed.newGame();
+        long startedAtMs = ClockSync.monotonicMs();
+        game.start(players, players.get(0));
+        outbox.roundStarted(round, startedAtMs);
+        outbox.holderChanged(game.holder(), game.eventSeq());
+        outbox.broadcast(ACTION_ROUND_SEED + ":" + round.encode(),
+                ACTION_ROUND_DEADLINE + ":" + (startedAtMs + round.burnThresholdMs()), ACTION_START);
+        timer = loop.schedule(this::endRound, round.burnThresholdMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void endRound() {
+        timer = null;
+        game.end();
+        if (!closed && players.size() >= Config.HUB_MIN_PLAYERS) {
+            timer = loop.schedule(this::startRound, roundBreakMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void cancelTimer() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.tatoalu.hotpotato;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Versioned room state for joins and roster changes.
+ *
+ * The host owns the roster, a {@link PlayerRegistry} with itself in slot 0,
+ * and bumps the version on every join and leave. A joining player gets a full {@link Snapshot} with the
+ * join response: roster, potato holder and the last game event applied, the
+ * round seed and when it burns, on the host's clock. After that only small deltas
+ * go out, each carrying the version it produces. A client applies a delta
+ * exactly one version ahead of its own, ignores older ones, and on a gap
+ * asks the host for a fresh snapshot instead of guessing.
+ *
+ * Players are addressed by registry ID throughout. Names are unique within a
+ * room; a second player with a taken name is not seated, the same rule the
+ * game screen applies.
+ *
+ * Thread-safe.
+ *
+ * @param <C> the host's connection type; mirrored entries have none
+ */
+public final class RoomState<C> {
+    public static final int NO_DEADLINE = -1;
+
+    /** Outcome of {@link #applyDelta}. */
+    public enum DeltaResult { APPLIED, STALE, GAP }
+
+    /** Everything a newcomer needs, as of one version. */
+    public static final class Snapshot {
+        public final int version;
+        public final Map<Integer, String> roster;   // ID to name, by ID
+        public final int holder;
+        public final int eventSeq;
+        public final RoundSeed round;   // null before the first round
+        public final long roundDeadlineMs;   // burn time on the host's monotonic clock, or NO_DEADLINE
+
+        public Snapshot(int version, Map<Integer, String> roster, int holder, int eventSeq, RoundSeed round, long roundDeadlineMs) {
+            this.version = version;
+            this.roster = Collections.unmodifiableMap(new LinkedHashMap<>(roster));
+            this.holder = holder;
+            this.eventSeq = eventSeq;
+            this.round = round;
+            this.roundDeadlineMs = roundDeadlineMs;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{v" + version + " " + roster + " holder=" + holder + " event=" + eventSeq
+                    + " round=" + round + " deadline=" + roundDeadlineMs + "}";
+        }
+    }
+
+    private int version;
+    private final PlayerRegistry<C> players = new PlayerRegistry<>(Config.MAX_PLAYERS);
+    private int holder;
+    private int eventSeq;
+    private RoundSeed round;
+    private long roundDeadlineMs = NO_DEADLINE;
+
+    // Host side
+
+    /**
+     * Starts a fresh room with the host alone in slot 0, or empty if
+     * hostName is null: a room the host serves without playing in it.
+     */
+    public synchronized void reset(String hostName) {
+        version = 0;
+        players.clear();
+        if (hostName != null) {
+            players.add(hostName, null);
+        }
+        holder = 0;
+        eventSeq = 0;
+        round = null;
+        roundDeadlineMs = NO_DEADLINE;
+    }
+
+    /**
+     * Seats a player and bumps the version; returns their entry, or null if
+     * the name is taken or the room is full.
+     */
+    public synchronized PlayerRegistry.Entry<C> addPlayer(String name, C connection) {
+        PlayerRegistry.Entry<C> entry = players.add(name, connection);
+        if (entry != null) version++;
+        return entry;
+    }
+
+    /** Unseats a player and bumps the version; returns false if not seated. */
+    public synchronized boolean removePlayer(PlayerRegistry.Entry<C> entry) {
+        if (players.get(entry.id) != entry) return false;
+        players.remove(entry.id);
+        version++;
+        return true;
+    }
+
+    public synchronized void setHolder(int holder, int eventSeq) {
+        this.holder = holder;
+        this.eventSeq = eventSeq;
+    }
+
+    /** A round began now, on the host's monotonic clock. */
+    public synchronized void setRound(RoundSeed round, long nowMs) {
+        this.round = round;
+        this.roundDeadlineMs = nowMs + round.burnThresholdMs();
+    }
+
+    /** When the current round burns on the host's monotonic clock, or NO_DEADLINE. */
+    public synchronized long roundDeadlineMs() {
+        return roundDeadlineMs;
+    }
+
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(version, roster(), holder, eventSeq, round, roundDeadlineMs);
+    }
+
+    // Client side
+
+    public synchronized void applySnapshot(Snapshot snapshot) {
+        version = snapshot.version;
+        players.clear();
+        for (Map.Entry<Integer, String> player : snapshot.roster.entrySet()) {
+            players.put(player.getKey(), player.getValue(), null);
+        }
+        holder = snapshot.holder;
+        eventSeq = snapshot.eventSeq;
+        round = snapshot.round;
+        roundDeadlineMs = snapshot.roundDeadlineMs;
+    }
+
+    public synchronized DeltaResult applyDelta(int deltaVersion, boolean joined, int id, String name) {
+        if (deltaVersion <= version) return DeltaResult.STALE;
+        if (deltaVersion != version + 1) return DeltaResult.GAP;
+
+        if (joined) {
+            if (players.put(id, name, null) == null) return DeltaResult.GAP;
+        } else {
+            players.remove(id);
+        }
+        version = deltaVersion;
+        return DeltaResult.APPLIED;
+    }
+
+    public synchronized int version() {
+        return version;
+    }
+
+    /** The seated players; lookups and iteration need no lock. */
+    public PlayerRegistry<C> players() {
+        return players;
+    }
+
+    /** ID to name, by ID. */
+    public synchronized Map<Integer, String> roster() {
+        Map<Integer, String> roster = new LinkedHashMap<>();
+        for (PlayerRegistry.Entry<C> player : players.snapshot()) {
+            roster.put(player.id, player.name);
+        }
+        return roster;
+    }
+}
@@ -0,0 +1,108 @@
+package com.tatoalu.hotpotato;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Shared randomness for one round.
+ *
+ * The host picks a 64-bit seed once per game and announces (seed, round).
+ * Every device then derives the same burn threshold, music track and music
+ * stop time from it, so none of those values has to be sent per event, and
+ * a late joiner can rebuild the round from the seed alone.
+ *
+ * Each value comes from its own SplitMix64 stream keyed by (seed, round,
+ * value), so derivations do not depend on the order they are called in.
+ */
+public final class RoundSeed {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    // Stream keys; changing one changes that value on every device
+    private static final long STREAM_BURN = 1;
+    private static final long STREAM_TRACK = 2;
+    private static final long STREAM_MUSIC_STOP = 3;
+
+    public final long seed;
+    public final int round;
+
+    public RoundSeed(long seed, int round) {
+        this.seed = seed;
+        this.round = round;
+    }
+
+    /** First round of a new game with a fresh seed. */
+    public static RoundSeed newGame() {
+        return new RoundSeed(ThreadLocalRandom.current().nextLong(), 1);
+    }
+
+    /** Same game, following round. */
+    public RoundSeed next() {
+        return new RoundSeed(seed, round + 1);
+    }
+
+    public long burnThresholdMs() {
+        return range(STREAM_BURN, Config.ROUND_BURN_MIN_MS, Config.ROUND_BURN_MAX_MS);
+    }
+
+    public long musicStopMs() {
+        return range(STREAM_MUSIC_STOP, Config.ROUND_MUSIC_MIN_MS, Config.ROUND_MUSIC_MAX_MS);
+    }
+
+    /**
+     * Index into the track list. Callers must sort the list first: asset
+     * listing order is not guaranteed to match across devices.
+     */
+    public int trackIndex(int trackCount) {
+        if (trackCount <= 0) return -1;
+        return (int) Long.remainderUnsigned(draw(STREAM_TRACK), trackCount);
+    }
+
+    /** Text form for the "ROUND_SEED:" game action. */
+    public String encode() {
+        return seed + "," + round;
+    }
+
+    /** Parses {@link #encode()} output, or returns null if malformed. */
+    public static RoundSeed decode(String text) {
+        int comma = text.indexOf(',');
+        if (comma < 0) return null;
+        try {
+            return new RoundSeed(Long.parseLong(text.substring(0, comma)),
+                    Integer.parseInt(text.substring(comma + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long range(long stream, long min, long max) {
+        return min + Long.remainderUnsigned(draw(stream), max - min + 1);
+    }
+
+    private long draw(long stream) {
+        return splitMix64(seed + round * GOLDEN_GAMMA + stream * 0xBF58476D1CE4E5B9L);
+    }
+
+    static long splitMix64(long z) {
+        z += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RoundSeed)) return false;
+        RoundSeed other = (RoundSeed) o;
+        return seed == other.seed && round == other.round;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(seed) * 31 + round;
+    }
+
+    @Override
+    public String toString() {
+        return "RoundSeed{seed=" + seed + ", round=" + round + "}";
+    }
+}
@@ -0,0 +1,274 @@
+package com.tatoalu.hotpotato;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * {@link Transport} over the real network: TCP for connections, and the
+ * site-local multicast group from {@link LanProtocol} for beacons. A
+ * {@link Transport.Poller} is a {@link Selector} over non-blocking channels.
+ *
+ * Android hosts must hold a Wi-Fi multicast lock while the beacon channel
+ * is open, or the driver filters what it would receive.
+ */
+public final class TcpTransport implements Transport {
+
+    @Override
+    public Listener listen(int port) throws IOException {
+        ServerSocket server = new ServerSocket(port);
+        return new Listener() {
+            @Override
+            public Connection accept() throws IOException {
+                return new TcpConnection(server.accept());
+            }
+
+            @Override
+            public int port() {
+                return server.getLocalPort();
+            }
+
+            @Override
+            public void close() throws IOException {
+                server.close();
+            }
+        };
+    }
+
+    @Override
+    public Connection connect(String address, int port, int timeoutMs) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(address, port), timeoutMs);
+            return new TcpConnection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Poller openPoller(int port) throws IOException {
+        return new TcpPoller(port);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation") // joinGroup(InetAddress) picks the default interface
+    public Beacons openBeacons() throws IOException {
+        InetAddress group = InetAddress.getByName(LanProtocol.BEACON_GROUP);
+        MulticastSocket socket = new MulticastSocket(LanProtocol.BEACON_PORT);
+        socket.setTimeToLive(1);
+        socket.joinGroup(group);
+
+        return new Beacons() {
+            private final DatagramPacket received = new DatagramPacket(new byte[0], 0);
+
+            @Override
+            public void broadcast(byte[] data, int length) throws IOException {
+                socket.send(new DatagramPacket(data, length, group, LanProtocol.BEACON_PORT));
+            }
+
+            @Override
+            public void receive(Datagram into) throws IOException {
+                received.setData(into.data, 0, into.data.length);
+                socket.receive(received);
+                into.length = received.getLength();
+                into.senderAddress = received.getAddress().getHostAddress();
+                into.senderPort = received.getPort();
+            }
+
+            @Override
+            public void reply(Datagram datagram) throws IOException {
+                socket.send(new DatagramPacket(datagram.data, datagram.length,
+                        InetAddress.getByName(datagram.senderAddress), datagram.senderPort));
+            }
+
+            @Override
+            public void sendTo(byte[] data, int length, String address) throws IOException {
+                socket.send(new DatagramPacket(data, length, InetAddress.getByName(address), LanProtocol.BEACON_PORT));
+            }
+
+            @Override
+            public void close() {
+                socket.close();
+            }
+        };
+    }
+
+    private static final class TcpPoller implements Poller {
+        private final Selector selector;
+        private final ServerSocketChannel server;
+
+        TcpPoller(int port) throws IOException {
+            selector = Selector.open();
+            server = ServerSocketChannel.open();
+            try {
+                server.bind(new InetSocketAddress(port));
+                server.configureBlocking(false);
+                server.register(selector, SelectionKey.OP_ACCEPT);
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int port() {
+            return server.socket().getLocalPort();
+        }
+
+        @Override
+        public void poll(long timeoutMs, PollHandler handler) throws IOException {
+            selector.select(timeoutMs);
+            Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+            while (ready.hasNext()) {
+                SelectionKey key = ready.next();
+                ready.remove();
+                if (!key.isValid()) continue;
+
+                if (key.isAcceptable()) {
+                    SocketChannel accepted;
+                    while ((accepted = server.accept()) != null) {
+                        TcpChannel channel;
+                        try {
+                            channel = new TcpChannel(accepted, selector);
+                        } catch (IOException e) {
+                            continue; // gone before it could be set up; closed already
+                        }
+                        handler.onAccepted(channel);
+                    }
+                    continue;
+                }
+                TcpChannel channel = (TcpChannel) key.attachment();
+                if (key.isReadable()) handler.onReadable(channel);
+                // The read handler may have closed it
+                if (key.isValid() && key.isWritable()) handler.onWritable(channel);
+            }
+        }
+
+        @Override
+        public void wakeup() {
+            selector.wakeup();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                server.close();
+                if (selector.isOpen()) {
+                    for (SelectionKey key : selector.keys()) {
+                        key.channel().close();
+                    }
+                }
+            } finally {
+                selector.close();
+            }
+        }
+    }
+
+    private static final class TcpChannel implements Channel {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final String remoteAddress;
+        private Object attachment;
+
+        TcpChannel(SocketChannel channel, Selector selector) throws IOException {
+            this.channel = channel;
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                this.key = channel.register(selector, SelectionKey.OP_READ, this);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            InetAddress address = channel.socket().getInetAddress();
+            this.remoteAddress = address != null ? address.getHostAddress() : null;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public void setWriteInterest(boolean interested) {
+            if (key.isValid()) {
+                key.interestOps(interested ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+            }
+        }
+
+        @Override
+        public void attach(Object attachment) {
+            this.attachment = attachment;
+        }
+
+        @Override
+        public Object attachment() {
+            return attachment;
+        }
+
+        @Override
+        public String remoteAddress() {
+            return remoteAddress;
+        }
+
+        @Override
+        public void close() throws IOException {
+            key.cancel();
+            channel.close();
+        }
+    }
+
+    private static final class TcpConnection implements Connection {
+        private final Socket socket;
+
+        TcpConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+        }
+
+        @Override
+        public InputStream input() throws IOException {
+            return socket.getInputStream();
+        }
+
+        @Override
+        public OutputStream output() throws IOException {
+            return socket.getOutputStream();
+        }
+
+        @Override
+        public void setReadTimeout(int timeoutMs) throws IOException {
+            socket.setSoTimeout(timeoutMs);
+        }
+
+        @Override
+        public String remoteAddress() {
+            InetAddress address = socket.getInetAddress();
+            return address != null ? address.getHostAddress() : null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
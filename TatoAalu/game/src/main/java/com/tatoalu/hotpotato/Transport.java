@@ -0,0 +1,133 @@
+package com.tatoalu.hotpotato;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * How hosts and players reach each other: byte-stream connections for the
+ * game and a datagram channel for {@link RoomBeacon}s.
+ *
+ * Protocol code talks only to this, so the same host runs over real
+ * sockets ({@link TcpTransport}) or entirely in memory
+ * ({@link LoopbackTransport}), where hundreds of simulated players fit in
+ * one JVM.
+ *
+ * Semantics follow sockets: reads block, a read timeout raises
+ * {@link java.net.SocketTimeoutException}, closing a connection ends the
+ * peer's stream, and closing anything wakes its blocked reader.
+ *
+ * Hosts that serve many players use a {@link Poller} instead of a
+ * {@link Listener}: one thread waits for every accepted connection to
+ * become readable or writable, the way a {@link java.nio.channels.Selector}
+ * does, so the thread count stays flat however many players join.
+ */
+public interface Transport {
+
+    /** Listens for connections on a port; 0 picks a free one. */
+    Listener listen(int port) throws IOException;
+
+    /** Connects to a listening host. */
+    Connection connect(String address, int port, int timeoutMs) throws IOException;
+
+    /** Listens on a port like {@link #listen}, multiplexing what it accepts onto one thread. */
+    Poller openPoller(int port) throws IOException;
+
+    /** Joins the beacon group, hearing every beacon and probe on the network. */
+    Beacons openBeacons() throws IOException;
+
+    /** A listening endpoint. */
+    interface Listener extends Closeable {
+        /** Blocks until a peer connects; throws once closed. */
+        Connection accept() throws IOException;
+
+        int port();
+    }
+
+    /** One ordered, reliable byte stream each way. */
+    interface Connection extends Closeable {
+        InputStream input() throws IOException;
+
+        OutputStream output() throws IOException;
+
+        /** 0 blocks reads indefinitely. */
+        void setReadTimeout(int timeoutMs) throws IOException;
+
+        String remoteAddress();
+    }
+
+    /**
+     * A listening endpoint whose connections are served by one thread.
+     * Only {@link #wakeup()} and {@link #close()} may be called from
+     * other threads.
+     */
+    interface Poller extends Closeable {
+        int port();
+
+        /**
+         * Waits up to timeoutMs (0 waits forever) until something is ready
+         * or {@link #wakeup()} is called, then reports everything ready.
+         */
+        void poll(long timeoutMs, PollHandler handler) throws IOException;
+
+        /** Makes the current or next {@link #poll} return at once. */
+        void wakeup();
+    }
+
+    /** Readiness callbacks, on the polling thread. */
+    interface PollHandler {
+        void onAccepted(Channel channel);
+
+        void onReadable(Channel channel);
+
+        /** Only while {@link Channel#setWriteInterest} is on. */
+        void onWritable(Channel channel);
+    }
+
+    /** A non-blocking connection accepted by a {@link Poller}; used from its thread only. */
+    interface Channel extends Closeable {
+        /** Reads what has arrived, up to dst's space: 0 if nothing, -1 once the peer closed. */
+        int read(ByteBuffer dst) throws IOException;
+
+        /** Writes as much of src as fits without blocking; the rest stays in src. */
+        int write(ByteBuffer src) throws IOException;
+
+        /** Whether to be told when a blocked write can go on. */
+        void setWriteInterest(boolean interested);
+
+        void attach(Object attachment);
+
+        Object attachment();
+
+        String remoteAddress();
+    }
+
+    /** The beacon group. */
+    interface Beacons extends Closeable {
+        /** Sends to everyone in the group, ourselves included. */
+        void broadcast(byte[] data, int length) throws IOException;
+
+        /** Blocks until a datagram arrives and fills {@code into}; throws once closed. */
+        void receive(Datagram into) throws IOException;
+
+        /** Sends a received datagram's current bytes back to whoever sent it. */
+        void reply(Datagram datagram) throws IOException;
+
+        /** Sends to one address on the beacon port, such as an RTT ping to a host. */
+        void sendTo(byte[] data, int length, String address) throws IOException;
+    }
+
+    /** A reusable datagram buffer, so receiving allocates nothing. */
+    final class Datagram {
+        public final byte[] data;
+        public int length;
+        public String senderAddress;
+        public int senderPort;
+
+        public Datagram(int capacity) {
+            data = new byte[capacity];
+        }
+    }
+}
@@ -0,0 +1,787 @@
+package com.tatoalu.hotpotato;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary codec for everything a host and its clients exchange.
+ *
+ * Every message travels in a length-prefixed frame (see {@link FrameReader}).
+ * A binary frame body starts with {@link #VERSION} followed by one or more
+ * messages, each a one-byte opcode plus varint, int64 and string fields:
+ *
+ *   JOIN           name:string address:string roomId:int64 (0 = the host's own room)
+ *   WELCOME        playerId:varint session:int64 hostMs:int64
+ *   JOIN_DENIED    reason:string
+ *   RESUME         session:int64 roomId:int64 rosterVersion:varint
+ *                  seed:int64 round:varint (0 = none) lastEvent:varint
+ *   SNAPSHOT       version:varint holder:varint eventSeq:varint deadline:int64
+ *                  seed:int64 round:varint (0 = none) count:varint ids:varint* names:string*
+ *   SNAPSHOT_REQ
+ *   ROSTER         version:varint joined:varint id:varint name:string
+ *   GAME_START
+ *   HEARTBEAT
+ *   TIME_REQ       clientMs:int64
+ *   TIME_RESP      clientMs:int64 hostMs:int64
+ *   GAME_DATA      data:string
+ *   PASS           from:varint to:varint originSeq:varint seq:varint origin:varint
+ *   PASS_REQ       seq:varint from:varint to:varint origin:varint
+ *   PASS_REJECT    seq:varint holder:varint origin:varint
+ *   ROUND_SEED     seed:int64 round:varint
+ *   ROUND_DEADLINE hostMs:int64
+ *
+ * Strings are a varint byte count followed by UTF-8; varints are unsigned
+ * LEB128, so IDs and sequence numbers mostly take one byte. Clock values are
+ * int64 because the monotonic clock may be negative.
+ *
+ * Game actions stay "ACTION:payload" strings for the referee and the game
+ * screen: {@link Frame#gameData} gives the hot ones (passes, round seeds and
+ * deadlines) their own opcode and {@link Handler#onGameData} rebuilds the
+ * string, so only unknown or malformed actions travel as text.
+ *
+ * In debug mode ({@link Config#WIRE_DEBUG_JSON}) the body is instead one JSON
+ * object per message, separated by newlines, with a "type" key and the same
+ * field names. Receivers detect it by the leading '{', so a debug build can
+ * still talk to a release build.
+ *
+ * Encoding writes into {@link PooledBuffer}s and binary decoding reads the
+ * frame in place.
+ */
+public final class WireCodec {
+    public static final byte VERSION = 1;
+
+    public static final byte OP_JOIN = 1;
+    public static final byte OP_WELCOME = 2;
+    public static final byte OP_JOIN_DENIED = 3;
+    public static final byte OP_RESUME = 4;
+    public static final byte OP_SNAPSHOT = 5;
+    public static final byte OP_SNAPSHOT_REQ = 6;
+    public static final byte OP_ROSTER = 7;
+    public static final byte OP_GAME_START = 8;
+    public static final byte OP_HEARTBEAT = 9;
+    public static final byte OP_TIME_REQ = 10;
+    public static final byte OP_TIME_RESP = 11;
+    public static final byte OP_GAME_DATA = 12;
+    public static final byte OP_PASS = 13;
+    public static final byte OP_PASS_REQ = 14;
+    public static final byte OP_PASS_REJECT = 15;
+    public static final byte OP_ROUND_SEED = 16;
+    public static final byte OP_ROUND_DEADLINE = 17;
+
+    // JSON "type" per opcode
+    private static final String[] TYPES = {null, "join", "welcome", "join_denied", "resume", "snapshot",
+            "snapshot_req", "roster", "game_start", "heartbeat", "time_req", "time_resp", "game_data",
+            "pass", "pass_req", "pass_reject", "round_seed", "round_deadline"};
+    private static final Map<String, Byte> OPCODES = new HashMap<>();
+    static {
+        for (int op = 1; op < TYPES.length; op++) {
+            OPCODES.put(TYPES[op], (byte) op);
+        }
+    }
+
+    // Game actions with an opcode of their own; see RoomReferee
+    private static final String ACTION_PASS = "PASS";
+    private static final String ACTION_PASS_REQ = "PASS_REQ";
+    private static final String ACTION_PASS_REJECT = "PASS_REJECT";
+    private static final String ACTION_ROUND_SEED = "ROUND_SEED";
+    private static final String ACTION_ROUND_DEADLINE = "ROUND_DEADLINE";
+
+    private static final byte JSON_MARKER = '{';
+
+    private final BufferPool pool;
+    private final boolean jsonDebug;
+
+    /** Receives decoded messages; override only what the side cares about. */
+    public abstract static class Handler {
+        public void onJoin(String name, String address, long roomId) throws IOException {}
+        public void onWelcome(int playerId, long session, long hostMs) throws IOException {}
+        public void onJoinDenied(String reason) throws IOException {}
+        /** round is null if the client had not seen one; lastEvent is its last applied game event. */
+        public void onResume(long session, long roomId, int rosterVersion, RoundSeed round, int lastEvent)
+                throws IOException {}
+        public void onSnapshot(RoomState.Snapshot snapshot) throws IOException {}
+        public void onSnapshotRequest() throws IOException {}
+        public void onRosterDelta(int version, boolean joined, int id, String name) throws IOException {}
+        public void onGameStart() throws IOException {}
+        public void onHeartbeat() throws IOException {}
+        public void onTimeRequest(long clientMs) throws IOException {}
+        public void onTimeResponse(long clientMs, long hostMs) throws IOException {}
+        /** Any game action as "ACTION:payload", whichever way it travelled. */
+        public void onGameData(String data) throws IOException {}
+    }
+
+    public WireCodec() {
+        this(new BufferPool(Config.WIRE_BUFFER_SIZE, Config.WIRE_POOL_SIZE), Config.WIRE_DEBUG_JSON);
+    }
+
+    public WireCodec(BufferPool pool, boolean jsonDebug) {
+        this.pool = pool;
+        this.jsonDebug = jsonDebug;
+    }
+
+    public boolean isJsonDebug() {
+        return jsonDebug;
+    }
+
+    /** Starts a frame; add messages and {@link Frame#seal()} it. */
+    public Frame frame() {
+        return new Frame();
+    }
+
+    /**
+     * One frame under construction. Each message method appends a message
+     * and returns the frame, so a join answer and its snapshot can share one
+     * write. Not thread-safe.
+     */
+    public final class Frame {
+        private PooledBuffer out;   // binary mode
+        private StringBuilder json; // debug mode
+        private boolean firstElement;
+
+        Frame() {
+            if (jsonDebug) {
+                json = new StringBuilder(128);
+            } else {
+                out = pool.acquire();
+                out.putInt(0); // length, patched in seal()
+                out.putByte(VERSION);
+            }
+        }
+
+        public Frame join(String name, String address, long roomId) {
+            begin(OP_JOIN);
+            string("name", name);
+            string("address", address);
+            int64("roomId", roomId);
+            return end();
+        }
+
+        /** session is the token a reconnecting client presents in RESUME; hostMs stamps the answer. */
+        public Frame welcome(int playerId, long session, long hostMs) {
+            begin(OP_WELCOME);
+            varint("playerId", playerId);
+            int64("session", session);
+            int64("hostMs", hostMs);
+            return end();
+        }
+
+        public Frame joinDenied(String reason) {
+            begin(OP_JOIN_DENIED);
+            string("reason", reason);
+            return end();
+        }
+
+        /** Reattaches to a seat; the rest lets the host replay only the game events missed. */
+        public Frame resume(long session, long roomId, int rosterVersion, RoundSeed round, int lastEvent) {
+            begin(OP_RESUME);
+            int64("session", session);
+            int64("roomId", roomId);
+            varint("rosterVersion", rosterVersion);
+            int64("seed", round != null ? round.seed : 0);
+            varint("round", round != null ? round.round : 0);
+            varint("lastEvent", lastEvent);
+            return end();
+        }
+
+        public Frame snapshot(RoomState.Snapshot snapshot) {
+            begin(OP_SNAPSHOT);
+            varint("version", snapshot.version);
+            varint("holder", snapshot.holder);
+            varint("eventSeq", snapshot.eventSeq);
+            int64("deadline", snapshot.roundDeadlineMs);
+            int64("seed", snapshot.round != null ? snapshot.round.seed : 0);
+            varint("round", snapshot.round != null ? snapshot.round.round : 0);
+            array("ids", snapshot.roster.size());
+            for (int id : snapshot.roster.keySet()) {
+                varint(null, id);
+            }
+            endArray();
+            array("names", snapshot.roster.size());
+            for (String name : snapshot.roster.values()) {
+                string(null, name);
+            }
+            endArray();
+            return end();
+        }
+
+        public Frame snapshotRequest() {
+            begin(OP_SNAPSHOT_REQ);
+            return end();
+        }
+
+        public Frame rosterDelta(int version, boolean joined, int id, String name) {
+            begin(OP_ROSTER);
+            varint("version", version);
+            varint("joined", joined ? 1 : 0);
+            varint("id", id);
+            string("name", name);
+            return end();
+        }
+
+        public Frame gameStart() {
+            begin(OP_GAME_START);
+            return end();
+        }
+
+        public Frame heartbeat() {
+            begin(OP_HEARTBEAT);
+            return end();
+        }
+
+        public Frame timeRequest(long clientMs) {
+            begin(OP_TIME_REQ);
+            int64("clientMs", clientMs);
+            return end();
+        }
+
+        public Frame timeResponse(long clientMs, long hostMs) {
+            begin(OP_TIME_RESP);
+            int64("clientMs", clientMs);
+            int64("hostMs", hostMs);
+            return end();
+        }
+
+        /** A game action as "ACTION:payload"; the hot ones travel as their own opcode. */
+        public Frame gameData(String data) {
+            int colon = data.indexOf(':');
+            String action = colon < 0 ? data : data.substring(0, colon);
+            long[] fields;
+            switch (action) {
+                case ACTION_PASS:
+                    fields = numbers(data, colon, 5);
+                    if (fields != null) return pass(fields);
+                    break;
+                case ACTION_PASS_REQ:
+                    fields = numbers(data, colon, 4);
+                    if (fields != null) return passRequest(fields);
+                    break;
+                case ACTION_PASS_REJECT:
+                    fields = numbers(data, colon, 3);
+                    if (fields != null) return passReject(fields);
+                    break;
+                case ACTION_ROUND_SEED:
+                    fields = numbers(data, colon, 2);
+                    if (fields != null) return roundSeed(fields[0], fields[1]);
+                    break;
+                case ACTION_ROUND_DEADLINE:
+                    fields = numbers(data, colon, 1);
+                    if (fields != null) return roundDeadline(fields[0]);
+                    break;
+                default:
+                    break;
+            }
+            begin(OP_GAME_DATA);
+            string("data", data);
+            return end();
+        }
+
+        /** Hands the frame over, owned by the caller; the frame may not be used again. */
+        public PooledBuffer seal() {
+            PooledBuffer sealed;
+            if (json != null) {
+                byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+                sealed = pool.acquire();
+                sealed.putInt(body.length);
+                sealed.ensureCapacity(body.length);
+                System.arraycopy(body, 0, sealed.array(), sealed.length(), body.length);
+                sealed.setLength(sealed.length() + body.length);
+                json = null;
+            } else {
+                sealed = out;
+                sealed.putIntAt(0, sealed.length() - FrameReader.HEADER_BYTES);
+                out = null;
+            }
+            if (sealed.length() - FrameReader.HEADER_BYTES > Config.MAX_FRAME_SIZE) {
+                sealed.release();
+                throw new IllegalArgumentException("Frame too large: " + sealed.length() + " bytes");
+            }
+            return sealed;
+        }
+
+        private Frame pass(long[] f) {
+            begin(OP_PASS);
+            varint("from", f[0]);
+            varint("to", f[1]);
+            varint("originSeq", f[2]);
+            varint("seq", f[3]);
+            varint("origin", f[4]);
+            return end();
+        }
+
+        private Frame passRequest(long[] f) {
+            begin(OP_PASS_REQ);
+            varint("seq", f[0]);
+            varint("from", f[1]);
+            varint("to", f[2]);
+            varint("origin", f[3]);
+            return end();
+        }
+
+        private Frame passReject(long[] f) {
+            begin(OP_PASS_REJECT);
+            varint("seq", f[0]);
+            varint("holder", f[1]);
+            varint("origin", f[2]);
+            return end();
+        }
+
+        private Frame roundSeed(long seed, long round) {
+            begin(OP_ROUND_SEED);
+            int64("seed", seed);
+            varint("round", round);
+            return end();
+        }
+
+        private Frame roundDeadline(long hostMs) {
+            begin(OP_ROUND_DEADLINE);
+            int64("hostMs", hostMs);
+            return end();
+        }
+
+        private void begin(byte opcode) {
+            if (json == null) {
+                out.putByte(opcode);
+                return;
+            }
+            if (json.length() > 0) json.append('\n');
+            json.append("{\"type\":\"").append(TYPES[opcode]).append('"');
+        }
+
+        private Frame end() {
+            if (json != null) json.append('}');
+            return this;
+        }
+
+        private void varint(String key, long value) {
+            if (json == null) {
+                out.putVarLong(value);
+            } else {
+                key(key).append(value);
+            }
+        }
+
+        // JSON numbers lose precision past 2^53, so int64s travel as strings there
+        private void int64(String key, long value) {
+            if (json == null) {
+                out.putLong(value);
+            } else {
+                key(key).append('"').append(value).append('"');
+            }
+        }
+
+        private void string(String key, String value) {
+            if (json == null) {
+                out.putString(value);
+                return;
+            }
+            StringBuilder text = key(key).append('"');
+            for (int i = 0, n = value.length(); i < n; i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    text.append('\\').append(c);
+                } else if (c < 0x20) {
+                    text.append(String.format("\\u%04x", (int) c));
+                } else {
+                    text.append(c);
+                }
+            }
+            text.append('"');
+        }
+
+        private void array(String key, int count) {
+            if (json == null) {
+                out.putVarLong(count);
+            } else {
+                key(key).append('[');
+                firstElement = true;
+            }
+        }
+
+        private void endArray() {
+            if (json != null) json.append(']');
+        }
+
+        // A null key is the next array element
+        private StringBuilder key(String key) {
+            if (key != null) return json.append(",\"").append(key).append("\":");
+            if (!firstElement) json.append(',');
+            firstElement = false;
+            return json;
+        }
+    }
+
+    // The count comma-separated integers after the colon, or null if the payload is not exactly that.
+    // Negative values survive too: a varint carries all 64 bits.
+    private static long[] numbers(String data, int colon, int count) {
+        if (colon < 0) return null;
+        long[] fields = new long[count];
+        int start = colon + 1;
+        for (int i = 0; i < count; i++) {
+            int comma = i == count - 1 ? data.length() : data.indexOf(',', start);
+            if (comma < 0) return null;
+            try {
+                fields[i] = Long.parseLong(data.substring(start, comma));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            start = comma + 1;
+        }
+        return fields;
+    }
+
+    /**
+     * Per-connection decoder. Holds the read cursor so binary decoding
+     * needs no buffer of its own; not thread-safe.
+     */
+    public static final class Decoder {
+        private byte[] src;
+        private int pos;
+        private int end;
+        private Map<String, Object> json; // debug mode: the current message
+
+        public void decode(byte[] frame, int offset, int length, Handler handler) throws IOException {
+            if (length == 0) return;
+            if (frame[offset] == JSON_MARKER) {
+                decodeJson(new String(frame, offset, length, StandardCharsets.UTF_8), handler);
+                return;
+            }
+            if (frame[offset] != VERSION) {
+                throw new IOException("Unsupported wire version " + frame[offset]);
+            }
+
+            src = frame;
+            pos = offset + 1;
+            end = offset + length;
+            try {
+                while (pos < end) {
+                    decodeMessage(src[pos++], handler);
+                }
+            } finally {
+                src = null;
+            }
+        }
+
+        private void decodeJson(String body, Handler handler) throws IOException {
+            try {
+                for (String line : body.split("\n")) {
+                    if (line.isEmpty()) continue;
+                    json = new JsonParser(line).object();
+                    Byte opcode = OPCODES.get(String.valueOf(json.get("type")));
+                    if (opcode == null) throw new IOException("Unknown message type " + json.get("type"));
+                    decodeMessage(opcode, handler);
+                }
+            } finally {
+                json = null;
+            }
+        }
+
+        // The same field order serves both forms: binary reads in sequence, JSON by key
+        private void decodeMessage(byte opcode, Handler handler) throws IOException {
+            switch (opcode) {
+                case OP_JOIN: {
+                    String name = string("name");
+                    String address = string("address");
+                    handler.onJoin(name, address, int64("roomId"));
+                    break;
+                }
+                case OP_WELCOME: {
+                    int playerId = (int) varint("playerId");
+                    long session = int64("session");
+                    handler.onWelcome(playerId, session, int64("hostMs"));
+                    break;
+                }
+                case OP_JOIN_DENIED:
+                    handler.onJoinDenied(string("reason"));
+                    break;
+                case OP_RESUME: {
+                    long session = int64("session");
+                    long roomId = int64("roomId");
+                    int rosterVersion = (int) varint("rosterVersion");
+                    RoundSeed round = round(int64("seed"), varint("round"));
+                    handler.onResume(session, roomId, rosterVersion, round, (int) varint("lastEvent"));
+                    break;
+                }
+                case OP_SNAPSHOT: {
+                    int version = (int) varint("version");
+                    int holder = (int) varint("holder");
+                    int eventSeq = (int) varint("eventSeq");
+                    long deadline = int64("deadline");
+                    RoundSeed round = round(int64("seed"), varint("round"));
+                    int count = arraySize("ids");
+                    int[] ids = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        ids[i] = (int) varintAt("ids", i);
+                    }
+                    if (arraySize("names") != count) throw new IOException("Snapshot roster mismatch");
+                    Map<Integer, String> roster = new LinkedHashMap<>();
+                    for (int i = 0; i < count; i++) {
+                        roster.put(ids[i], stringAt("names", i));
+                    }
+                    handler.onSnapshot(new RoomState.Snapshot(version, roster, holder, eventSeq, round, deadline));
+                    break;
+                }
+                case OP_SNAPSHOT_REQ:
+                    handler.onSnapshotRequest();
+                    break;
+                case OP_ROSTER: {
+                    int version = (int) varint("version");
+                    boolean joined = varint("joined") != 0;
+                    int id = (int) varint("id");
+                    handler.onRosterDelta(version, joined, id, string("name"));
+                    break;
+                }
+                case OP_GAME_START:
+                    handler.onGameStart();
+                    break;
+                case OP_HEARTBEAT:
+                    handler.onHeartbeat();
+                    break;
+                case OP_TIME_REQ:
+                    handler.onTimeRequest(int64("clientMs"));
+                    break;
+                case OP_TIME_RESP: {
+                    long clientMs = int64("clientMs");
+                    handler.onTimeResponse(clientMs, int64("hostMs"));
+                    break;
+                }
+                case OP_GAME_DATA:
+                    handler.onGameData(string("data"));
+                    break;
+                case OP_PASS: {
+                    long from = varint("from");
+                    long to = varint("to");
+                    long originSeq = varint("originSeq");
+                    long seq = varint("seq");
+                    handler.onGameData(ACTION_PASS + ":" + from + "," + to + "," + originSeq + "," + seq
+                            + "," + varint("origin"));
+                    break;
+                }
+                case OP_PASS_REQ: {
+                    long seq = varint("seq");
+                    long from = varint("from");
+                    long to = varint("to");
+                    handler.onGameData(ACTION_PASS_REQ + ":" + seq + "," + from + "," + to + "," + varint("origin"));
+                    break;
+                }
+                case OP_PASS_REJECT: {
+                    long seq = varint("seq");
+                    long holder = varint("holder");
+                    handler.onGameData(ACTION_PASS_REJECT + ":" + seq + "," + holder + "," + varint("origin"));
+                    break;
+                }
+                case OP_ROUND_SEED: {
+                    long seed = int64("seed");
+                    handler.onGameData(ACTION_ROUND_SEED + ":" + seed + "," + varint("round"));
+                    break;
+                }
+                case OP_ROUND_DEADLINE:
+                    handler.onGameData(ACTION_ROUND_DEADLINE + ":" + int64("hostMs"));
+                    break;
+                default:
+                    // Later opcodes carry fields we cannot skip; drop the rest of the frame
+                    throw new IOException("Unknown opcode " + opcode);
+            }
+        }
+
+        private static RoundSeed round(long seed, long round) {
+            return round == 0 ? null : new RoundSeed(seed, (int) round);
+        }
+
+        private long varint(String key) throws IOException {
+            if (json != null) return jsonLong(json.get(key), key);
+            long value = 0;
+            int shift = 0;
+            while (shift < 64) {
+                if (pos >= end) throw new IOException("Truncated varint");
+                byte b = src[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+                shift += 7;
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private long int64(String key) throws IOException {
+            if (json != null) return jsonLong(json.get(key), key);
+            if (end - pos < 8) throw new IOException("Truncated long");
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (src[pos++] & 0xFF);
+            }
+            return value;
+        }
+
+        private String string(String key) throws IOException {
+            if (json != null) return jsonString(json.get(key), key);
+            long length = varint(null);
+            if (length < 0 || length > end - pos) throw new IOException("Truncated string");
+            String value = new String(src, pos, (int) length, StandardCharsets.UTF_8);
+            pos += (int) length;
+            return value;
+        }
+
+        private int arraySize(String key) throws IOException {
+            if (json != null) return jsonArray(key).size();
+            long count = varint(null);
+            // Every element takes at least one byte
+            if (count < 0 || count > end - pos) throw new IOException("Truncated array");
+            return (int) count;
+        }
+
+        private long varintAt(String key, int index) throws IOException {
+            return json != null ? jsonLong(jsonArray(key).get(index), key) : varint(null);
+        }
+
+        private String stringAt(String key, int index) throws IOException {
+            return json != null ? jsonString(jsonArray(key).get(index), key) : string(null);
+        }
+
+        private List<?> jsonArray(String key) throws IOException {
+            Object value = json.get(key);
+            if (!(value instanceof List)) throw new IOException("Missing array " + key);
+            return (List<?>) value;
+        }
+
+        private static long jsonLong(Object value, String key) throws IOException {
+            try {
+                if (value instanceof String) return Long.parseLong((String) value);
+                if (value instanceof Long) return (Long) value;
+            } catch (NumberFormatException e) {
+                // fall through
+            }
+            throw new IOException("Missing number " + key);
+        }
+
+        private static String jsonString(Object value, String key) throws IOException {
+            if (!(value instanceof String)) throw new IOException("Missing string " + key);
+            return (String) value;
+        }
+    }
+
+    /**
+     * Just enough JSON for debug frames: one object whose values are
+     * strings, integers or flat arrays of those.
+     */
+    private static final class JsonParser {
+        private final String text;
+        private int pos;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Map<String, Object> object() throws IOException {
+            Map<String, Object> object = new HashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            do {
+                String key = string();
+                expect(':');
+                object.put(key, value());
+            } while (next() == ',');
+            pos--;
+            expect('}');
+            return object;
+        }
+
+        private Object value() throws IOException {
+            char c = peek();
+            if (c == '"') return string();
+            if (c == '[') {
+                pos++;
+                List<Object> items = new ArrayList<>();
+                if (peek() == ']') {
+                    pos++;
+                    return items;
+                }
+                do {
+                    items.add(value());
+                } while (next() == ',');
+                pos--;
+                expect(']');
+                return items;
+            }
+            int start = pos;
+            if (c == '-') pos++;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            try {
+                return Long.parseLong(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw new IOException("Bad JSON value at " + start);
+            }
+        }
+
+        private String string() throws IOException {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) throw new IOException("Unterminated JSON string");
+                char c = text.charAt(pos++);
+                if (c == '"') return value.toString();
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) throw new IOException("Unterminated JSON string");
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'u':
+                        if (pos + 4 > text.length()) throw new IOException("Bad JSON escape");
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IOException("Bad JSON escape");
+                        }
+                        pos += 4;
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    default:
+                        value.append(escaped);
+                        break;
+                }
+            }
+        }
+
+        private void expect(char c) throws IOException {
+            if (next() != c) throw new IOException("Expected '" + c + "' at " + (pos - 1));
+        }
+
+        private char next() throws IOException {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private char peek() throws IOException {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos >= text.length()) throw new IOException("Truncated JSON");
+            return text.charAt(pos);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.tatoalu.hotpotato;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dedicated LAN host: serves rooms from a laptop or any other JVM, with no
+ * one playing on the host itself and no battery or background limits to
+ * work around. Phones find it by its {@link RoomBeacon}s and join it like
+ * a hosting phone; a {@link RoomReferee} runs each room.
+ *
+ * The serving itself is the {@link RoomHost} a hosting phone uses too: one
+ * I/O thread for every connection, one room loop for every referee and
+ * heartbeat, one announcer. This class adds the beacon channel, a thread to
+ * listen on it, and rooms addressed by code for the console.
+ *
+ * Rooms are announced by beacon only. NSD registration is an Android
+ * service and browsers do not need it to find a host.
+ *
+ * Everything goes through a {@link Transport}: real sockets by default,
+ * or a {@link LoopbackTransport} to run rooms full of simulated players in
+ * one JVM.
+ */
+public final class HostServer implements Closeable {
+    private static final System.Logger LOG = System.getLogger(HostServer.class.getName());
+
+    private final Transport transport;
+    private final int requestedPort;
+    private final RoomHost host;
+
+    private volatile boolean running;
+    private Transport.Beacons beacons;
+
+    /**
+     * @param hostName shown to browsers as the host of every room
+     * @param port     TCP port to listen on; 0 picks a free one
+     */
+    public HostServer(String hostName, int port) {
+        this(new TcpTransport(), hostName, port);
+    }
+
+    public HostServer(Transport transport, String hostName, int port) {
+        this.transport = transport;
+        this.requestedPort = port;
+        this.host = new RoomHost(transport, hostName, new RoomHost.Listener() {
+            @Override
+            public void onPlayerJoined(int playerId, String name) {
+                // Every room here is refereed; nobody plays on the host
+            }
+
+            @Override
+            public void onPlayerLeft(int playerId, String name) {
+            }
+
+            @Override
+            public void onGameData(int senderId, String data) {
+            }
+
+            @Override
+            public void onLog(boolean warning, String message, Throwable error) {
+                LOG.log(warning ? System.Logger.Level.WARNING : System.Logger.Level.INFO, message, error);
+            }
+        });
+    }
+
+    /** Lobby and between-round waits for rooms opened after this. */
+    void setRoomTiming(long lobbyMs, long roundBreakMs) {
+        host.setRoomTiming(lobbyMs, roundBreakMs);
+    }
+
+    /** Opens the port and starts announcing rooms; rooms may be opened before or after. */
+    public synchronized void start() throws IOException {
+        if (running) return;
+
+        beacons = transport.openBeacons();
+        try {
+            host.start(requestedPort, beacons);
+        } catch (IOException e) {
+            closeQuietly(beacons);
+            throw e;
+        }
+        running = true;
+        new Thread(this::listenForBeacons, "beacon-listener").start();
+    }
+
+    /** The TCP port players connect to, once started. */
+    public int port() {
+        return running ? host.port() : requestedPort;
+    }
+
+    /**
+     * Opens a room under a fresh room ID. Returns false once
+     * {@link Config#MAX_HOSTED_ROOMS} are open.
+     */
+    public boolean openRoom(String roomCode) {
+        return host.openRoom(roomCode) != RoomHost.NO_ROOM;
+    }
+
+    /** Closes a room and drops its players. */
+    public void closeRoom(String roomCode) {
+        for (Map.Entry<Long, String> room : host.rooms().entrySet()) {
+            if (room.getValue().equals(roomCode)) host.closeRoom(room.getKey());
+        }
+    }
+
+    /** Codes of the open rooms. */
+    public List<String> roomCodes() {
+        return new ArrayList<>(host.rooms().values());
+    }
+
+    /** Players seated in a room, or -1 if no such room is open. */
+    public int playerCount(String roomCode) {
+        return host.playerCount(roomId(roomCode));
+    }
+
+    /** A room's potato holder as late joiners are told it, or {@link PlayerRegistry#NO_PLAYER} if no such room is open. */
+    int holder(String roomCode) {
+        return host.holder(roomId(roomCode));
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        host.close();
+        if (beacons != null) {
+            closeQuietly(beacons);
+        }
+    }
+
+    private long roomId(String roomCode) {
+        for (Map.Entry<Long, String> room : host.rooms().entrySet()) {
+            if (room.getValue().equals(roomCode)) return room.getKey();
+        }
+        return RoomHost.NO_ROOM;
+    }
+
+    /** Hands everything heard on the beacon channel to the host, which answers probes and pings. */
+    private void listenForBeacons() {
+        Transport.Datagram datagram = new Transport.Datagram(RoomBeacon.MAX_COMBINED_BYTES);
+        RoomBeacon beacon = new RoomBeacon();
+
+        while (running) {
+            try {
+                beacons.receive(datagram);
+                if (beacon.parse(datagram.data, 0, datagram.length)) {
+                    host.onBeacon(beacon, datagram);
+                }
+            } catch (SocketException e) {
+                if (running) {
+                    LOG.log(System.Logger.Level.WARNING, "Beacon channel failed", e);
+                }
+                return;
+            } catch (IOException e) {
+                LOG.log(System.Logger.Level.WARNING, "Error receiving beacon", e);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // Already gone
+        }
+    }
+}
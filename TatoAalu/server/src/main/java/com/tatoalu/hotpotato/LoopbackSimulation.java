@@ -0,0 +1,380 @@
+package com.tatoalu.hotpotato;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays whole rooms in memory: a {@link HostServer} and any number of
+ * simulated players share one {@link LoopbackTransport} network, so the
+ * real protocol (beacon discovery, join, roster deltas, the referee's
+ * rounds and passes) runs at full speed with no devices and no sockets.
+ *
+ * Each player finds its room by beacon and joins it under its own address
+ * through the {@link RoomClient} a phone uses. It follows the game as the
+ * game screen does, through a {@link GameStateMachine.Replica} and a
+ * {@link PassPredictor}, and whenever it holds the potato asks to pass it
+ * to someone at random. Once passing stops and the room settles, every
+ * player's roster and potato holder must match the host's; the run fails
+ * if they do not within {@link #SETTLE_TIMEOUT_MS}.
+ */
+final class LoopbackSimulation {
+    private static final String HOST_ADDRESS = "10.0.0.1";
+    private static final int SIMULATED_LOBBY_MS = 200;
+    private static final int SIMULATED_ROUND_BREAK_MS = 500;
+    private static final int JOIN_ATTEMPTS = 20;
+    private static final int JOIN_RETRY_MAX_MS = 100;
+    private static final int SETTLE_TIMEOUT_MS = 10000;
+    private static final int SETTLE_POLL_MS = 20;
+
+    private final int playerCount;
+    private final int roomCount;
+    private final long durationMs;
+    private final LoopbackTransport.Network network = new LoopbackTransport.Network();
+
+    private final AtomicLong passes = new AtomicLong();    // requests the referee confirmed
+    private final AtomicLong rejects = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();  // received by all players together
+    private volatile boolean passing = true;   // players stop asking to pass once false
+    private int rosterMismatches;   // players disagreeing with the host in the final check
+    private int holderMismatches;
+
+    LoopbackSimulation(int playerCount, int roomCount, long durationMs) {
+        this.playerCount = playerCount;
+        this.roomCount = roomCount;
+        this.durationMs = durationMs;
+    }
+
+    /** Runs the simulation and prints what happened; false if the players ended up disagreeing with the host. */
+    boolean run() throws IOException, InterruptedException {
+        HostServer server = new HostServer(new LoopbackTransport(network, HOST_ADDRESS), "Simulated Host", 0);
+        server.setRoomTiming(SIMULATED_LOBBY_MS, SIMULATED_ROUND_BREAK_MS);
+        List<String> codes = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            String code = String.format("%04d", i);
+            if (server.openRoom(code)) codes.add(code);
+        }
+        server.start();
+
+        Map<String, Long> roomIds = discoverRooms(codes.size());
+        List<SimulatedPlayer> players = new ArrayList<>();
+        CountDownLatch seated = new CountDownLatch(playerCount);
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+        ScheduledExecutorService clocks = Executors.newSingleThreadScheduledExecutor();
+        long startedMs = System.currentTimeMillis();
+        try {
+            for (int i = 0; i < playerCount; i++) {
+                String code = codes.get(i % codes.size());
+                SimulatedPlayer player = new SimulatedPlayer("P" + i, "10.1." + (i / 250) + "." + (i % 250 + 1),
+                        code, roomIds.get(code), server.port(), seated, clocks);
+                players.add(player);
+                threads.submit(player);
+            }
+            if (!seated.await(10, TimeUnit.SECONDS)) {
+                System.out.println("Only " + (playerCount - seated.getCount()) + " of " + playerCount + " players got seated");
+            }
+            Thread.sleep(durationMs);
+        } finally {
+            passing = false;
+        }
+
+        // Wait for the last passes and roster deltas to land, however long the machine takes
+        long settleByMs = System.currentTimeMillis() + SETTLE_TIMEOUT_MS;
+        boolean consistent = compare(server, players, false);
+        while (!consistent && System.currentTimeMillis() < settleByMs) {
+            Thread.sleep(SETTLE_POLL_MS);
+            consistent = compare(server, players, false);
+        }
+        if (!consistent) compare(server, players, true);
+        long elapsedMs = System.currentTimeMillis() - startedMs;
+
+        for (SimulatedPlayer player : players) {
+            player.close();
+        }
+        server.close();
+        threads.shutdownNow();
+        clocks.shutdownNow();
+
+        System.out.printf("%d players in %d rooms for %d ms: %d passes confirmed (%.0f/s), %d rejected, %d messages received%n",
+                playerCount, codes.size(), elapsedMs, passes.get(), passes.get() * 1000.0 / elapsedMs,
+                rejects.get(), messages.get());
+        System.out.println(consistent ? "Every roster and holder matches the host"
+                : rosterMismatches + " rosters and " + holderMismatches + " holders diverged");
+        return consistent;
+    }
+
+    /** Players whose roster differed from the host's in the final check. */
+    int rosterMismatches() {
+        return rosterMismatches;
+    }
+
+    /** Players whose potato holder differed from the host's in the final check. */
+    int holderMismatches() {
+        return holderMismatches;
+    }
+
+    /** Passes the referee confirmed to the players who asked for them. */
+    long passesConfirmed() {
+        return passes.get();
+    }
+
+    // Counts the players disagreeing with the host, naming them if report is set
+    private boolean compare(HostServer server, List<SimulatedPlayer> players, boolean report) {
+        rosterMismatches = 0;
+        holderMismatches = 0;
+        for (SimulatedPlayer player : players) {
+            if (player.refused) continue; // the host turned them away, so they see no room
+            int expected = server.playerCount(player.roomCode);
+            if (player.roster().roster().size() != expected) {
+                if (report) {
+                    System.out.println(player.name + " sees " + player.roster().roster().size()
+                            + " players in " + player.roomCode + "; host has " + expected);
+                }
+                rosterMismatches++;
+            }
+            // Settled means the replica caught up and no prediction is left over on top of it
+            int holder = server.holder(player.roomCode);
+            int replicated = player.replica.holder();
+            int predicted = player.predictor.predictedHolder();
+            if (replicated != holder || predicted != holder) {
+                if (report) {
+                    System.out.println(player.name + " sees " + replicated + " (predicting " + predicted
+                            + ") holding in " + player.roomCode + "; host has " + holder);
+                }
+                holderMismatches++;
+            }
+        }
+        return rosterMismatches == 0 && holderMismatches == 0;
+    }
+
+    /** Listens to beacons as a browsing phone would, until every room has been announced. */
+    private Map<String, Long> discoverRooms(int expected) throws IOException {
+        Map<String, Long> found = new LinkedHashMap<>();
+        try (Transport.Beacons beacons = new LoopbackTransport(network, "10.0.0.2").openBeacons()) {
+            Transport.Datagram datagram = new Transport.Datagram(RoomBeacon.MAX_COMBINED_BYTES);
+            RoomBeacon beacon = new RoomBeacon();
+            while (found.size() < expected) {
+                beacons.receive(datagram);
+                if (!beacon.parse(datagram.data, 0, datagram.length)) continue;
+                if (beacon.type != RoomBeacon.TYPE_ROOM && beacon.type != RoomBeacon.TYPE_ROOMS) continue;
+                do {
+                    found.put(beacon.roomCode(), beacon.roomId);
+                } while (beacon.nextRoom());
+            }
+        }
+        return found;
+    }
+
+    /** One player: joins through a {@link RoomClient}, follows the game, and passes whenever it holds. */
+    private final class SimulatedPlayer implements Runnable, RoomClient.Listener {
+        final String name;
+        final String roomCode;
+        private final long roomId;
+        private final int port;
+        private final CountDownLatch seated;
+        private final String address;
+        private final Transport transport;
+        private final RoomClient client;
+        private volatile boolean closed;
+        volatile boolean refused;
+
+        // The game as the game screen follows it; touched on the reading thread, read by the final check
+        final GameStateMachine.Replica replica = new GameStateMachine.Replica();
+        volatile PassPredictor predictor = new PassPredictor(PlayerRegistry.NO_PLAYER);
+        // When the running round burns on the host's clock; one JVM has one clock, so no sync is needed
+        private long roundEndsMs = RoomState.NO_DEADLINE;
+
+        SimulatedPlayer(String name, String address, String roomCode, long roomId, int port, CountDownLatch seated,
+                        ScheduledExecutorService scheduler) {
+            this.name = name;
+            this.roomCode = roomCode;
+            this.roomId = roomId;
+            this.port = port;
+            this.seated = seated;
+            this.address = address;
+            this.transport = new LoopbackTransport(network, address);
+            this.client = new RoomClient(transport, scheduler, this);
+        }
+
+        /** Our copy of the room's roster. */
+        RoomState<Void> roster() {
+            return client.room();
+        }
+
+        @Override
+        public void run() {
+            try {
+                // A host sheds connections past its pending-join cap, so a burst of joins retries as phones do
+                for (int attempt = 0; attempt < JOIN_ATTEMPTS && !closed; attempt++) {
+                    if (attempt > 0) {
+                        Thread.sleep(ThreadLocalRandom.current().nextInt(JOIN_RETRY_MAX_MS));
+                    }
+                    if (join()) {
+                        client.run();
+                        return;
+                    }
+                    if (refused) break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                if (client.playerId() == PlayerRegistry.NO_PLAYER && !closed) {
+                    if (!refused) {
+                        System.out.println(name + " was never seated");
+                    }
+                    seated.countDown();
+                }
+            }
+        }
+
+        // One join attempt; false if it failed or the host turned us away
+        private boolean join() {
+            Transport.Connection connection = null;
+            try {
+                connection = transport.connect(HOST_ADDRESS, port, Config.SOCKET_CONNECT_TIMEOUT_MS);
+                client.join(connection, HOST_ADDRESS, port, roomId, name, address);
+                return true;
+            } catch (RoomClient.JoinDeniedException e) {
+                System.out.println(name + " refused: " + e.reason);
+                refused = true;
+            } catch (IOException e) {
+                // Shed by the host; try again
+            }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (IOException ignored) {
+                    // Already gone
+                }
+            }
+            return false;
+        }
+
+        void close() {
+            closed = true;
+            client.close();
+        }
+
+        @Override
+        public void onSeated(int playerId, boolean resumed) {
+            if (resumed) return;
+            predictor = new PassPredictor(playerId);
+            seated.countDown();
+        }
+
+        @Override
+        public void onSnapshot(RoomState.Snapshot snapshot) {
+            messages.incrementAndGet();
+            roundEndsMs = snapshot.roundDeadlineMs;
+            replica.resync(snapshot.holder, snapshot.eventSeq);
+            predictor.reset(replica.holder());
+            maybePass();
+        }
+
+        @Override
+        public void onPlayerJoined(int playerId, String name) {
+            messages.incrementAndGet();
+        }
+
+        @Override
+        public void onPlayerLeft(int playerId, String name) {
+            messages.incrementAndGet();
+        }
+
+        @Override
+        public void onGameStarted() {
+            messages.incrementAndGet();
+        }
+
+        @Override
+        public void onGameData(String data) {
+            messages.incrementAndGet();
+            applyGameData(data);
+            maybePass();
+        }
+
+        @Override
+        public void onDisconnected(String reason) {
+            if (!closed) {
+                System.out.println(name + " lost its connection: " + reason);
+            }
+        }
+
+        private void applyGameData(String data) {
+            int colon = data.indexOf(':');
+            String action = colon < 0 ? data : data.substring(0, colon);
+            String argument = colon < 0 ? "" : data.substring(colon + 1);
+            switch (action) {
+                case RoomReferee.ACTION_ROUND_DEADLINE:
+                    roundEndsMs = Long.parseLong(argument);
+                    break;
+
+                case RoomReferee.ACTION_START:
+                    // The lowest seated ID starts with the potato
+                    int first = roster().roster().keySet().stream().min(Integer::compare).orElse(PlayerRegistry.NO_PLAYER);
+                    replica.reset(first);
+                    predictor.reset(first);
+                    break;
+
+                case RoomReferee.ACTION_PASS:
+                    GameStateMachine.Event event = GameStateMachine.Event.decode(argument);
+                    if (event == null) break;
+                    // Duplicates are dropped and early events wait, as on the game screen
+                    for (GameStateMachine.Event e : replica.offer(event)) {
+                        predictor.onAuthoritativePass(e.to, e.originSeq, e.origin);
+                        if (e.origin == client.playerId() && e.originSeq > 0) passes.incrementAndGet();
+                    }
+                    if (replica.needsResync()) {
+                        try {
+                            client.requestSnapshot();
+                        } catch (IOException e) {
+                            // The reading thread notices the dead connection
+                        }
+                    }
+                    break;
+
+                case RoomReferee.ACTION_PASS_REJECT:
+                    // "seq,holder,origin"
+                    String[] reject = argument.split(",", 3);
+                    if (reject.length < 3) break;
+                    int origin = Integer.parseInt(reject[2]);
+                    predictor.onRejected(Integer.parseInt(reject[0]), Integer.parseInt(reject[1]), origin);
+                    if (origin == client.playerId()) rejects.incrementAndGet();
+                    break;
+
+                default:
+                    break;
+            }
+        }
+
+        // Passes on a prediction, one request in flight at a time; an unanswered one rolls back
+        private void maybePass() {
+            int playerId = client.playerId();
+            long nowMs = ClockSync.monotonicMs();
+            predictor.expire(nowMs);
+            if (!passing || predictor.hasPending() || predictor.predictedHolder() != playerId || nowMs >= roundEndsMs) {
+                return;
+            }
+            List<Integer> others = new ArrayList<>(roster().roster().keySet());
+            others.remove(Integer.valueOf(playerId));
+            if (others.isEmpty()) return;
+
+            int to = others.get(ThreadLocalRandom.current().nextInt(others.size()));
+            int seq = predictor.predict(playerId, to, nowMs);
+            try {
+                client.send(RoomReferee.ACTION_PASS_REQUEST + ":" + seq + "," + playerId + "," + to + "," + playerId);
+            } catch (IOException e) {
+                // The reading thread notices the dead connection; the prediction expires
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.tatoalu.hotpotato;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs a {@link HostServer} from the command line:
+ *
+ *   java -jar server.jar [--rooms N] [--port P] [--name HOSTNAME]
+ *
+ * Opens N rooms (1 by default) and then reads commands from standard input:
+ * "open [CODE]", "close CODE", "list" and "quit".
+ *
+ *   java -jar server.jar --simulate PLAYERS [--rooms N] [--seconds S]
+ *
+ * Instead plays N rooms with that many simulated players, all in memory
+ * (see {@link LoopbackSimulation}), and exits non-zero if they disagree.
+ */
+public final class ServerMain {
+    private ServerMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int rooms = 1;
+        int port = 0;
+        String name = "TatoAalu Server";
+        int simulatedPlayers = 0;
+        int seconds = 10;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                usage("Missing value for " + args[i]);
+            }
+            switch (args[i]) {
+                case "--rooms" -> rooms = Integer.parseInt(args[i + 1]);
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--name" -> name = args[i + 1];
+                case "--simulate" -> simulatedPlayers = Integer.parseInt(args[i + 1]);
+                case "--seconds" -> seconds = Integer.parseInt(args[i + 1]);
+                default -> usage("Unknown option " + args[i]);
+            }
+        }
+
+        if (simulatedPlayers > 0) {
+            boolean consistent = new LoopbackSimulation(simulatedPlayers, rooms, seconds * 1000L).run();
+            System.exit(consistent ? 0 : 1);
+        }
+
+        HostServer server = new HostServer(name, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        for (int i = 0; i < rooms; i++) {
+            open(server, newRoomCode());
+        }
+        System.out.println("Hosting on port " + server.port() + ". Commands: open [CODE], close CODE, list, quit");
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] command = line.trim().split("\\s+");
+            switch (command[0]) {
+                case "open" -> open(server, command.length > 1 ? command[1] : newRoomCode());
+                case "close" -> {
+                    if (command.length > 1) server.closeRoom(command[1]);
+                }
+                case "list" -> {
+                    for (String code : server.roomCodes()) {
+                        System.out.println(code + "  " + server.playerCount(code) + "/" + Config.MAX_PLAYERS);
+                    }
+                }
+                case "quit" -> {
+                    server.close();
+                    return;
+                }
+                case "" -> { }
+                default -> System.out.println("Unknown command " + command[0]);
+            }
+        }
+        // Standard input closed (e.g. run as a service): keep serving until killed
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: server [--rooms N] [--port P] [--name HOSTNAME]");
+        System.err.println("       server --simulate PLAYERS [--rooms N] [--seconds S]");
+        System.exit(2);
+    }
+
+    private static void open(HostServer server, String code) {
+        System.out.println(server.openRoom(code) ? "Room " + code + " open"
+                : "No more rooms; at most " + Config.MAX_HOSTED_ROOMS);
+    }
+
+    // Four digits, like the codes phones make up
+    private static String newRoomCode() {
+        return String.format("%04d", ThreadLocalRandom.current().nextInt(10000));
+    }
+}
@@ -0,0 +1,33 @@
+package com.tatoalu.hotpotato;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Plays a few hundred simulated players against one {@link HostServer} over
+ * {@link LoopbackTransport}, as {@code --simulate} does, and fails the build
+ * if any of them still disagrees with the host once the rooms have settled.
+ */
+class LoopbackSimulationTest {
+    private static final int PLAYERS = 200;
+    private static final int ROOMS = 8;
+    private static final long DURATION_MS = 3000;
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void everyPlayerAgreesWithTheHost() throws Exception {
+        LoopbackSimulation simulation = new LoopbackSimulation(PLAYERS, ROOMS, DURATION_MS);
+
+        boolean consistent = simulation.run();
+
+        assertEquals(0, simulation.rosterMismatches(), "players whose roster differs from the host's");
+        assertEquals(0, simulation.holderMismatches(), "players whose potato holder differs from the host's");
+        assertTrue(consistent);
+        // Holders only mean something if the rounds actually got going
+        assertTrue(simulation.passesConfirmed() > 0, "no pass was ever confirmed");
+    }
+}